@@ -30,6 +30,19 @@ public class AndroidSwitchDemoActivity extends Activity implements OnChangeAttem
 		yes.setEnabled(false);
 		no.setEnabled(true);
     }
+
+	@Override
+	public void onLowMemory() {
+		super.onLowMemory();
+		MySwitch.onLowMemory();
+	}
+
+	// Overrides Activity.onTrimMemory on API 14 and later. Not annotated because
+	// the project compiles against API 8.
+	public void onTrimMemory(int level) {
+		MySwitch.trimMemory(level);
+	}
+
 	@Override
 	public void onChangeAttempted(boolean isChecked) {
 		Log.d(TAG,"onChangeAttemped(checked = "+isChecked+")");
@@ -0,0 +1,119 @@
+package com.appscumen.example;
+
+/**
+ * Frame timing of one thumb animation of a {@link MySwitch}. Instances are
+ * immutable and are delivered to a {@link MySwitch.OnAnimationStatsListener}
+ * and to the {@link FrameStatsRegistry} when the animation ends.
+ *
+ * All times are in milliseconds.
+ */
+public final class AnimationFrameStats {
+    private final int   mFrameCount;
+    private final long  mMaxFrameInterval;
+    private final float mMeanFrameInterval;
+    private final long  mP95FrameInterval;
+    private final int   mFramesOverDeadline;
+    private final long  mFrameDeadline;
+    private final long  mDuration;
+    private final long  mPlannedDuration;
+    private final boolean mCancelled;
+
+    AnimationFrameStats(int frameCount, long maxFrameInterval, float meanFrameInterval,
+            long p95FrameInterval, int framesOverDeadline, long frameDeadline,
+            long duration, long plannedDuration, boolean cancelled) {
+        mFrameCount = frameCount;
+        mMaxFrameInterval = maxFrameInterval;
+        mMeanFrameInterval = meanFrameInterval;
+        mP95FrameInterval = p95FrameInterval;
+        mFramesOverDeadline = framesOverDeadline;
+        mFrameDeadline = frameDeadline;
+        mDuration = duration;
+        mPlannedDuration = plannedDuration;
+        mCancelled = cancelled;
+    }
+
+    /**
+     * Returns the number of frames the animation produced.
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Returns the longest interval between two consecutive frames.
+     */
+    public long getMaxFrameInterval() {
+        return mMaxFrameInterval;
+    }
+
+    /**
+     * Returns the mean interval between two consecutive frames.
+     */
+    public float getMeanFrameInterval() {
+        return mMeanFrameInterval;
+    }
+
+    /**
+     * Returns the 95th percentile of the intervals between frames.
+     */
+    public long getP95FrameInterval() {
+        return mP95FrameInterval;
+    }
+
+    /**
+     * Returns the number of frame intervals that were longer than {@link #getFrameDeadline()}.
+     */
+    public int getFramesOverDeadline() {
+        return mFramesOverDeadline;
+    }
+
+    /**
+     * Returns the frame deadline the intervals were checked against. For an
+     * animation in {@link MySwitch#POWER_MODE_REDUCED} it includes the time its
+     * frames are deliberately spaced apart.
+     */
+    public long getFrameDeadline() {
+        return mFrameDeadline;
+    }
+
+    /**
+     * Returns the time from the start of the animation to its last frame.
+     */
+    public long getDuration() {
+        return mDuration;
+    }
+
+    /**
+     * Returns how long the animation was expected to take when it was started
+     * or last retargeted.
+     */
+    public long getPlannedDuration() {
+        return mPlannedDuration;
+    }
+
+    /**
+     * Returns true if the animation was interrupted (e.g. by a drag) instead of
+     * running until the thumb settled.
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Returns true if at least one frame missed the deadline.
+     */
+    public boolean hasJank() {
+        return mFramesOverDeadline > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "AnimationFrameStats{frames=" + mFrameCount
+                + " max=" + mMaxFrameInterval
+                + " mean=" + mMeanFrameInterval
+                + " p95=" + mP95FrameInterval
+                + " overDeadline=" + mFramesOverDeadline + "/" + mFrameDeadline
+                + " duration=" + mDuration + "/" + mPlannedDuration
+                + (mCancelled ? " cancelled" : "") + "}";
+    }
+}
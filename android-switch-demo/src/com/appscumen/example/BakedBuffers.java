@@ -0,0 +1,103 @@
+package com.appscumen.example;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+/**
+ * Buffer sets baked into the assets at build time by
+ * <code>gradle/bake-switch-buffers.gradle</code>. They use the file format of
+ * {@link BufferDiskCache} and are stored uncompressed, so they are mapped
+ * straight from the APK.
+ */
+final class BakedBuffers {
+    private static final String TAG = "BakedBuffers";
+    static final String DIRECTORY = "switch-buffers";
+
+    private static HashSet<String> sNames;
+    // names already reported missing, each is logged once per process
+    private static final HashSet<String> sMissing = new HashSet<String>();
+
+    private BakedBuffers() {
+    }
+
+    /**
+     * Builds the asset name of a buffer set with {@link BufferKey}, which the bake
+     * task uses as well.
+     */
+    static String name(Resources res, int maskId, int leftId, int rightId,
+            int width, int height, int x, int y) {
+        return new BufferKey(entryName(res, maskId), entryName(res, leftId), entryName(res, rightId),
+                res.getDisplayMetrics().densityDpi, width, height, x, y).getName();
+    }
+
+    private static String entryName(Resources res, int id) {
+        return id == 0 ? null : res.getResourceEntryName(id);
+    }
+
+    /**
+     * @return the baked bitmaps, or null if no usable asset has this name
+     */
+    static Bitmap[] load(Context context, String name, int width, int height, int count) {
+        if (!names(context).contains(name)) {
+            if (reportMissing(name)) {
+                Log.d(TAG, "no baked buffers " + name);
+            }
+            return null;
+        }
+        AssetFileDescriptor fd = null;
+        FileInputStream in = null;
+        try {
+            fd = context.getAssets().openFd(DIRECTORY + "/" + name);
+            in = fd.createInputStream();
+            return BufferDiskCache.map(in.getChannel(), fd.getStartOffset(), fd.getLength(),
+                    width, height, count);
+        } catch (IOException e) {
+            // also thrown by openFd when the asset was compressed
+            Log.w(TAG, "unusable baked buffers " + name + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            Log.w(TAG, "unusable baked buffers " + name, e);
+        } finally {
+            BufferDiskCache.close(in);
+            if (fd != null) {
+                try {
+                    fd.close();
+                } catch (IOException e) {
+                    // nothing left to do
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true the first time a name is missing
+     */
+    private static boolean reportMissing(String name) {
+        synchronized (sMissing) {
+            return sMissing.add(name);
+        }
+    }
+
+    private static synchronized HashSet<String> names(Context context) {
+        if (sNames == null) {
+            sNames = new HashSet<String>();
+            try {
+                String[] names = context.getAssets().list(DIRECTORY);
+                if (names != null) {
+                    sNames.addAll(Arrays.asList(names));
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "cannot list baked buffers", e);
+            }
+        }
+        return sNames;
+    }
+}
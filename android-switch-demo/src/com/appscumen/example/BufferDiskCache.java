@@ -0,0 +1,275 @@
+package com.appscumen.example;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.util.Log;
+
+/**
+ * Cache of rendered {@link MySwitch} buffers in the app's cache directory, so the
+ * masked backgrounds are rasterized once per install instead of on every launch.
+ *
+ * An entry holds the raw ARGB_8888 pixels of a few bitmaps of the same size
+ * behind a small header. Entries are read through a memory mapping straight into
+ * the bitmaps, and written on a background thread to a temporary file that is
+ * renamed into place, so a crash never leaves a half written entry behind. Keys
+ * include the app version code and {@link #FORMAT_VERSION}, so stale renderings
+ * are never loaded. The least recently used entries are deleted once the cache
+ * grows over its size limit.
+ */
+final class BufferDiskCache {
+    private static final String TAG = "BufferDiskCache";
+    private static final String DIRECTORY = "myswitch-buffers";
+    private static final String SUFFIX = ".buf";
+    private static final int MAGIC = 0x4d534243; // "MSBC"
+    // bump whenever the rendering of the cached buffers changes; the header is
+    // also written by gradle/bake-switch-buffers.gradle
+    static final int FORMAT_VERSION = 1;
+    // magic, version, width, height, bitmap count
+    private static final int HEADER_BYTES = 5 * 4;
+    static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    private static BufferDiskCache sInstance;
+    private static ExecutorService sWriter;
+
+    private final File mDirectory;
+    private final int mAppVersion;
+    private volatile long mMaxBytes = DEFAULT_MAX_BYTES;
+
+    private BufferDiskCache(File directory, int appVersion) {
+        mDirectory = directory;
+        mAppVersion = appVersion;
+    }
+
+    /**
+     * @return the cache of the application, or null if it has no cache directory
+     */
+    static synchronized BufferDiskCache get(Context context) {
+        if (sInstance == null) {
+            File cacheDir = context.getCacheDir();
+            if (cacheDir == null) {
+                return null;
+            }
+            int appVersion = 0;
+            try {
+                appVersion = context.getPackageManager()
+                        .getPackageInfo(context.getPackageName(), 0).versionCode;
+            } catch (PackageManager.NameNotFoundException e) {
+                Log.w(TAG, "no package info, cached buffers are not versioned", e);
+            }
+            sInstance = new BufferDiskCache(new File(cacheDir, DIRECTORY), appVersion);
+        }
+        return sInstance;
+    }
+
+    void setMaxBytes(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Builds the key of a buffer set from everything its pixels depend on.
+     *
+     * @param resIds resource ids of the drawables rendered into the buffers
+     */
+    String key(int densityDpi, int width, int height, int... resIds) {
+        StringBuilder key = new StringBuilder();
+        key.append('v').append(FORMAT_VERSION).append("-a").append(mAppVersion)
+                .append("-d").append(densityDpi).append('-').append(width).append('x').append(height);
+        for (int id : resIds) {
+            key.append('-').append(Integer.toHexString(id));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Loads a buffer set. An entry that cannot be used is deleted.
+     *
+     * @return <code>count</code> new mutable bitmaps, or null on a miss
+     */
+    Bitmap[] load(String key, int width, int height, int count) {
+        File file = new File(mDirectory, key + SUFFIX);
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile in = null;
+        try {
+            in = new RandomAccessFile(file, "r");
+            FileChannel channel = in.getChannel();
+            Bitmap[] bitmaps = map(channel, 0, channel.size(), width, height, count);
+            file.setLastModified(System.currentTimeMillis());
+            return bitmaps;
+        } catch (IOException e) {
+            Log.w(TAG, "dropping unusable entry " + key + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            Log.w(TAG, "dropping unusable entry " + key, e);
+        } finally {
+            close(in);
+        }
+        file.delete();
+        return null;
+    }
+
+    /**
+     * Maps a buffer set from a file region and copies it into new bitmaps.
+     *
+     * @throws IOException if the region does not hold a buffer set of the given size
+     */
+    static Bitmap[] map(FileChannel channel, long offset, long size, int width, int height, int count)
+            throws IOException {
+        final int bitmapBytes = width * height * 4;
+        if (size != HEADER_BYTES + (long) bitmapBytes * count) {
+            throw new IOException("size " + size);
+        }
+        MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        if (data.getInt() != MAGIC || data.getInt() != FORMAT_VERSION
+                || data.getInt() != width || data.getInt() != height || data.getInt() != count) {
+            throw new IOException("header");
+        }
+        Bitmap[] bitmaps = new Bitmap[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                data.limit(data.position() + bitmapBytes);
+                bitmaps[i] = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+                bitmaps[i].copyPixelsFromBuffer(data.slice());
+                data.position(data.limit());
+            }
+        } catch (RuntimeException e) {
+            for (Bitmap bitmap : bitmaps) {
+                if (bitmap != null) bitmap.recycle();
+            }
+            throw e;
+        }
+        return bitmaps;
+    }
+
+    /**
+     * Stores a buffer set. The pixels are copied right away, the file is written
+     * in the background.
+     */
+    void store(final String key, Bitmap... bitmaps) {
+        final int width = bitmaps[0].getWidth();
+        final int height = bitmaps[0].getHeight();
+        final ByteBuffer data = ByteBuffer.allocate(HEADER_BYTES + width * height * 4 * bitmaps.length);
+        data.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(width).putInt(height).putInt(bitmaps.length);
+        try {
+            for (Bitmap bitmap : bitmaps) {
+                if (bitmap.getWidth() != width || bitmap.getHeight() != height
+                        || bitmap.getConfig() != Config.ARGB_8888) {
+                    return;
+                }
+                bitmap.copyPixelsToBuffer(data);
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "not caching " + key, e);
+            return;
+        }
+        data.flip();
+        writer().execute(new Runnable() {
+            public void run() {
+                write(key, data);
+                trim();
+            }
+        });
+    }
+
+    private static synchronized ExecutorService writer() {
+        if (sWriter == null) {
+            sWriter = Executors.newSingleThreadExecutor();
+        }
+        return sWriter;
+    }
+
+    private void write(String key, ByteBuffer data) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            return;
+        }
+        File temp = new File(mDirectory, key + ".tmp");
+        FileOutputStream out = null;
+        boolean written = false;
+        try {
+            out = new FileOutputStream(temp);
+            FileChannel channel = out.getChannel();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            out.getFD().sync();
+            written = true;
+        } catch (IOException e) {
+            Log.w(TAG, "could not write " + key, e);
+        } finally {
+            close(out);
+        }
+        if (!written || !temp.renameTo(new File(mDirectory, key + SUFFIX))) {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits its size limit.
+     */
+    private void trim() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= mMaxBytes) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < files.length && total > mMaxBytes; i++) {
+            long length = files[i].length();
+            if (files[i].delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    /**
+     * Deletes every entry.
+     */
+    void clear() {
+        writer().execute(new Runnable() {
+            public void run() {
+                File[] files = mDirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+            }
+        });
+    }
+
+    static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // nothing left to do
+            }
+        }
+    }
+}
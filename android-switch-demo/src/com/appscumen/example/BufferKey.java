@@ -0,0 +1,97 @@
+package com.appscumen.example;
+
+/**
+ * Identifies a baked buffer set of {@link MySwitch}: the drawables it is made of,
+ * the density they are rendered at, the size of the switch and its offset inside
+ * the bitmaps. The asset name of the set is built from these values.
+ *
+ * Plain Java without framework classes: <code>gradle/bake-switch-buffers.gradle</code>
+ * compiles and loads this class to name the files it bakes, so the build and the
+ * runtime cannot disagree on a name.
+ */
+final class BufferKey {
+    static final String SUFFIX = ".buf";
+    // resource entry name of a background the switch does not have
+    static final String NONE = "none";
+
+    final String mask;
+    final String left;
+    final String right;
+    final int dpi;
+    final int width;
+    final int height;
+    // offset of the switch inside the bitmaps, mSwitchLeft and mSwitchTop
+    final int x;
+    final int y;
+
+    /**
+     * @param left  resource entry name of the left background, null if none
+     * @param right resource entry name of the right background, null if none
+     */
+    BufferKey(String mask, String left, String right, int dpi, int width, int height, int x, int y) {
+        this.mask = mask;
+        this.left = left != null ? left : NONE;
+        this.right = right != null ? right : NONE;
+        this.dpi = dpi;
+        this.width = width;
+        this.height = height;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * @return the offset of the switch inside its bitmaps along one axis, as
+     *         MySwitch.onLayout places the switch against its right and bottom
+     *         padding
+     */
+    static int offset(int padding) {
+        return -padding;
+    }
+
+    boolean hasLeft() {
+        return !NONE.equals(left);
+    }
+
+    boolean hasRight() {
+        return !NONE.equals(right);
+    }
+
+    /**
+     * @return the asset name of the buffer set
+     */
+    String getName() {
+        return mask + '.' + left + '.' + right + ".d" + dpi + '.' + width + 'x' + height
+                + '.' + x + '.' + y + SUFFIX;
+    }
+
+    /**
+     * Reads the values back from an asset name. Resource entry names hold no dots.
+     *
+     * @return the key, or null if the name was not built by {@link #getName()}
+     */
+    static BufferKey parse(String name) {
+        if (!name.endsWith(SUFFIX)) {
+            return null;
+        }
+        String[] parts = name.substring(0, name.length() - SUFFIX.length()).split("\\.");
+        if (parts.length != 7 || !parts[3].startsWith("d")) {
+            return null;
+        }
+        final int times = parts[4].indexOf('x');
+        if (times < 0) {
+            return null;
+        }
+        try {
+            return new BufferKey(parts[0], parts[1], parts[2], Integer.parseInt(parts[3].substring(1)),
+                    Integer.parseInt(parts[4].substring(0, times)), Integer.parseInt(parts[4].substring(times + 1)),
+                    Integer.parseInt(parts[5]), Integer.parseInt(parts[6]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
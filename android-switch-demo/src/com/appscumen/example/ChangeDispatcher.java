@@ -0,0 +1,257 @@
+package com.appscumen.example;
+
+import android.os.SystemClock;
+import android.widget.CompoundButton.OnCheckedChangeListener;
+
+import com.appscumen.example.MySwitch.OnChangeAttemptListener;
+
+/**
+ * Delivers the checked changes and change attempts of one {@link MySwitch} to
+ * any number of listeners, optionally debounced, throttled or held back until
+ * the thumb has settled.
+ *
+ * Listeners are kept in arrays that are replaced on every registration, so
+ * dispatch walks a snapshot without locking or copying, and listeners may add
+ * or remove listeners while being called.
+ *
+ * <ul>
+ * <li>Debounce: a change is delivered once no other change followed it for the
+ *     debounce window.</li>
+ * <li>Throttle: at most one delivery per throttle window; changes within the
+ *     window are delivered together at its end.</li>
+ * <li>Settle: changes are held while the thumb is dragged or animating, and
+ *     delivered after it comes to rest.</li>
+ * </ul>
+ * When a delivery is delayed, listeners only hear of the final state, and not
+ * at all if it is the state they were last told about. Attempts to change a
+ * fixed switch collapse into one call the same way. Deliveries run on the UI
+ * thread.
+ */
+final class ChangeDispatcher {
+    private static final OnCheckedChangeListener[] NO_CHECKED_LISTENERS = new OnCheckedChangeListener[0];
+    private static final OnChangeAttemptListener[] NO_ATTEMPT_LISTENERS = new OnChangeAttemptListener[0];
+
+    private final MySwitch mView;
+    private volatile OnCheckedChangeListener[] mCheckedListeners = NO_CHECKED_LISTENERS;
+    private volatile OnChangeAttemptListener[] mAttemptListeners = NO_ATTEMPT_LISTENERS;
+
+    private long mDebounce;
+    private long mThrottle;
+    private boolean mDeliverSettled;
+
+    private final Channel mChecked = new Channel() {
+        @Override
+        void deliver() {
+            final boolean checked = mView.isChecked();
+            if (mDelivered && checked == mDeliveredChecked) {
+                return;
+            }
+            mDelivered = true;
+            mDeliveredChecked = checked;
+            for (OnCheckedChangeListener listener : mCheckedListeners) {
+                listener.onCheckedChanged(mView, checked);
+            }
+        }
+    };
+    private boolean mDelivered;
+    private boolean mDeliveredChecked;
+
+    private final Channel mAttempt = new Channel() {
+        @Override
+        void deliver() {
+            final boolean checked = mView.isChecked();
+            for (OnChangeAttemptListener listener : mAttemptListeners) {
+                listener.onChangeAttempted(checked);
+            }
+        }
+    };
+
+    ChangeDispatcher(MySwitch view) {
+        mView = view;
+    }
+
+    synchronized void addOnCheckedChangeListener(OnCheckedChangeListener listener) {
+        for (OnCheckedChangeListener l : mCheckedListeners) {
+            if (l == listener) return;
+        }
+        OnCheckedChangeListener[] listeners = new OnCheckedChangeListener[mCheckedListeners.length + 1];
+        System.arraycopy(mCheckedListeners, 0, listeners, 0, mCheckedListeners.length);
+        listeners[mCheckedListeners.length] = listener;
+        if (mCheckedListeners.length == 0) {
+            // listeners added later hear of the changes from the state they find
+            mDelivered = true;
+            mDeliveredChecked = mView.isChecked();
+        }
+        mCheckedListeners = listeners;
+    }
+
+    synchronized void removeOnCheckedChangeListener(OnCheckedChangeListener listener) {
+        OnCheckedChangeListener[] old = mCheckedListeners;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] == listener) {
+                OnCheckedChangeListener[] listeners = old.length == 1
+                        ? NO_CHECKED_LISTENERS : new OnCheckedChangeListener[old.length - 1];
+                System.arraycopy(old, 0, listeners, 0, i);
+                System.arraycopy(old, i + 1, listeners, i, old.length - i - 1);
+                mCheckedListeners = listeners;
+                return;
+            }
+        }
+    }
+
+    synchronized void addOnChangeAttemptListener(OnChangeAttemptListener listener) {
+        for (OnChangeAttemptListener l : mAttemptListeners) {
+            if (l == listener) return;
+        }
+        OnChangeAttemptListener[] listeners = new OnChangeAttemptListener[mAttemptListeners.length + 1];
+        System.arraycopy(mAttemptListeners, 0, listeners, 0, mAttemptListeners.length);
+        listeners[mAttemptListeners.length] = listener;
+        mAttemptListeners = listeners;
+    }
+
+    synchronized void removeOnChangeAttemptListener(OnChangeAttemptListener listener) {
+        OnChangeAttemptListener[] old = mAttemptListeners;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i] == listener) {
+                OnChangeAttemptListener[] listeners = old.length == 1
+                        ? NO_ATTEMPT_LISTENERS : new OnChangeAttemptListener[old.length - 1];
+                System.arraycopy(old, 0, listeners, 0, i);
+                System.arraycopy(old, i + 1, listeners, i, old.length - i - 1);
+                mAttemptListeners = listeners;
+                return;
+            }
+        }
+    }
+
+    void setDebounce(long millis) {
+        mDebounce = Math.max(0, millis);
+    }
+
+    void setThrottle(long millis) {
+        mThrottle = Math.max(0, millis);
+    }
+
+    void setDeliverSettled(boolean settled) {
+        mDeliverSettled = settled;
+        if (!settled) {
+            onSettled();
+        }
+    }
+
+    /**
+     * Called by the switch after its checked state changed.
+     */
+    void checkedChanged() {
+        if (mCheckedListeners.length != 0) {
+            mChecked.request();
+        }
+    }
+
+    /**
+     * Called by the switch when a fixed switch was tapped or dragged.
+     */
+    void changeAttempted() {
+        if (mAttemptListeners.length != 0) {
+            mAttempt.request();
+        }
+    }
+
+    /**
+     * Called by the switch when an animation ended or a drag was released.
+     * Held deliveries wait on if the thumb still moves.
+     */
+    void onSettled() {
+        mChecked.settled();
+        mAttempt.settled();
+    }
+
+    /**
+     * Delivers what is still waiting right away, when the switch goes away.
+     */
+    void flush() {
+        mChecked.flush();
+        mAttempt.flush();
+    }
+
+    /**
+     * Takes the current state as the one listeners know, when the switch is
+     * rebound to another item. Call {@link #flush()} first: what is still
+     * waiting belongs to the previous item and is dropped.
+     */
+    void reset() {
+        mChecked.cancel();
+        mAttempt.cancel();
+        mDelivered = true;
+        mDeliveredChecked = mView.isChecked();
+    }
+
+    /**
+     * The timing of one kind of delivery.
+     */
+    private abstract class Channel implements Runnable {
+        // a delivery is waiting for its window, or for the thumb to settle
+        private boolean mScheduled;
+        private boolean mWaitingToSettle;
+        private long mLastDelivery = Long.MIN_VALUE / 2;
+
+        abstract void deliver();
+
+        void request() {
+            if (mDeliverSettled && mView.isMoving()) {
+                mWaitingToSettle = true;
+                return;
+            }
+            schedule();
+        }
+
+        void settled() {
+            // an animation ends when a drag grabs the thumb, which is not at rest
+            if (mWaitingToSettle && !(mDeliverSettled && mView.isMoving())) {
+                mWaitingToSettle = false;
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            final long now = SystemClock.uptimeMillis();
+            long at = now;
+            if (mDebounce > 0) {
+                at = now + mDebounce;
+            }
+            if (mThrottle > 0) {
+                at = Math.max(at, mLastDelivery + mThrottle);
+                if (mScheduled && mDebounce == 0) {
+                    // the delivery at the end of the window picks up this change
+                    return;
+                }
+            }
+            mView.removeCallbacks(this);
+            if (at <= now) {
+                mScheduled = false;
+                run();
+            } else {
+                mScheduled = true;
+                mView.postDelayed(this, at - now);
+            }
+        }
+
+        void flush() {
+            if (mScheduled || mWaitingToSettle) {
+                cancel();
+                run();
+            }
+        }
+
+        void cancel() {
+            mScheduled = false;
+            mWaitingToSettle = false;
+            mView.removeCallbacks(this);
+        }
+
+        public void run() {
+            mScheduled = false;
+            mLastDelivery = SystemClock.uptimeMillis();
+            deliver();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.appscumen.example;
+
+import java.lang.reflect.Method;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * The power state of the device, the {@link MySwitch.PowerStateProvider} switches
+ * use unless another one is set. A discharging battery at or below
+ * {@link #LOW_PERCENT} is low and at or below {@link #CRITICAL_PERCENT} critical;
+ * the battery saver of API 21 and later, looked up by reflection, makes it low
+ * as well.
+ *
+ * The battery is read from the sticky battery broadcast, without registering a
+ * receiver, at most once every {@link #REFRESH_INTERVAL} ms: animations start far
+ * more often than the battery changes.
+ */
+final class DevicePowerState implements MySwitch.PowerStateProvider {
+    private static final String TAG = "DevicePowerState";
+    static final int LOW_PERCENT = 15;
+    static final int CRITICAL_PERCENT = 5;
+    static final long REFRESH_INTERVAL = 10000;
+
+    private final Context mContext;
+    private long mReadTime = Long.MIN_VALUE / 2;
+    private int mState = POWER_STATE_NORMAL;
+
+    DevicePowerState(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    public int getPowerState() {
+        final long now = SystemClock.uptimeMillis();
+        if (now - mReadTime >= REFRESH_INTERVAL) {
+            mState = read();
+            mReadTime = now;
+        }
+        return mState;
+    }
+
+    private int read() {
+        int state = POWER_STATE_NORMAL;
+        Intent battery = null;
+        try {
+            battery = mContext.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        } catch (RuntimeException e) {
+            Log.w(TAG, "battery state not available", e);
+        }
+        if (battery != null) {
+            final int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            final int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            final boolean plugged = battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            if (!plugged && level >= 0 && scale > 0) {
+                final int percent = level * 100 / scale;
+                if (percent <= CRITICAL_PERCENT) {
+                    state = POWER_STATE_CRITICAL;
+                } else if (percent <= LOW_PERCENT) {
+                    state = POWER_STATE_LOW;
+                }
+            }
+        }
+        if (state == POWER_STATE_NORMAL && isPowerSaveMode()) {
+            state = POWER_STATE_LOW;
+        }
+        return state;
+    }
+
+    private boolean isPowerSaveMode() {
+        // PowerManager.isPowerSaveMode needs API 21
+        try {
+            Object powerManager = mContext.getSystemService(Context.POWER_SERVICE);
+            Method method = powerManager.getClass().getMethod("isPowerSaveMode");
+            return (Boolean) method.invoke(powerManager);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.appscumen.example;
+
+/**
+ * Collects the frame intervals of a single running animation. The intervals are
+ * kept in a fixed 1ms histogram, so recording a frame never allocates; only
+ * {@link #end(long, boolean)} creates the resulting {@link AnimationFrameStats}.
+ */
+final class FrameStatsRecorder {
+    // intervals of HISTOGRAM_SIZE - 1 ms and more share the last bucket
+    private static final int HISTOGRAM_SIZE = 128;
+
+    private final int[] mHistogram = new int[HISTOGRAM_SIZE];
+    private long mDeadline = 16;
+    // the deadline of the running animation, see begin()
+    private long mAnimDeadline = 16;
+    private long mStartTime;
+    private long mLastFrameTime;
+    private long mPlannedEnd;
+    private long mMaxInterval;
+    private long mIntervalSum;
+    private int  mIntervals;
+    private int  mFramesOverDeadline;
+    private boolean mActive;
+
+    void setDeadline(long deadlineMillis) {
+        mDeadline = deadlineMillis;
+    }
+
+    long getDeadline() {
+        return mDeadline;
+    }
+
+    boolean isActive() {
+        return mActive;
+    }
+
+    /**
+     * Starts recording an animation whose frames are planned
+     * <code>frameInterval</code> apart, 0 for every display frame. A frame
+     * counts as over the deadline when it comes more than the deadline after
+     * it was planned, so deliberately spaced frames are not counted as missed.
+     */
+    void begin(long now, long plannedDuration, long frameInterval) {
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            mHistogram[i] = 0;
+        }
+        mStartTime = now;
+        mLastFrameTime = now;
+        mPlannedEnd = now + plannedDuration;
+        mMaxInterval = 0;
+        mIntervalSum = 0;
+        mIntervals = 0;
+        mFramesOverDeadline = 0;
+        mAnimDeadline = frameInterval + mDeadline;
+        mActive = true;
+    }
+
+    /**
+     * The animation was retargeted at <code>now</code> and is now expected to take
+     * <code>remainingDuration</code> more.
+     */
+    void replan(long now, long remainingDuration) {
+        mPlannedEnd = now + remainingDuration;
+    }
+
+    void frame(long now) {
+        if (!mActive) {
+            return;
+        }
+        final long interval = now - mLastFrameTime;
+        mLastFrameTime = now;
+        mIntervals++;
+        mIntervalSum += interval;
+        if (interval > mMaxInterval) {
+            mMaxInterval = interval;
+        }
+        if (interval > mAnimDeadline) {
+            mFramesOverDeadline++;
+        }
+        mHistogram[(int) Math.min(Math.max(interval, 0), HISTOGRAM_SIZE - 1)]++;
+    }
+
+    AnimationFrameStats end(long now, boolean cancelled) {
+        if (!mActive) {
+            return null;
+        }
+        mActive = false;
+        final float mean = mIntervals == 0 ? 0 : (float) mIntervalSum / mIntervals;
+        return new AnimationFrameStats(mIntervals, mMaxInterval, mean, percentile(95),
+                mFramesOverDeadline, mAnimDeadline, mLastFrameTime - mStartTime,
+                mPlannedEnd - mStartTime, cancelled);
+    }
+
+    private long percentile(int p) {
+        if (mIntervals == 0) {
+            return 0;
+        }
+        final int rank = (mIntervals * p + 99) / 100;
+        int seen = 0;
+        for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+            seen += mHistogram[i];
+            if (seen >= rank) {
+                return i == HISTOGRAM_SIZE - 1 ? mMaxInterval : i;
+            }
+        }
+        return mMaxInterval;
+    }
+}
@@ -0,0 +1,137 @@
+package com.appscumen.example;
+
+/**
+ * Process wide aggregate of the {@link AnimationFrameStats} of all {@link MySwitch}
+ * animations. Collection is off by default; automated UI runs can turn it on,
+ * drive the UI and then check {@link #getJankyAnimationCount()}.
+ *
+ * All methods may be called from any thread.
+ */
+public final class FrameStatsRegistry {
+    private static final Object sLock = new Object();
+    private static volatile boolean sEnabled;
+
+    private static int  sAnimationCount;
+    private static int  sJankyAnimationCount;
+    private static int  sCancelledAnimationCount;
+    private static long sFrameCount;
+    private static long sFramesOverDeadline;
+    private static long sMaxFrameInterval;
+    private static long sIntervalSum;
+    private static AnimationFrameStats sWorst;
+
+    private FrameStatsRegistry() {
+    }
+
+    /**
+     * Turns collection on or off. Turning it off keeps what was collected so far.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    static void record(AnimationFrameStats stats) {
+        synchronized (sLock) {
+            sAnimationCount++;
+            if (stats.hasJank()) {
+                sJankyAnimationCount++;
+            }
+            if (stats.isCancelled()) {
+                sCancelledAnimationCount++;
+            }
+            sFrameCount += stats.getFrameCount();
+            sFramesOverDeadline += stats.getFramesOverDeadline();
+            sIntervalSum += (long) (stats.getMeanFrameInterval() * stats.getFrameCount());
+            if (sWorst == null || stats.getMaxFrameInterval() > sWorst.getMaxFrameInterval()) {
+                sWorst = stats;
+            }
+            sMaxFrameInterval = Math.max(sMaxFrameInterval, stats.getMaxFrameInterval());
+        }
+    }
+
+    /**
+     * Clears everything collected so far.
+     */
+    public static void reset() {
+        synchronized (sLock) {
+            sAnimationCount = 0;
+            sJankyAnimationCount = 0;
+            sCancelledAnimationCount = 0;
+            sFrameCount = 0;
+            sFramesOverDeadline = 0;
+            sMaxFrameInterval = 0;
+            sIntervalSum = 0;
+            sWorst = null;
+        }
+    }
+
+    public static int getAnimationCount() {
+        synchronized (sLock) {
+            return sAnimationCount;
+        }
+    }
+
+    /**
+     * Returns the number of animations with at least one frame over the deadline.
+     */
+    public static int getJankyAnimationCount() {
+        synchronized (sLock) {
+            return sJankyAnimationCount;
+        }
+    }
+
+    public static int getCancelledAnimationCount() {
+        synchronized (sLock) {
+            return sCancelledAnimationCount;
+        }
+    }
+
+    public static long getFrameCount() {
+        synchronized (sLock) {
+            return sFrameCount;
+        }
+    }
+
+    public static long getFramesOverDeadline() {
+        synchronized (sLock) {
+            return sFramesOverDeadline;
+        }
+    }
+
+    public static long getMaxFrameInterval() {
+        synchronized (sLock) {
+            return sMaxFrameInterval;
+        }
+    }
+
+    public static float getMeanFrameInterval() {
+        synchronized (sLock) {
+            return sFrameCount == 0 ? 0 : (float) sIntervalSum / sFrameCount;
+        }
+    }
+
+    /**
+     * Returns the stats of the animation with the longest single frame, or null.
+     */
+    public static AnimationFrameStats getWorstAnimation() {
+        synchronized (sLock) {
+            return sWorst;
+        }
+    }
+
+    public static String dump() {
+        synchronized (sLock) {
+            return "FrameStatsRegistry{animations=" + sAnimationCount
+                    + " janky=" + sJankyAnimationCount
+                    + " cancelled=" + sCancelledAnimationCount
+                    + " frames=" + sFrameCount
+                    + " overDeadline=" + sFramesOverDeadline
+                    + " maxInterval=" + sMaxFrameInterval
+                    + " worst=" + sWorst + "}";
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.appscumen.example;
+
+import java.lang.reflect.Method;
+
+import android.graphics.Canvas;
+import android.util.Log;
+import android.view.View;
+
+/**
+ * Picks the layer type of a {@link MySwitch} for its idle and moving states.
+ * View.setLayerType and the hardware acceleration checks need API 11, so they
+ * are looked up by reflection and the switch still runs on API 8, where this
+ * does nothing.
+ *
+ * An idle switch draws without a layer: its display list is replayed as it
+ * is, and a layer would only hold a second copy of the switch in memory. While
+ * the thumb is dragged or animating, a switch on a hardware accelerated window
+ * gets a hardware layer, so the frames in between only redraw the switch into
+ * its texture instead of invalidating the display lists around it. Switches
+ * that draw something the hardware pipeline cannot reproduce never get one:
+ * push style switches with offscreen buffers draw tempBitmap, change it and
+ * draw it again within one frame, and clipping to the mask path needs software
+ * rendering before API 18. Software rendered windows draw without layers.
+ *
+ * The policy only takes over a switch whose layer type is still none, the
+ * default. A layer type the app set, from <code>android:layerType</code> or
+ * View.setLayerType, before or after the policy took over, is kept and the
+ * policy disables itself.
+ */
+final class LayerPolicy {
+    private static final String TAG = "LayerPolicy";
+    // values of View.LAYER_TYPE_*
+    static final int LAYER_TYPE_NONE = 0;
+    static final int LAYER_TYPE_HARDWARE = 2;
+    // Canvas.clipPath is drawn by the hardware pipeline from this level on
+    private static final int HARDWARE_CLIP_PATH_SDK = 18;
+
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final Method sSetLayerType;
+    private static final Method sGetLayerType;
+    private static final Method sViewIsHardwareAccelerated;
+    private static final Method sCanvasIsHardwareAccelerated;
+
+    static {
+        Method setLayerType = null;
+        Method getLayerType = null;
+        Method viewIsHardwareAccelerated = null;
+        Method canvasIsHardwareAccelerated = null;
+        try {
+            setLayerType = View.class.getMethod("setLayerType", int.class, android.graphics.Paint.class);
+            getLayerType = View.class.getMethod("getLayerType");
+            viewIsHardwareAccelerated = View.class.getMethod("isHardwareAccelerated");
+            canvasIsHardwareAccelerated = Canvas.class.getMethod("isHardwareAccelerated");
+        } catch (Exception e) {
+            // before API 11 everything is drawn in software
+            setLayerType = null;
+        }
+        sSetLayerType = setLayerType;
+        sGetLayerType = setLayerType != null ? getLayerType : null;
+        sViewIsHardwareAccelerated = setLayerType != null ? viewIsHardwareAccelerated : null;
+        sCanvasIsHardwareAccelerated = setLayerType != null ? canvasIsHardwareAccelerated : null;
+    }
+
+    private final View mView;
+    private boolean mEnabled = true;
+    // the layer type set by this policy, -1 if it has not set one
+    private int mApplied = -1;
+
+    LayerPolicy(View view) {
+        mView = view;
+    }
+
+    /**
+     * @return true if layer types exist on this device
+     */
+    static boolean isSupported() {
+        return sSetLayerType != null;
+    }
+
+    /**
+     * @return true if clipping to a path needs software rendering on hardware
+     *         accelerated windows of this device
+     */
+    static boolean isClipPathSoftwareOnly(int sdk) {
+        return sdk < HARDWARE_CLIP_PATH_SDK;
+    }
+
+    /**
+     * @return the layer type for a switch in the given state
+     */
+    static int choose(boolean hardwareAccelerated, boolean needsSoftware, boolean moving) {
+        if (!hardwareAccelerated || needsSoftware || !moving) {
+            return LAYER_TYPE_NONE;
+        }
+        return LAYER_TYPE_HARDWARE;
+    }
+
+    /**
+     * @param current the layer type the view has
+     * @param applied the layer type the policy set, or -1 if it has not set one
+     * @return true if the layer type was set by someone other than the policy
+     */
+    static boolean isSetByApp(int current, int applied) {
+        return current != (applied == -1 ? LAYER_TYPE_NONE : applied);
+    }
+
+    /**
+     * @return true if the canvas records into a display list instead of pixels
+     */
+    static boolean isHardwareAccelerated(Canvas canvas) {
+        return sCanvasIsHardwareAccelerated != null && invokeBoolean(sCanvasIsHardwareAccelerated, canvas);
+    }
+
+    /**
+     * Sets the layer type for the current state of the switch, if it changed.
+     * Must not be called while the switch draws, setting a layer type
+     * invalidates it.
+     *
+     * @param needsSoftware true if the switch uses features the hardware
+     *                      pipeline cannot draw
+     * @param moving        true while the thumb is dragged or animating
+     */
+    void update(boolean needsSoftware, boolean moving) {
+        if (!mEnabled || sSetLayerType == null) {
+            return;
+        }
+        final int current = invokeInt(sGetLayerType, mView);
+        if (isSetByApp(current, mApplied)) {
+            Log.d(TAG, "keeping layer type " + current + " set by the app");
+            mEnabled = false;
+            mApplied = -1;
+            return;
+        }
+        // only known once the view is attached to a window
+        final boolean hardware = invokeBoolean(sViewIsHardwareAccelerated, mView);
+        apply(choose(hardware, needsSoftware, moving));
+    }
+
+    /**
+     * Enables or disables the policy. Disabling it drops the layer it set, so
+     * the app can set its own layer type instead. Enabling it takes over the
+     * layer type the view has, even one the app set.
+     */
+    void setEnabled(boolean enabled) {
+        if (enabled && !mEnabled && sGetLayerType != null) {
+            mApplied = invokeInt(sGetLayerType, mView);
+        }
+        mEnabled = enabled;
+        if (!enabled && mApplied != -1) {
+            apply(LAYER_TYPE_NONE);
+            mApplied = -1;
+        }
+    }
+
+    boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * @return the layer type set by the policy, or -1 if it has not set one
+     */
+    int getLayerType() {
+        return mApplied;
+    }
+
+    private void apply(int type) {
+        if (type == mApplied) {
+            return;
+        }
+        try {
+            sSetLayerType.invoke(mView, type, null);
+            mApplied = type;
+        } catch (Exception e) {
+            Log.w(TAG, "setLayerType(" + type + ") failed", e);
+        }
+    }
+
+    private static int invokeInt(Method method, Object target) {
+        try {
+            return (Integer) method.invoke(target, NO_ARGS);
+        } catch (Exception e) {
+            return LAYER_TYPE_NONE;
+        }
+    }
+
+    private static boolean invokeBoolean(Method method, Object target) {
+        try {
+            return (Boolean) method.invoke(target, NO_ARGS);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.appscumen.example;
+
+import java.util.Arrays;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Run length description of a mask: for every row the horizontal spans that are
+ * inside the mask. A hard edged mask can be applied with a clip path instead of
+ * offscreen PorterDuff compositing, and any mask can be used to hit test touches.
+ *
+ * Coordinates are view coordinates, the same ones the mask bitmaps of
+ * {@link MySwitch} use.
+ */
+final class MaskSpans {
+    // alpha values this close to 0 or 255 still count as a hard edge
+    private static final int EDGE_TOLERANCE = 8;
+
+    private final int mWidth;
+    // y of the first row, negative once grown by a radius
+    private final int mTop;
+    private final int mHeight;
+    // spans of row i are mSpans[mRowStart[i]] .. mSpans[mRowStart[i + 1]], as (start, end) pairs
+    private final int[] mRowStart;
+    private final int[] mSpans;
+    // bounds of the spans of each row, so most misses need no span at all
+    private final int[] mRowLeft;
+    private final int[] mRowRight;
+
+    private MaskSpans(int width, int height, int[] rowStart, int[] spans) {
+        this(width, 0, height, rowStart, spans);
+    }
+
+    private MaskSpans(int width, int top, int height, int[] rowStart, int[] spans) {
+        mWidth = width;
+        mTop = top;
+        mHeight = height;
+        mRowStart = rowStart;
+        mSpans = spans;
+        mRowLeft = new int[height];
+        mRowRight = new int[height];
+        for (int row = 0; row < height; row++) {
+            if (rowStart[row] == rowStart[row + 1]) {
+                mRowLeft[row] = Integer.MAX_VALUE;
+                mRowRight[row] = Integer.MIN_VALUE;
+            } else {
+                // spans are sorted and do not overlap
+                mRowLeft[row] = spans[rowStart[row]];
+                mRowRight[row] = spans[rowStart[row + 1] - 1];
+            }
+        }
+    }
+
+    /**
+     * Traces the mask drawable, which must already have its bounds set.
+     *
+     * @return the spans of the mask, or null if the mask has soft (partially
+     *         transparent) areas that a clip cannot reproduce
+     */
+    static MaskSpans trace(Drawable mask, int width, int height) {
+        return trace(mask, width, height, false);
+    }
+
+    /**
+     * Traces the drawable, which must already have its bounds set.
+     *
+     * @param threshold if true, soft areas are split at half alpha instead of
+     *                  making the trace fail
+     * @return the spans of the drawable, or null if it has soft areas and
+     *         <code>threshold</code> is false
+     */
+    static MaskSpans trace(Drawable mask, int width, int height, boolean threshold) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        if (mask.getOpacity() == PixelFormat.OPAQUE) {
+            return rect(width, height);
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+        mask.draw(new Canvas(bitmap));
+        int[] pixels = new int[width * height];
+        try {
+            bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        } finally {
+            bitmap.recycle();
+        }
+        return trace(pixels, width, height, threshold);
+    }
+
+    /**
+     * Traces ARGB pixels, stored row after row. Used by the traces of drawables
+     * and, without any framework class, by the JVM tests and benchmarks.
+     *
+     * @see #trace(Drawable, int, int, boolean)
+     */
+    static MaskSpans trace(int[] pixels, int width, int height, boolean threshold) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        int[] rowStart = new int[height + 1];
+        int[] spans = new int[height * 2];
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            rowStart[y] = count;
+            final int offset = y * width;
+            int start = -1;
+            for (int x = 0; x <= width; x++) {
+                boolean inside = false;
+                if (x < width) {
+                    int alpha = pixels[offset + x] >>> 24;
+                    if (!threshold && alpha > EDGE_TOLERANCE && alpha < 255 - EDGE_TOLERANCE) {
+                        return null;
+                    }
+                    inside = alpha >= 128;
+                }
+                if (inside && start < 0) {
+                    start = x;
+                } else if (!inside && start >= 0) {
+                    if (count + 2 > spans.length) {
+                        int[] grown = new int[spans.length * 2];
+                        System.arraycopy(spans, 0, grown, 0, count);
+                        spans = grown;
+                    }
+                    spans[count++] = start;
+                    spans[count++] = x;
+                    start = -1;
+                }
+            }
+        }
+        rowStart[height] = count;
+        int[] trimmed = new int[count];
+        System.arraycopy(spans, 0, trimmed, 0, count);
+        return new MaskSpans(width, height, rowStart, trimmed);
+    }
+
+    /**
+     * Finds a rectangle in which the drawable is fully opaque, for culling what
+     * it covers. The drawable must already have its bounds set. The search starts
+     * in the middle of the drawable's padded content area, takes the opaque run of
+     * that row and grows it up and down while the rows stay opaque across it, so
+     * for a thumb with rounded or shadowed edges it finds its solid body.
+     *
+     * @param out receives the rectangle, empty if the middle is not opaque
+     * @return false if no part of the drawable is known to be opaque
+     */
+    static boolean findOpaqueRect(Drawable drawable, int width, int height, Rect out) {
+        out.setEmpty();
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+        final int opacity = drawable.getOpacity();
+        if (opacity == PixelFormat.OPAQUE) {
+            out.set(0, 0, width, height);
+            return true;
+        }
+        if (opacity == PixelFormat.TRANSPARENT) {
+            return false;
+        }
+        Rect padding = new Rect();
+        drawable.getPadding(padding);
+        final int centerX = Math.max(0, Math.min(width - 1, (padding.left + width - padding.right) / 2));
+        final int centerY = Math.max(0, Math.min(height - 1, (padding.top + height - padding.bottom) / 2));
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+        drawable.draw(new Canvas(bitmap));
+        int[] row = new int[width];
+        try {
+            bitmap.getPixels(row, 0, width, 0, centerY, width, 1);
+            if (row[centerX] >>> 24 != 0xff) {
+                return false;
+            }
+            int left = centerX;
+            int right = centerX + 1;
+            while (left > 0 && row[left - 1] >>> 24 == 0xff) {
+                left--;
+            }
+            while (right < width && row[right] >>> 24 == 0xff) {
+                right++;
+            }
+            int top = centerY;
+            int bottom = centerY + 1;
+            while (top > 0 && isOpaqueRun(bitmap, row, top - 1, left, right)) {
+                top--;
+            }
+            while (bottom < height && isOpaqueRun(bitmap, row, bottom, left, right)) {
+                bottom++;
+            }
+            out.set(left, top, right, bottom);
+            return true;
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    private static boolean isOpaqueRun(Bitmap bitmap, int[] row, int y, int left, int right) {
+        bitmap.getPixels(row, 0, row.length, 0, y, row.length, 1);
+        for (int x = left; x < right; x++) {
+            if (row[x] >>> 24 != 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static MaskSpans rect(int width, int height) {
+        int[] rowStart = new int[height + 1];
+        int[] spans = new int[height * 2];
+        for (int y = 0; y < height; y++) {
+            rowStart[y] = y * 2;
+            spans[y * 2] = 0;
+            spans[y * 2 + 1] = width;
+        }
+        rowStart[height] = height * 2;
+        return new MaskSpans(width, height, rowStart, spans);
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * Grows the mask by <code>radius</code> pixels in every direction, a square
+     * around each pixel, so that touches within the radius of the mask can be
+     * tested with {@link #contains(int, int)}. Done once per traced size.
+     *
+     * @return the grown spans, with rows above and below the traced ones
+     */
+    MaskSpans grow(int radius) {
+        if (radius <= 0) {
+            return this;
+        }
+        final int rows = mHeight + 2 * radius;
+        // coverage counts of one grown row, index i is x = i - radius
+        final int[] coverage = new int[mWidth + 2 * radius + 1];
+        int[] rowStart = new int[rows + 1];
+        int[] spans = new int[rows * 2];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            rowStart[row] = count;
+            Arrays.fill(coverage, 0);
+            // the traced rows within the radius of this one
+            final int first = Math.max(0, row - 2 * radius);
+            final int last = Math.min(mHeight - 1, row);
+            for (int traced = first; traced <= last; traced++) {
+                for (int i = mRowStart[traced]; i < mRowStart[traced + 1]; i += 2) {
+                    coverage[mSpans[i]]++;
+                    coverage[mSpans[i + 1] + 2 * radius]--;
+                }
+            }
+            int depth = 0;
+            int start = 0;
+            for (int i = 0; i < coverage.length; i++) {
+                final int before = depth;
+                depth += coverage[i];
+                if (before == 0 && depth > 0) {
+                    start = i - radius;
+                } else if (before > 0 && depth == 0) {
+                    if (count + 2 > spans.length) {
+                        int[] grown = new int[spans.length * 2];
+                        System.arraycopy(spans, 0, grown, 0, count);
+                        spans = grown;
+                    }
+                    spans[count++] = start;
+                    spans[count++] = i - radius;
+                }
+            }
+        }
+        rowStart[rows] = count;
+        int[] trimmed = new int[count];
+        System.arraycopy(spans, 0, trimmed, 0, count);
+        return new MaskSpans(mWidth, mTop - radius, rows, rowStart, trimmed);
+    }
+
+    /**
+     * Tests whether a point is inside the mask. The row is found directly and
+     * rejected on its bounds before its few spans are looked at, so the cost
+     * does not depend on the size of the mask; see {@link #grow(int)} for a
+     * touch radius.
+     */
+    boolean contains(int x, int y) {
+        final int row = y - mTop;
+        if (row < 0 || row >= mHeight || x < mRowLeft[row] || x >= mRowRight[row]) {
+            return false;
+        }
+        for (int i = mRowStart[row]; i < mRowStart[row + 1]; i += 2) {
+            if (x < mSpans[i]) {
+                return false;
+            }
+            if (x < mSpans[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds a clip path for the mask. Consecutive rows with the same spans are
+     * merged, so a rounded rectangle needs only a few rectangles per corner.
+     */
+    Path toPath() {
+        Path path = new Path();
+        int y = 0;
+        while (y < mHeight) {
+            int end = y + 1;
+            while (end < mHeight && sameSpans(y, end)) {
+                end++;
+            }
+            for (int i = mRowStart[y]; i < mRowStart[y + 1]; i += 2) {
+                path.addRect(mSpans[i], mTop + y, mSpans[i + 1], mTop + end, Path.Direction.CW);
+            }
+            y = end;
+        }
+        return path;
+    }
+
+    private boolean sameSpans(int a, int b) {
+        int lengthA = mRowStart[a + 1] - mRowStart[a];
+        if (lengthA != mRowStart[b + 1] - mRowStart[b]) {
+            return false;
+        }
+        for (int i = 0; i < lengthA; i++) {
+            if (mSpans[mRowStart[a] + i] != mSpans[mRowStart[b] + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
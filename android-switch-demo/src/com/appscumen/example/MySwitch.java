@@ -15,6 +15,8 @@
  */
 package com.appscumen.example;
 
+import java.util.ArrayList;
+
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.content.res.Resources;
@@ -23,6 +25,8 @@ import android.graphics.Bitmap;
 import android.graphics.Bitmap.Config;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Picture;
 import android.graphics.PorterDuff.Mode;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
@@ -31,6 +35,10 @@ import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.graphics.drawable.InsetDrawable;
 import android.graphics.drawable.StateListDrawable;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.text.Layout;
 import android.text.StaticLayout;
 import android.text.TextPaint;
@@ -40,10 +48,9 @@ import android.util.Log;
 import android.util.StateSet;
 import android.view.Gravity;
 import android.view.MotionEvent;
-import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewGroup;
 import android.view.ViewConfiguration;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Interpolator;
 import android.widget.CompoundButton;
 
 /**
@@ -59,10 +66,9 @@ import android.widget.CompoundButton;
  * the related seSwitchTypeface() methods control that of the thumb.
  */
 public class MySwitch extends CompoundButton {
-    private static final int TOUCH_MODE_IDLE     = 0;
-    private static final int TOUCH_MODE_DOWN     = 1;
-    private static final int TOUCH_MODE_DRAGGING = 2;
     private static final String TAG              = "MySwitch";
+    // vertical switches shorter than two of these use the whole switch as the thumb target
+    private static final int MIN_TOUCH_TARGET_DIP = 48;
     
     // Enum for the "typeface" XML parameter.
     private static final int SANS       = 1;
@@ -71,17 +77,69 @@ public class MySwitch extends CompoundButton {
 
     private static final int VERTICAL   = 0;
    	private static final int HORIZONTAL = 1;
+
+    // Memory trim levels, same values as in android.content.ComponentCallbacks2 (API 14)
+    public static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+    public static final int TRIM_MEMORY_RUNNING_LOW      = 10;
+    public static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+    public static final int TRIM_MEMORY_UI_HIDDEN        = 20;
+    public static final int TRIM_MEMORY_BACKGROUND       = 40;
+    public static final int TRIM_MEMORY_MODERATE         = 60;
+    public static final int TRIM_MEMORY_COMPLETE         = 80;
+
+    // Power modes of the thumb animation, see setPowerMode(int)
+    /** Follow {@link #setDefaultPowerMode(int)}, the mode of a new switch. */
+    public static final int POWER_MODE_DEFAULT = -1;
+    /** Pick one of the modes below from the {@link PowerStateProvider}. */
+    public static final int POWER_MODE_AUTO    = 0;
+    /** Animate at the full frame rate. */
+    public static final int POWER_MODE_FULL    = 1;
+    /** Animate at a fifth of the frame rate, about 12 frames per second. */
+    public static final int POWER_MODE_REDUCED = 2;
+    /** Jump to the new state without animating. */
+    public static final int POWER_MODE_INSTANT = 3;
+    // frame interval of POWER_MODE_REDUCED, and of a frame at the full rate
+    private static final long LOW_POWER_FRAME_MILLIS = 80;
+    private static final long NOMINAL_FRAME_MILLIS = 16;
+    private static int sPowerMode = POWER_MODE_AUTO;
+    private static PowerStateProvider sPowerStateProvider;
+    private static long sSavedFrames;
+
+    // after a severe trim the buffers are not rebuilt for this long
+    static final long LOW_MEMORY_HOLD_OFF = 5000;
+    private static long sLowMemoryUntil;
+    private static volatile boolean sLazyResources = true;
+
+    private static final int TEXT_NORMAL = 0xff000000; //res.getColor(R.color.textNormal)
+    private static final int TEXT_INVERTED_NORMAL = 0xffffffff; //res.getColor(R.color.textInvertedNormal);
+    private static final int COLOR_ACCENT = 0xffffcc00; //res.getColor(R.color.colorAccent)
     
     private int mOrientation = HORIZONTAL;
     private OnChangeAttemptListener mOnChangeAttemptListener;
+    // kept to restore it after bindChecked, CompoundButton has no getter
+    private OnCheckedChangeListener mOnCheckedChangeListener;
+    // listeners added with addOn...Listener; null while CompoundButton's constructor runs
+    private final ChangeDispatcher mDispatcher = new ChangeDispatcher(this);
+    private final LayerPolicy mLayerPolicy = new LayerPolicy(this);
+    private OnAnimationStatsListener mOnAnimationStatsListener;
     private boolean mPushStyle;
     private boolean mTextOnThumb;
     private int mThumbExtraMovement;
     private Drawable mLeftBackground;
     private Drawable mRightBackground;
     private Drawable mMaskDrawable;
+    // resource ids of the drawables above, 0 if not loaded from a resource
+    private int mLeftBackgroundResId;
+    private int mRightBackgroundResId;
+    private int mMaskResId;
     private Drawable mThumbDrawable;
     private Drawable mTrackDrawable;
+    private int mThumbResId;
+    private int mTrackResId;
+    private int mDrawableOnResId;
+    private int mDrawableOffResId;
+    // false until loadResources() ran
+    private boolean mResourcesLoaded;
     private int mThumbTextPadding;
     private int mTrackTextPadding;
     private int mSwitchMinWidth;
@@ -98,12 +156,32 @@ public class MySwitch extends CompoundButton {
     private Bitmap maskBitmap;
     private Bitmap tempBitmap;
     private Canvas backingLayer;
-
-    private int mTouchMode;
+    private boolean mBuffersDropped;
+    private boolean mRebuildPosted;
+    // clip path standing in for maskBitmap when the mask has hard edges
+    private Path mMaskPath;
+    private int mMaskTracedWidth = -1;
+    private int mMaskTracedHeight = -1;
+    // maskBitmap, leftBitmap and rightBitmap come from SwitchBufferCache and must not be recycled
+    private boolean mBuffersShared;
+
+    // drawing of the idle switch, replayed until its visual state changes
+    private boolean mIdleCacheEnabled = true;
+    private boolean mIdleCacheValid;
+    private Picture mIdlePicture;
+    private float mIdleCacheThumbPosition;
+
+    // opaque body of the thumb, whatever lies under it is not drawn
+    private boolean mOverdrawCulling = true;
+    private final Rect mThumbOpaqueRect = new Rect();
+    private final Rect mThumbOpaqueLocal = new Rect();
+    private Drawable mThumbOpaqueDrawable;
+    private int mThumbOpaqueWidth = -1;
+    private int mThumbOpaqueHeight = -1;
+
+    private ThumbGesture mGesture;
+    private final ThumbPredictor mPredictor = new ThumbPredictor();
     private int mTouchSlop;
-    private float mTouchX;
-    private float mTouchY;
-    private VelocityTracker mVelocityTracker = VelocityTracker.obtain();
     private int mMinFlingVelocity;
 
     private float mThumbPosition = 0;
@@ -129,16 +207,34 @@ public class MySwitch extends CompoundButton {
     private final Rect mTrackPaddingRect = new Rect();
     private final Rect mThPad = new Rect();
 	private final Rect canvasClipBounds = new Rect();
+	private final Rect mVisibleRect = new Rect();
+
+    // touch target of the thumb, valid for mHitRectThumbPosition until the next layout
+    private final Rect mThumbHitRect = new Rect();
+    private final Rect mHitBoundsBackup = new Rect();
+    private float mHitRectThumbPosition;
+    private boolean mHitRectDirty = true;
+    private int mThumbDrawLeft;
+    private int mThumbDrawTop;
+    private int mMinTouchTarget;
+    private boolean mPreciseHitTesting;
+    private MaskSpans mHitSpans;
+    // records every touch event delivered to the switch, null unless tracing
+    private TouchTrace mTouchTrace;
 
 
   //Animation support
-  long  mStartTime;
-  float mStartPosition;
-  float mAnimDuration;
   float   mMaxAnimDuration = 250;
   boolean mRunning         = false;
   final int FRAME_DURATION = 10;
-  Interpolator mInterpolator;
+  // power mode of the running animation, see getEffectivePowerMode()
+  int mAnimPowerMode = POWER_MODE_FULL;
+  int mPowerMode = POWER_MODE_DEFAULT;
+  long mSavedFrames;
+  // velocity (pixels/ms) the next animation starts with, set when a drag is released
+  float mReleaseVelocity;
+  final ThumbMotion mMotion = new ThumbMotion();
+  final FrameStatsRecorder mFrameStats = new FrameStatsRecorder();
 
 
     private static final int[] CHECKED_STATE_SET = {
@@ -177,34 +273,39 @@ public class MySwitch extends CompoundButton {
     public MySwitch(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
 
-        //if (Build.VERSION.SDK_INT >= 11) {
-            //setLayerType(View.LAYER_TYPE_SOFTWARE, null);
-        //}
+        // the layer type follows the state of the switch, see updateLayerType()
         Resources res = getResources();
         float     density = res.getDisplayMetrics().scaledDensity;
 
-        int textNormal = 0xff000000; //res.getColor(R.color.textNormal)
-        int textInvertedNormal = 0xffffffff; //res.getColor(R.color.textInvertedNormal);
-        int colorAccent = 0xffffcc00; //res.getColor(R.color.colorAccent)
-
         mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
         mTextPaint.density = res.getDisplayMetrics().density;
-        mTextPaint.setShadowLayer(0.5f, 1.0f, 1.0f, textNormal);
+        mTextPaint.setShadowLayer(0.5f, 1.0f, 1.0f, TEXT_NORMAL);
         mTextPaint.setTextSize(16 * density);
-        mTextPaint.setColor(textInvertedNormal);
+        mTextPaint.setColor(TEXT_INVERTED_NORMAL);
 
         TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.MySwitch, defStyle, 0);
 
-        mLeftBackground = a.getDrawable(R.styleable.MySwitch_leftBackground);
-        mRightBackground = a.getDrawable(R.styleable.MySwitch_rightBackground);
+        // drawables that come from resources are loaded on the first measure, so
+        // switches below the fold do not slow down inflation, see loadResources()
+        final boolean lazy = sLazyResources;
+        mLeftBackgroundResId = a.getResourceId(R.styleable.MySwitch_leftBackground, 0);
+        mRightBackgroundResId = a.getResourceId(R.styleable.MySwitch_rightBackground, 0);
+        mThumbResId = a.getResourceId(R.styleable.MySwitch_thumb, 0);
+        mTrackResId = a.getResourceId(R.styleable.MySwitch_track, 0);
+        mDrawableOnResId = a.getResourceId(R.styleable.MySwitch_drawableOn, 0);
+        mDrawableOffResId = a.getResourceId(R.styleable.MySwitch_drawableOff, 0);
+        mMaskResId = a.getResourceId(R.styleable.MySwitch_backgroundMask, 0);
+        mLeftBackground = getDrawable(a, R.styleable.MySwitch_leftBackground, mLeftBackgroundResId, lazy);
+        mRightBackground = getDrawable(a, R.styleable.MySwitch_rightBackground, mRightBackgroundResId, lazy);
         mOrientation = a.getInteger(R.styleable.MySwitch_orientation, HORIZONTAL);
-        mThumbDrawable = a.getDrawable(R.styleable.MySwitch_thumb);
-        mTrackDrawable = a.getDrawable(R.styleable.MySwitch_track);
+        mThumbDrawable = getDrawable(a, R.styleable.MySwitch_thumb, mThumbResId, lazy);
+        mTrackDrawable = getDrawable(a, R.styleable.MySwitch_track, mTrackResId, lazy);
         mTextOn = a.getText(R.styleable.MySwitch_textOn);
         mTextOff = a.getText(R.styleable.MySwitch_textOff);
         //mShowText = a.getBoolean(com.android.internal.R.styleable.Switch_showText, true);
-        mDrawableOn = a.getDrawable(R.styleable.MySwitch_drawableOn);
-        mDrawableOff = a.getDrawable(R.styleable.MySwitch_drawableOff);
+        mDrawableOn = getDrawable(a, R.styleable.MySwitch_drawableOn, mDrawableOnResId, lazy);
+        mDrawableOff = getDrawable(a, R.styleable.MySwitch_drawableOff, mDrawableOffResId, lazy);
+        mMaskDrawable = getDrawable(a, R.styleable.MySwitch_backgroundMask, mMaskResId, lazy);
         mPushStyle = a.getBoolean(R.styleable.MySwitch_pushStyle, false);
 
         mTextOnThumb = a.getBoolean(R.styleable.MySwitch_textOnThumb, true);
@@ -216,18 +317,91 @@ public class MySwitch extends CompoundButton {
         mSwitchMinHeight = a.getDimensionPixelSize(R.styleable.MySwitch_switchMinHeight, 0);
         mSwitchPadding =  a.getDimensionPixelSize(R.styleable.MySwitch_switchPadding, 0);
 
+        final boolean hasLeftBackground = mLeftBackground != null || mLeftBackgroundResId != 0;
+        final boolean hasRightBackground = mRightBackground != null || mRightBackgroundResId != 0;
+        final boolean hasMask = mMaskDrawable != null || mMaskResId != 0;
+        
+		RuntimeException e = null;
+        if ((hasLeftBackground || hasRightBackground) && !hasMask) {
+			   e = new IllegalArgumentException(a.getPositionDescription()
+							+ " if left/right background is given, then a mask has to be there");
+        }
+
+        if ((hasLeftBackground ^ hasRightBackground) && !hasMask) {
+			   e = new IllegalArgumentException(a.getPositionDescription()
+							+ " left and right background both should be there. only one is not allowed ");
+        }
+        
+        if (mTextOnThumb && mPushStyle) {
+			   e = new IllegalArgumentException(a.getPositionDescription()
+							+ " Text On Thumb and Push Style are mutually exclusive. Only one can be present ");
+        }
+			
+        int appearance = a.getResourceId(R.styleable.MySwitch_switchTextAppearanceAttrib, 0);
+        if (appearance != 0) {
+            setSwitchTextAppearance(context, appearance);
+        }
+        a.recycle();
+		if (e != null) {
+			throw e;
+		}
+        ViewConfiguration config = ViewConfiguration.get(context);
+        mTouchSlop = config.getScaledTouchSlop();
+        mGesture = new ThumbGesture(mTouchSlop);
+        mMinTouchTarget = (int) (MIN_TOUCH_TARGET_DIP * res.getDisplayMetrics().density + 0.5f);
+        mMinFlingVelocity = config.getScaledMinimumFlingVelocity();
+
+        mMotion.setSettleDuration(mMaxAnimDuration);
+        if (!lazy) {
+            loadResources();
+        }
+        // Refresh display with current params
+        refreshDrawableState();
+        setChecked(isChecked());
+        this.setClickable(true);
+        SwitchInstances.add(this);
+    }
+
+    /**
+     * Reads a drawable attribute, unless it names a resource and loading is lazy.
+     * Colors and other inline values are always read right away.
+     */
+    private static Drawable getDrawable(TypedArray a, int index, int resId, boolean lazy) {
+        return lazy && resId != 0 ? null : a.getDrawable(index);
+    }
+
+    /**
+     * Loads the drawables the constructor left for later, builds the default thumb
+     * and track and reads their paddings. Runs once, before the first measure.
+     */
+    private void loadResources() {
+        if (mResourcesLoaded) {
+            return;
+        }
+        mResourcesLoaded = true;
+        Resources res = getResources();
+        float     density = res.getDisplayMetrics().scaledDensity;
+
+        mLeftBackground = loadDrawable(res, mLeftBackground, mLeftBackgroundResId);
+        mRightBackground = loadDrawable(res, mRightBackground, mRightBackgroundResId);
+        mMaskDrawable = loadDrawable(res, mMaskDrawable, mMaskResId);
+        mThumbDrawable = loadDrawable(res, mThumbDrawable, mThumbResId);
+        mTrackDrawable = loadDrawable(res, mTrackDrawable, mTrackResId);
+        mDrawableOn = loadDrawable(res, mDrawableOn, mDrawableOnResId);
+        mDrawableOff = loadDrawable(res, mDrawableOff, mDrawableOffResId);
+
         if (mThumbDrawable == null)
         {
             StateListDrawable back = new StateListDrawable();
             GradientDrawable backn = new GradientDrawable();
-            backn.setColor(colorAccent);
+            backn.setColor(COLOR_ACCENT);
             backn.setCornerRadius(12 * res.getDisplayMetrics().scaledDensity);
             GradientDrawable backu = new GradientDrawable();
-            backu.setColor(textNormal);
+            backu.setColor(TEXT_NORMAL);
             backu.setCornerRadius(12 * res.getDisplayMetrics().scaledDensity);
             backu.setAlpha(255);
             GradientDrawable backd = new GradientDrawable();
-            backd.setColor(colorAccent);
+            backd.setColor(COLOR_ACCENT);
             backd.setCornerRadius(12 * res.getDisplayMetrics().scaledDensity);
             backd.setAlpha(96);
             back.addState(new int[]{-android.R.attr.state_enabled}, backd);
@@ -240,11 +414,11 @@ public class MySwitch extends CompoundButton {
         {
             StateListDrawable back = new StateListDrawable();
             GradientDrawable trk = new GradientDrawable();
-            trk.setColor(colorAccent);
+            trk.setColor(COLOR_ACCENT);
             trk.setCornerRadius(10 * density);
             trk.setAlpha(128);
             GradientDrawable backu = new GradientDrawable();
-            backu.setColor(textNormal);
+            backu.setColor(TEXT_NORMAL);
             backu.setCornerRadius(12 * res.getDisplayMetrics().scaledDensity);
             backu.setAlpha(192);
             back.addState(new int[]{-android.R.attr.state_checked}, backu);
@@ -256,47 +430,32 @@ public class MySwitch extends CompoundButton {
         Log.d(TAG, "mTrackPaddingRect=" + mTrackPaddingRect);
         mThumbDrawable.getPadding(mThPad);
         Log.d(TAG, "mThPad=" + mThPad);
-        
-        mMaskDrawable = a.getDrawable(R.styleable.MySwitch_backgroundMask);
-        
-		RuntimeException e = null;
-        if ((mLeftBackground != null || mRightBackground != null) && mMaskDrawable == null) {
-			   e = new IllegalArgumentException(a.getPositionDescription()
-							+ " if left/right background is given, then a mask has to be there");
-        }
 
-        if (((mLeftBackground != null) ^ (mRightBackground != null)) && mMaskDrawable == null) {
-			   e = new IllegalArgumentException(a.getPositionDescription()
-							+ " left and right background both should be there. only one is not allowed ");
-        }
-        
-        if (mTextOnThumb && mPushStyle) {
-			   e = new IllegalArgumentException(a.getPositionDescription()
-							+ " Text On Thumb and Push Style are mutually exclusive. Only one can be present ");
-        }
-			
         xferPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         //xferPaint.setColor(Color.TRANSPARENT);
         xferPaint.setXfermode(new PorterDuffXfermode(Mode.DST_IN));
-        
-        
-        int appearance = a.getResourceId(R.styleable.MySwitch_switchTextAppearanceAttrib, 0);
-        if (appearance != 0) {
-            setSwitchTextAppearance(context, appearance);
-        }
-        a.recycle();
-		if (e != null) {
-			throw e;
-		}
-        ViewConfiguration config = ViewConfiguration.get(context);
-        mTouchSlop = config.getScaledTouchSlop();
-        mMinFlingVelocity = config.getScaledMinimumFlingVelocity();
 
-        mInterpolator = new DecelerateInterpolator();
-        // Refresh display with current params
-        refreshDrawableState();
-        setChecked(isChecked());
-        this.setClickable(true);
+        // the state was refreshed by the constructor, before the drawables existed
+        final int[] state = getDrawableState();
+        mThumbDrawable.setState(state);
+        mTrackDrawable.setState(state);
+    }
+
+    private static Drawable loadDrawable(Resources res, Drawable drawable, int resId) {
+        return drawable == null && resId != 0 ? res.getDrawable(resId) : drawable;
+    }
+
+    /**
+     * Chooses whether switches created from now on load their drawables while they
+     * are inflated, or on their first measure. Lazy by default; eager loading is
+     * there to compare the two, see SwitchStartupBenchmark in the tests.
+     */
+    public static void setLazyResourceLoading(boolean lazy) {
+        sLazyResources = lazy;
+    }
+
+    static boolean isLazyResourceLoading() {
+        return sLazyResources;
     }
 
     /**
@@ -334,6 +493,7 @@ public class MySwitch extends CompoundButton {
         setSwitchTypefaceByIndex(typefaceIndex, styleIndex);
 
         appearance.recycle();
+        invalidateIdleCache();
     }
 
     private void setSwitchTypefaceByIndex(int typefaceIndex, int styleIndex) {
@@ -395,6 +555,7 @@ public class MySwitch extends CompoundButton {
         if (mTextPaint.getTypeface() != tf) {
             mTextPaint.setTypeface(tf);
 
+            invalidateIdleCache();
             requestLayout();
             invalidate();
         }
@@ -457,8 +618,229 @@ public class MySwitch extends CompoundButton {
     public void setOnChangeAttemptListener(OnChangeAttemptListener listener) {
         mOnChangeAttemptListener = listener;
     }
+
+    @Override
+    public void setOnCheckedChangeListener(OnCheckedChangeListener listener) {
+        mOnCheckedChangeListener = listener;
+        super.setOnCheckedChangeListener(listener);
+    }
+
+    /**
+     * Adds a callback to be invoked when the checked state changes, next to the one
+     * set with {@link #setOnCheckedChangeListener(OnCheckedChangeListener)}. Added
+     * callbacks are subject to {@link #setChangeDebounce(long)},
+     * {@link #setChangeThrottle(long)} and {@link #setDeliverChangesWhenSettled(boolean)};
+     * the one set with the setter is always called right away.
+     */
+    public void addOnCheckedChangeListener(OnCheckedChangeListener listener) {
+        mDispatcher.addOnCheckedChangeListener(listener);
+    }
+
+    public void removeOnCheckedChangeListener(OnCheckedChangeListener listener) {
+        mDispatcher.removeOnCheckedChangeListener(listener);
+    }
+
+    /**
+     * Delivers the changes and change attempts that are still held back by the
+     * debounce, throttle or settle settings to the added listeners right away.
+     */
+    void flushChanges() {
+        mDispatcher.flush();
+    }
+
+    /**
+     * Adds a callback to be invoked when there is an attempt to change a fixed
+     * switch, timed like {@link #addOnCheckedChangeListener(OnCheckedChangeListener)}.
+     */
+    public void addOnChangeAttemptListener(OnChangeAttemptListener listener) {
+        mDispatcher.addOnChangeAttemptListener(listener);
+    }
+
+    public void removeOnChangeAttemptListener(OnChangeAttemptListener listener) {
+        mDispatcher.removeOnChangeAttemptListener(listener);
+    }
+
+    /**
+     * Delivers a change to the added listeners only once the switch did not change
+     * again for <code>millis</code> ms. 0, the default, delivers right away.
+     */
+    public void setChangeDebounce(long millis) {
+        mDispatcher.setDebounce(millis);
+    }
+
+    /**
+     * Delivers changes to the added listeners at most once every <code>millis</code>
+     * ms, with the latest state. 0, the default, does not throttle.
+     */
+    public void setChangeThrottle(long millis) {
+        mDispatcher.setThrottle(millis);
+    }
+
+    /**
+     * Holds changes back from the added listeners while the thumb is dragged or
+     * animating, and then delivers only the state it settled in.
+     */
+    public void setDeliverChangesWhenSettled(boolean settled) {
+        mDispatcher.setDeliverSettled(settled);
+    }
+
+    /**
+     * @return true while the thumb is dragged or animating
+     */
+    boolean isMoving() {
+        return mRunning || mGesture.isDragging();
+    }
+
+    private void dispatchChangeAttempt() {
+        if (mOnChangeAttemptListener != null) {
+            mOnChangeAttemptListener.onChangeAttempted(isChecked());
+        }
+        mDispatcher.changeAttempted();
+    }
     
     
+    /**
+     * Interface definition for a callback to be invoked with the frame timing
+     * of each thumb animation once it ends.
+     */
+    public static interface OnAnimationStatsListener {
+        /**
+         * Called on the UI thread when a thumb animation has ended.
+         *
+         * @param view  The switch that was animated.
+         * @param stats The frame timing of the animation.
+         */
+        void onAnimationStats(MySwitch view, AnimationFrameStats stats);
+    }
+
+    /**
+     * Register a callback to be invoked with the frame timing of every thumb animation.
+     * Timing is recorded only while a listener is set or the {@link FrameStatsRegistry}
+     * is enabled.
+     *
+     * @param listener the callback to call when an animation ends
+     */
+    public void setOnAnimationStatsListener(OnAnimationStatsListener listener) {
+        mOnAnimationStatsListener = listener;
+    }
+
+    /**
+     * Sets the interval, in milliseconds, a frame may take before it is counted
+     * as over the deadline in {@link AnimationFrameStats}. Defaults to 16. The
+     * frames of an animation in {@link #POWER_MODE_REDUCED} are planned
+     * further apart and may come that much later.
+     */
+    public void setFrameDeadline(long deadlineMillis) {
+        mFrameStats.setDeadline(deadlineMillis);
+    }
+
+    /**
+     * Interface definition for the power state that {@link #POWER_MODE_AUTO}
+     * picks the animation mode from. Set one with
+     * {@link MySwitch#setPowerStateProvider(PowerStateProvider)}, for example to
+     * force a state in a test.
+     */
+    public static interface PowerStateProvider {
+        int POWER_STATE_NORMAL = 0;
+        int POWER_STATE_LOW = 1;
+        int POWER_STATE_CRITICAL = 2;
+
+        /**
+         * Called on the UI thread whenever a thumb animation starts.
+         *
+         * @return one of the POWER_STATE_* constants
+         */
+        int getPowerState();
+    }
+
+    /**
+     * Sets how switches animate their thumb. Switches follow this unless they
+     * have a mode of their own, see {@link #setPowerMode(int)}. Defaults to
+     * {@link #POWER_MODE_AUTO}. Should be called on the UI thread.
+     *
+     * @param mode one of {@link #POWER_MODE_AUTO}, {@link #POWER_MODE_FULL},
+     *             {@link #POWER_MODE_REDUCED} and {@link #POWER_MODE_INSTANT}
+     */
+    public static void setDefaultPowerMode(int mode) {
+        if (mode < POWER_MODE_AUTO || mode > POWER_MODE_INSTANT) {
+            throw new IllegalArgumentException("power mode " + mode);
+        }
+        sPowerMode = mode;
+    }
+
+    public static int getDefaultPowerMode() {
+        return sPowerMode;
+    }
+
+    /**
+     * Sets the power state {@link #POWER_MODE_AUTO} follows, null for the state
+     * of the device: low at 15% battery or in battery saver, critical at 5%.
+     */
+    public static void setPowerStateProvider(PowerStateProvider provider) {
+        sPowerStateProvider = provider;
+    }
+
+    /**
+     * @return the number of animation frames all switches did not draw because of
+     *         their power mode
+     */
+    public static long getTotalSavedFrameCount() {
+        return sSavedFrames;
+    }
+
+    /**
+     * Sets how this switch animates its thumb, {@link #POWER_MODE_DEFAULT} to
+     * follow {@link #setDefaultPowerMode(int)}. Takes effect with the next
+     * animation.
+     */
+    public void setPowerMode(int mode) {
+        if (mode < POWER_MODE_DEFAULT || mode > POWER_MODE_INSTANT) {
+            throw new IllegalArgumentException("power mode " + mode);
+        }
+        mPowerMode = mode;
+    }
+
+    public int getPowerMode() {
+        return mPowerMode;
+    }
+
+    /**
+     * @return the number of animation frames this switch did not draw because of
+     *         its power mode
+     */
+    public long getSavedFrameCount() {
+        return mSavedFrames;
+    }
+
+    /**
+     * @return the mode the next animation runs in: {@link #POWER_MODE_FULL},
+     *         {@link #POWER_MODE_REDUCED} or {@link #POWER_MODE_INSTANT}
+     */
+    int getEffectivePowerMode() {
+        final int mode = mPowerMode != POWER_MODE_DEFAULT ? mPowerMode : sPowerMode;
+        if (mode != POWER_MODE_AUTO) {
+            return mode;
+        }
+        if (sPowerStateProvider == null) {
+            sPowerStateProvider = new DevicePowerState(getContext());
+        }
+        switch (sPowerStateProvider.getPowerState()) {
+            case PowerStateProvider.POWER_STATE_CRITICAL:
+                return POWER_MODE_INSTANT;
+            case PowerStateProvider.POWER_STATE_LOW:
+                return POWER_MODE_REDUCED;
+            default:
+                return POWER_MODE_FULL;
+        }
+    }
+
+    private void countSavedFrames(long frames) {
+        if (frames > 0) {
+            mSavedFrames += frames;
+            sSavedFrames += frames;
+        }
+    }
+
     /**
      * fixates the switch on one of the positions ON or OFF.
      * if the switch is fixated, then it cannot be switched to the other position
@@ -507,109 +889,216 @@ public class MySwitch extends CompoundButton {
      * @return true if (x, y) is within the target area of the switch thumb
      */
     private boolean hitThumb(float x, float y) {
-    	if (mOrientation == HORIZONTAL) {
-    		final int thumbTop = mSwitchTop - mTouchSlop;
-    		final int thumbLeft = mSwitchLeft + (int) (mThumbPosition + 0.5f) - mTouchSlop;
-    		final int thumbRight = thumbLeft + mThumbWidth + mTouchSlop;// + mThPad.left + mThPad.right
-    		final int thumbBottom = mSwitchBottom + mTouchSlop;
-    		return x > thumbLeft && x < thumbRight && y > thumbTop && y < thumbBottom;
-    	}
+        if (mHitRectDirty || mHitRectThumbPosition != mThumbPosition) {
+            updateThumbHitRect();
+        }
+        if (!mThumbHitRect.contains((int) x, (int) y)) {
+            return false;
+        }
+        if (!mPreciseHitTesting) {
+            return true;
+        }
+        MaskSpans spans = getHitSpans();
+        if (spans == null) {
+            return true;
+        }
+        if (mMaskDrawable != null) {
+            return spans.contains((int) x, (int) y);
+        }
+        return spans.contains((int) x - mThumbDrawLeft, (int) y - mThumbDrawTop);
+    }
 
-    	//if (mOrientation == VERTICAL)
-    	if (mSwitchHeight >150) {
-    	    final int thumbLeft = mSwitchLeft - mTouchSlop;
-    	    final int thumbTop = mSwitchTop + (int) (mThumbPosition + 0.5f) - mTouchSlop;
-    	    final int thumbBottom = thumbTop + mThumbHeight + mTouchSlop;// + mThPad.top + mThPad.bottom
-    	    final int thumbRight = mSwitchRight + mTouchSlop;
-    	    Log.d(TAG, "returning " +  (x > thumbLeft && x < thumbRight && y > thumbTop && y < thumbBottom));
-    	    return x > thumbLeft && x < thumbRight && y > thumbTop && y < thumbBottom;
-    	}
-    	else  {
-    	    return x > mSwitchLeft && x < mSwitchRight && y > mSwitchTop && y < mSwitchBottom;
-    	}
+    /**
+     * Recomputes the touch target of the thumb. Called lazily from {@link #hitThumb(float, float)}
+     * after a layout or once the thumb has moved.
+     */
+    private void updateThumbHitRect() {
+        final int thumbPos = (int) (mThumbPosition + 0.5f);
+        if (mOrientation == HORIZONTAL) {
+            final int thumbLeft = mSwitchLeft + thumbPos - mTouchSlop;
+            mThumbHitRect.set(thumbLeft, mSwitchTop - mTouchSlop,
+                    thumbLeft + mThumbWidth + mTouchSlop, mSwitchBottom + mTouchSlop);// + mThPad.left + mThPad.right
+            mThumbDrawLeft = mSwitchLeft + mTrackPaddingRect.left + thumbPos - mThumbExtraMovement;
+            mThumbDrawTop = mSwitchTop;
+        } else if (mSwitchHeight > 2 * mMinTouchTarget) {
+            final int thumbTop = mSwitchTop + thumbPos - mTouchSlop;
+            mThumbHitRect.set(mSwitchLeft - mTouchSlop, thumbTop,
+                    mSwitchRight + mTouchSlop, thumbTop + mThumbHeight + mTouchSlop);// + mThPad.top + mThPad.bottom
+            mThumbDrawLeft = mSwitchLeft;
+            mThumbDrawTop = mSwitchTop + mTrackPaddingRect.top + thumbPos - mThumbExtraMovement;
+        } else {
+            // too short to give the thumb its own touch target, the whole switch is the target
+            mThumbHitRect.set(mSwitchLeft, mSwitchTop, mSwitchRight, mSwitchBottom);
+            mThumbDrawLeft = mSwitchLeft;
+            mThumbDrawTop = mSwitchTop + mTrackPaddingRect.top + thumbPos - mThumbExtraMovement;
+        }
+        mHitRectThumbPosition = mThumbPosition;
+        mHitRectDirty = false;
+    }
+
+    /**
+     * Copies the touch target of the thumb at its current position, in view
+     * coordinates, e.g. to replay a {@link TouchTrace} onto the thumb.
+     */
+    void getThumbHitRect(Rect outRect) {
+        if (mHitRectDirty || mHitRectThumbPosition != mThumbPosition) {
+            updateThumbHitRect();
+        }
+        outRect.set(mThumbHitRect);
+    }
+
+    /**
+     * @return the shape touches are tested against in precise mode: the background
+     *         mask if there is one, else the thumb, traced and grown by the touch
+     *         slop once per size
+     */
+    private MaskSpans getHitSpans() {
+        if (mHitSpans != null) {
+            return mHitSpans;
+        }
+        if (mMaskDrawable != null) {
+            mHitSpans = MaskSpans.trace(mMaskDrawable, mSwitchRight - mSwitchLeft,
+                    mSwitchBottom - mSwitchTop, true);
+        } else {
+            final int width = mOrientation == HORIZONTAL ? mThumbWidth : mSwitchRight - mSwitchLeft;
+            final int height = mOrientation == HORIZONTAL ? mSwitchBottom - mSwitchTop : mThumbHeight;
+            mHitBoundsBackup.set(mThumbDrawable.getBounds());
+            mThumbDrawable.setBounds(0, 0, width, height);
+            mHitSpans = MaskSpans.trace(mThumbDrawable, width, height, true);
+            mThumbDrawable.setBounds(mHitBoundsBackup);
+        }
+        if (mHitSpans != null) {
+            mHitSpans = mHitSpans.grow(mTouchSlop);
+        }
+        return mHitSpans;
+    }
+
+    /**
+     * Enables testing touches against the shape of the track mask, or of the
+     * thumb drawable if there is no mask, instead of only the thumb's bounding box.
+     * Useful for irregular track shapes. Disabled by default.
+     */
+    public void setPreciseHitTesting(boolean precise) {
+        mPreciseHitTesting = precise;
+        if (!precise) {
+            mHitSpans = null;
+        }
+    }
+
+    public boolean isPreciseHitTesting() {
+        return mPreciseHitTesting;
+    }
+
+    /**
+     * Records every touch event this switch receives into <code>trace</code>, so a
+     * gesture can be saved and replayed later with {@link TouchTrace#replay}.
+     * Pass null to stop recording.
+     */
+    public void setTouchTrace(TouchTrace trace) {
+        mTouchTrace = trace;
+    }
+
+    public TouchTrace getTouchTrace() {
+        return mTouchTrace;
+    }
+
+    /**
+     * Draws the dragged thumb where the finger is expected to be when the frame
+     * is displayed, instead of where the last touch event put it. The position is
+     * extrapolated from the drag velocity, at most <code>maxLeadMillis</code>
+     * ahead of the last touch event, and eased back when a real event lands
+     * elsewhere. Pass 0 to disable, which is the default.
+     */
+    public void setDragPrediction(int maxLeadMillis) {
+        mPredictor.setMaxLead(maxLeadMillis);
+    }
+
+    public int getDragPrediction() {
+        return (int) mPredictor.getMaxLead();
+    }
+
+    /**
+     * Returns the mean distance, in pixels, between where a predicted frame drew
+     * the thumb and where the next touch event put it. Compare with
+     * {@link #getMeanDragLag()} to see what prediction gains.
+     */
+    public float getMeanPredictionError() {
+        return mPredictor.getMeanError();
+    }
+
+    /**
+     * Returns the mean distance, in pixels, the same frames would have been
+     * behind the finger without prediction.
+     */
+    public float getMeanDragLag() {
+        return mPredictor.getMeanLag();
+    }
+
+    public void resetPredictionStats() {
+        mPredictor.resetErrors();
     }
 
-    
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
     	//if (fixed) {
     		//Log.d(TAG, "the switch position is fixed to " + (onOrOff ? "On":"Off") + "position.");
     		//return true;
     	//}
-        mVelocityTracker.addMovement(ev);
+        if (mTouchTrace != null) {
+            mTouchTrace.record(ev);
+        }
         //Log.d(TAG, "onTouchEvent(ev="+ev.toString()+")");
-        //Log.d(TAG, "mTouchMode="+mTouchMode);
         final int action = ev.getActionMasked();
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
                 final float x = ev.getX();
                 final float y = ev.getY();
                 if (isEnabled() && hitThumb(x, y)) {
-                    mTouchMode = TOUCH_MODE_DOWN;
-                    mTouchX = x;
-                    mTouchY = y;
+                    mGesture.down(x, y, ev.getEventTime());
                 }
                 break;
             }
 
             case MotionEvent.ACTION_MOVE: {
-                switch (mTouchMode) {
-                    case TOUCH_MODE_IDLE:
-                        // Didn't target the thumb, treat normally.
-                        break;
-
-                    case TOUCH_MODE_DOWN: {
-                        final float x = ev.getX();
-                        final float y = ev.getY();
-                        if (Math.abs(x - mTouchX) > mTouchSlop / 2 ||
-                            Math.abs(y - mTouchY) > mTouchSlop / 2) {
-                            mTouchMode = TOUCH_MODE_DRAGGING;
-            			    if (getParent() != null) {
-            				    getParent().requestDisallowInterceptTouchEvent(true);
-            			    }
-                            mTouchX = x;
-                            mTouchY = y;
-                            return true;
-                        }
-                        break;
+                if (mGesture.getState() == ThumbGesture.STATE_IDLE) {
+                    // Didn't target the thumb, treat normally.
+                    break;
+                }
+                addGestureSamples(ev);
+                final float x = ev.getX();
+                final float y = ev.getY();
+                if (mGesture.startDragIfPastSlop(x, y)) {
+                    // the finger takes over from a running animation
+                    cancelAnimation();
+                    mPredictor.reset();
+                    mPredictor.onActualPosition(mThumbPosition);
+                    updateLayerType();
+                    if (getParent() != null) {
+                        getParent().requestDisallowInterceptTouchEvent(true);
                     }
-
-                    case TOUCH_MODE_DRAGGING: {
-                    	if (mOrientation == HORIZONTAL) {
-                            final float x = ev.getX();
-                            final float dx = x - mTouchX;
-                            float newPos = Math.max(0, Math.min(mThumbPosition + dx, getThumbScrollRange()));
-                            if (newPos != mThumbPosition) {
-                                mThumbPosition = newPos;
-                                mTouchX = x;
-                                invalidate();
-                            }
-                            return true;
-                    	}
-                    	if (mOrientation == VERTICAL) {
-                            final float y = ev.getY();
-                            final float dy = y - mTouchY;
-                            float newPos = Math.max(0, Math.min(mThumbPosition + dy, getThumbScrollRange()));
-                            if (newPos != mThumbPosition) {
-                                mThumbPosition = newPos;
-                                mTouchY = y;
-                                invalidate();
-                            }
-                            return true;
-                    	}
+                    return true;
+                }
+                if (mGesture.isDragging()) {
+                    float newPos = mGesture.drag(x, y, mThumbPosition, getThumbScrollRange(),
+                            mOrientation == HORIZONTAL);
+                    mPredictor.onActualPosition(newPos);
+                    if (newPos != mThumbPosition) {
+                        mThumbPosition = newPos;
+                        invalidate();
                     }
+                    return true;
                 }
                 break;
             }
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL: {
-                if (mTouchMode == TOUCH_MODE_DRAGGING) {
+                if (mGesture.isDragging()) {
+                    addGestureSamples(ev);
                     stopDrag(ev);
                     return true;
                 }
-                mTouchMode = TOUCH_MODE_IDLE;
-                mVelocityTracker.clear();
+                mGesture.reset();
                 break;
             }
         }
@@ -656,8 +1145,7 @@ public class MySwitch extends CompoundButton {
 				// Log.d(TAG, "after super.performClick().  Value="+isChecked());
 				return flag;
 			} else {
-				if (this.mOnChangeAttemptListener != null)
-					this.mOnChangeAttemptListener.onChangeAttempted(isChecked());
+				dispatchChangeAttempt();
 				return false;
 			}
 		} else {
@@ -684,8 +1172,49 @@ public class MySwitch extends CompoundButton {
     public CharSequence getText(boolean checkedState) {
         return checkedState ? mTextOn : mTextOff;
     }
+
+    /**
+     * Returns the memory held by this switch's offscreen bitmaps, text layouts
+     * and drawables.
+     */
+    public SwitchMemoryInfo getMemoryInfo() {
+        return new SwitchMemoryInfo(tempBitmap, maskBitmap, leftBitmap, rightBitmap, pushBitmap,
+                mOnLayout, mOffLayout, new Drawable[] {
+                    mThumbDrawable, mTrackDrawable, mDrawableOn, mDrawableOff,
+                    mLeftBackground, mRightBackground, mMaskDrawable });
+    }
+
+    /**
+     * Returns the memory held by all switches that are still alive, whether or
+     * not they are attached to a window. Should be called on the UI thread.
+     */
+    public static SwitchMemoryInfo getTotalMemoryInfo() {
+        SwitchMemoryInfo total = new SwitchMemoryInfo();
+        for (MySwitch view : SwitchInstances.snapshot()) {
+            total.add(view.getMemoryInfo());
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of switches that have not been garbage collected yet.
+     */
+    public static int getLiveInstanceCount() {
+        return SwitchInstances.count();
+    }
     
 	
+    /**
+     * Feeds the samples batched into an event, oldest first, to the gesture.
+     */
+    private void addGestureSamples(MotionEvent ev) {
+        final int history = ev.getHistorySize();
+        for (int h = 0; h < history; h++) {
+            mGesture.addSample(ev.getHistoricalEventTime(h), ev.getHistoricalX(h), ev.getHistoricalY(h));
+        }
+        mGesture.addSample(ev.getEventTime(), ev.getX(), ev.getY());
+    }
+
     private void cancelSuperTouch(MotionEvent ev) {
         MotionEvent cancel = MotionEvent.obtain(ev);
         cancel.setAction(MotionEvent.ACTION_CANCEL);
@@ -699,7 +1228,8 @@ public class MySwitch extends CompoundButton {
      * @param ev Event that triggered the end of drag mode - ACTION_UP or ACTION_CANCEL
      */
     private void stopDrag(MotionEvent ev) {
-        mTouchMode = TOUCH_MODE_IDLE;
+        final float velocity = mGesture.release(mOrientation == HORIZONTAL);
+        mPredictor.reset();
         // Up and not canceled, also checks the switch has not been disabled during the drag
         boolean commitChange = ev.getAction() == MotionEvent.ACTION_UP && isEnabled();
         
@@ -707,32 +1237,27 @@ public class MySwitch extends CompoundButton {
         commitChange = commitChange && (!fixed);
         cancelSuperTouch(ev);
 
+        mReleaseVelocity = velocity / 1000f;
+
         if (commitChange) {
             boolean newState;
-            mVelocityTracker.computeCurrentVelocity(1000);
-            if (mOrientation == HORIZONTAL) {
-                float xvel = mVelocityTracker.getXVelocity();
-                if (Math.abs(xvel) > mMinFlingVelocity) {
-                    newState = xvel > 0;
-                } else {
-                    newState = getTargetCheckedState();
-                }
+            if (Math.abs(velocity) > mMinFlingVelocity) {
+                newState = velocity > 0;
             } else {
-                float yvel = mVelocityTracker.getYVelocity();
-                if (Math.abs(yvel) > mMinFlingVelocity) {
-                    newState = yvel > 0;
-                } else {
-                    newState = getTargetCheckedState();
-                }
+                newState = getTargetCheckedState();
             }
  
             animateThumbToCheckedState(!mTextOnThumb ^ newState);
         } else {
             animateThumbToCheckedState(isChecked());
-            if (fixed) 
-			if (this.mOnChangeAttemptListener != null)
-				this.mOnChangeAttemptListener.onChangeAttempted(isChecked());
+            if (fixed)
+                dispatchChangeAttempt();
         }
+        if (!isMoving()) {
+            // released on its target or without animating, nothing else ends the drag
+            mDispatcher.onSettled();
+        }
+        updateLayerType();
     }
 
     private void animateThumbToCheckedState(boolean newCheckedState) {
@@ -746,18 +1271,138 @@ public class MySwitch extends CompoundButton {
         return mThumbPosition >= getThumbScrollRange() / 2;
     }
 
+    /**
+     * Moves the thumb to a fraction of its scroll range (0 = left/top end,
+     * 1 = right/bottom end) without animating and without changing the checked state.
+     * Used to render the switch at fixed thumb positions.
+     */
+    void setThumbFraction(float fraction) {
+        cancelAnimation();
+        mThumbPosition = Math.max(0, Math.min(1, fraction)) * getThumbScrollRange();
+        invalidate();
+    }
+
+    /**
+     * @return the thumb position as a fraction of its scroll range
+     */
+    float getThumbFraction() {
+        final int range = getThumbScrollRange();
+        return range == 0 ? 0 : mThumbPosition / range;
+    }
+
     @Override
     public void setChecked(boolean checked) {
         //Log.d(TAG, "setChecked("+checked+")");
+        final boolean wasChecked = isChecked();
         super.setChecked(checked);
-        float newPos = (checked ^ !mTextOnThumb) ? getThumbScrollRange() : 0;
-        if (mThumbPosition != newPos) {
-            startAnimation();
+        float newPos = getTargetThumbPosition();
+        if (mThumbPosition != newPos || mRunning) {
+            startAnimation(newPos);
+        }
+        if (wasChecked != checked && mDispatcher != null) {
+            mDispatcher.checkedChanged();
         }
         //mThumbPosition= (checked ^ !mTextOnThumb) ? getThumbScrollRange() : 0;
         //invalidate();
     }
 
+    /**
+     * Shows a checked state right away, for adapters that rebind recycled rows.
+     * Unlike {@link #setChecked(boolean) setChecked} the thumb does not animate,
+     * an animation or drag left over from the previous item is dropped, and the
+     * {@link OnCheckedChangeListener} is not called. Changes of the previous item
+     * that added listeners have not heard of yet are delivered first. The switch
+     * is only redrawn, never laid out again.
+     *
+     * @param checked the state of the item being bound
+     */
+    public void bindChecked(boolean checked) {
+        // changes still held back belong to the previous item
+        mDispatcher.flush();
+        if (mRunning) {
+            cancelAnimation();
+        }
+        mGesture.reset();
+        mPredictor.reset();
+        mReleaseVelocity = 0;
+        if (isChecked() != checked) {
+            super.setOnCheckedChangeListener(null);
+            try {
+                super.setChecked(checked);
+            } finally {
+                super.setOnCheckedChangeListener(mOnCheckedChangeListener);
+            }
+        }
+        float newPos = getTargetThumbPosition();
+        if (mThumbPosition != newPos) {
+            mThumbPosition = newPos;
+            invalidate();
+        }
+        mDispatcher.reset();
+    }
+
+    @Override
+    public Parcelable onSaveInstanceState() {
+        SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.flags = (isChecked() ? SavedState.CHECKED : 0)
+                | (fixed ? SavedState.FIXED : 0)
+                | (onOrOff ? SavedState.FIXED_ON : 0)
+                | (clickDisabled ? SavedState.CLICK_DISABLED : 0);
+        return ss;
+    }
+
+    @Override
+    public void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        fixed = (ss.flags & SavedState.FIXED) != 0;
+        onOrOff = (ss.flags & SavedState.FIXED_ON) != 0;
+        clickDisabled = (ss.flags & SavedState.CLICK_DISABLED) != 0;
+        // show the restored state as it was instead of animating to it
+        bindChecked((ss.flags & SavedState.CHECKED) != 0);
+    }
+
+    /**
+     * The state of the switch, packed into one int of flag bits.
+     */
+    static class SavedState extends BaseSavedState {
+        static final int CHECKED        = 1;
+        static final int FIXED          = 1 << 1;
+        static final int FIXED_ON       = 1 << 2;
+        static final int CLICK_DISABLED = 1 << 3;
+
+        int flags;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            flags = in.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int parcelFlags) {
+            super.writeToParcel(out, parcelFlags);
+            out.writeInt(flags);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
     /*
     protected void onLayout_orig(boolean changed, int left, int top, int right, int bottom) {
 		//Log.d(TAG, "left=" + left + ",top="+top+",right="+right+",bottom="+bottom);
@@ -797,69 +1442,110 @@ public class MySwitch extends CompoundButton {
     }
     */
 
-    private float getThumbPosition() {
-        float sr = getThumbScrollRange();
-        float chk = (isChecked() ^ !mTextOnThumb) ? sr : 0;
-        float nchk = sr - chk;
-        return (mThumbPosition - nchk) / (chk - nchk);
-        //mThumbPosition= (isChecked() ^ !mTextOnThumb) ? getThumbScrollRange() : 0;
+    /**
+     * @return the thumb position, in pixels, for the current checked state
+     */
+    private float getTargetThumbPosition() {
+        return (isChecked() ^ !mTextOnThumb) ? getThumbScrollRange() : 0;
     }
 
-    private void setThumbPosition(float pos) {
-        float sr = 0;
-
-        //need to evaluate this once
-        if (sr == 0)
-            sr = getThumbScrollRange();
-
-        float chk = (isChecked() ^ !mTextOnThumb) ? sr : 0;
-        float nchk = sr - chk;
-        mThumbPosition = nchk + (chk - nchk) * pos;
+    private void startAnimation(float targetPos) {
+        final boolean visible = getHandler() != null && isOnScreen();
+        if (visible && !mRunning) {
+            mAnimPowerMode = getEffectivePowerMode();
+        }
+        if (visible && (mRunning || mAnimPowerMode != POWER_MODE_INSTANT)) {
+            long now = SystemClock.uptimeMillis();
+            if (mRunning) {
+                //keep the current position and velocity, only the target moves
+                mMotion.retarget(targetPos, now);
+                if (mFrameStats.isActive()) {
+                    mFrameStats.replan(now, mMotion.estimateSettleTime());
+                }
+            } else {
+                mMotion.start(mThumbPosition, mReleaseVelocity, targetPos, now);
+                mRunning = true;
+                if (mOnAnimationStatsListener != null || FrameStatsRegistry.isEnabled()) {
+                    mFrameStats.begin(now, mMotion.estimateSettleTime(),
+                            mAnimPowerMode == POWER_MODE_REDUCED ? LOW_POWER_FRAME_MILLIS : 0);
+                }
+                getHandler().post(mUpdater);
+            }
+        } else {
+            if (visible) {
+                // an instant transition, count the frames the animation would have drawn
+                mMotion.start(mThumbPosition, mReleaseVelocity, targetPos, SystemClock.uptimeMillis());
+                countSavedFrames(mMotion.estimateSettleTime() / NOMINAL_FRAME_MILLIS);
+                mMotion.cancel();
+            }
+            // nobody would see the frames, show the end state right away
+            if (mRunning) {
+                endAnimation(true);
+            }
+            mThumbPosition = targetPos;
+        }
+        mReleaseVelocity = 0;
+        updateLayerType();
         invalidate();
     }
 
-    private void resetAnimation() {
-        mStartTime = System.currentTimeMillis();
-        mStartPosition = getThumbPosition();
-        mAnimDuration = (int) (mMaxAnimDuration * (1f - mStartPosition));
+    private void stopAnimation() {
+        endAnimation(false);
+        mThumbPosition = getTargetThumbPosition();
+        invalidate();
     }
 
-    private void startAnimation() {
-        if (getHandler() != null) {
-            resetAnimation();
-            mRunning = true;
-            //getHandler().postDelayed(mUpdater, FRAME_DURATION);
-            getHandler().post(mUpdater);
-        } else {
-            setThumbPosition(1);
-        }
-        invalidate();
+    /**
+     * Stops the animation and leaves the thumb where it currently is.
+     */
+    private void cancelAnimation() {
+        endAnimation(mRunning);
     }
 
-    private void stopAnimation() {
+    private void endAnimation(boolean cancelled) {
         mRunning = false;
-        setThumbPosition(1);
+        mMotion.cancel();
         if (getHandler() != null) {
             getHandler().removeCallbacks(mUpdater);
         }
-        invalidate();
+        AnimationFrameStats stats = mFrameStats.end(SystemClock.uptimeMillis(), cancelled);
+        if (stats != null) {
+            if (FrameStatsRegistry.isEnabled()) {
+                FrameStatsRegistry.record(stats);
+            }
+            if (mOnAnimationStatsListener != null) {
+                mOnAnimationStatsListener.onAnimationStats(this, stats);
+            }
+        }
+        mDispatcher.onSettled();
+        updateLayerType();
     }
 
     private final Runnable mUpdater = new Runnable() {
         @Override
         public void run() {
-            long  curTime  = System.currentTimeMillis();
-            float progress = Math.min(1f, (float) (curTime - mStartTime) / mAnimDuration);
-            float value    = mInterpolator.getInterpolation(progress);
-
-            setThumbPosition(mStartPosition * (1 - value) + value);
+            long now = SystemClock.uptimeMillis();
+            mFrameStats.frame(now);
+            boolean moving = mMotion.evaluate(now);
+            // a fast fling may carry the spring past the ends of the track
+            mThumbPosition = Math.max(0, Math.min(mMotion.getPosition(), getThumbScrollRange()));
+            invalidate();
 
-            if (progress == 1f) {
+            if (!moving) {
                 stopAnimation();
             } else if (mRunning) {
-                if (getHandler() != null) {
-                    //getHandler().postDelayed(mUpdater, FRAME_DURATION);
-                    getHandler().post(mUpdater);
+                if (!isOnScreen()) {
+                    // scrolled out of view, see skipAnimation()
+                    skipAnimation();
+                } else if (getHandler() != null) {
+                    if (mAnimPowerMode == POWER_MODE_REDUCED) {
+                        // the motion is evaluated by time, so the frames in between are skipped
+                        getHandler().postDelayed(mUpdater, LOW_POWER_FRAME_MILLIS);
+                        countSavedFrames(LOW_POWER_FRAME_MILLIS / NOMINAL_FRAME_MILLIS - 1);
+                    } else {
+                        //getHandler().postDelayed(mUpdater, FRAME_DURATION);
+                        getHandler().post(mUpdater);
+                    }
                 } else {
                     stopAnimation();
                 }
@@ -867,8 +1553,57 @@ public class MySwitch extends CompoundButton {
         }
     };
 
+    /**
+     * Ends a running animation at its target without drawing the frames in
+     * between, for a switch that is no longer visible. Nothing is invalidated:
+     * the switch draws the end state the next time it is shown.
+     */
+    private void skipAnimation() {
+        if (mRunning) {
+            endAnimation(true);
+            mThumbPosition = getTargetThumbPosition();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateLayerType();
+        if (mBuffersDropped) {
+            scheduleBufferRebuild();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        skipAnimation();
+        mDispatcher.flush();
+        // rebuilt when attached again
+        removeCallbacks(mRebuildBuffers);
+        mRebuildPosted = false;
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility != VISIBLE) {
+            skipAnimation();
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // called for this view and for every hidden or shown ancestor
+        if (visibility != VISIBLE) {
+            skipAnimation();
+        }
+    }
+
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        loadResources();
         final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
         final int heightMode = MeasureSpec.getMode(heightMeasureSpec);
         int widthSize = MeasureSpec.getSize(widthMeasureSpec);
@@ -1009,6 +1744,7 @@ public class MySwitch extends CompoundButton {
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
 		Log.d(TAG, "onLayout()-left=" + left + ",top="+top+",right="+right+",bottom="+bottom);
         super.onLayout(changed, left, top, right, bottom);
+        loadResources();
         
 
         int switchTop = 0;
@@ -1054,6 +1790,9 @@ public class MySwitch extends CompoundButton {
         Log.d(TAG, "mSwitchTop="+mSwitchTop+" mSwitchBottom="+mSwitchBottom);
         */
         
+        mHitRectDirty = true;
+        mHitSpans = null;
+
         //now that the layout is known, prepare the drawables
         mTrackDrawable.setBounds(mSwitchLeft, mSwitchTop, mSwitchRight, mSwitchBottom);
         if (mDrawableOn != null)
@@ -1065,49 +1804,95 @@ public class MySwitch extends CompoundButton {
         if (mRightBackground != null)
             mRightBackground.setBounds(mSwitchLeft, mSwitchTop, mSwitchRight, mSwitchBottom);
         
-        if (mMaskDrawable != null) {
-            tempBitmap = Bitmap.createBitmap(mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop,  Config.ARGB_8888);
-            backingLayer = new Canvas(tempBitmap);
-            mMaskDrawable.setBounds(mSwitchLeft, mSwitchTop, mSwitchRight, mSwitchBottom);
-            //Log.d(TAG,"bitmap width="+tempBitmap.getWidth()+" bitmap.height="+tempBitmap.getHeight());
-            //Log.d(TAG,"bitmap 0,0="+String.format("%x", (tempBitmap.getPixel(0,0)))+" bitmap 40,40="+String.format("%x", (tempBitmap.getPixel(40,40))));
-            //Bitmap maskBitmap = Bitmap.createBitmap(mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop,  Config.ARGB_8888);
-            //Canvas maskLayer = new Canvas(maskBitmap);
-            mMaskDrawable.draw(backingLayer);
-            //Log.d(TAG,"mask width="+maskBitmap.getWidth()+" mask.height="+maskBitmap.getHeight());
-            //Log.d(TAG,"mask 0,0="+String.format("%x", (maskBitmap.getPixel(0,0)))+" mask 40,40="+String.format("%x", (maskBitmap.getPixel(40,40))));
-
-            maskBitmap = Bitmap.createBitmap(mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop,  Config.ARGB_8888);
-            int width = tempBitmap.getWidth(),  height = tempBitmap.getHeight();
-            for (int x = 0; x < width; x++) {
-            	for (int y = 0; y < height; y++) {
-            		maskBitmap.setPixel(x, y, (tempBitmap.getPixel(x, y) & 0xFF000000));
-            	}
-            }
+        traceThumbOpaqueRect();
+        prepareBuffers();
+        updateLayerType();
+    }
 
-            //This should work. But does not work on any of the devices I have Nexus 4, Nexus7, Nexus10
-            //maskBitmap = tempBitmap.extractAlpha();
+    /**
+     * Checks whether the mask can be applied as a clip path. The mask is traced
+     * again only when the switch size changes.
+     */
+    private void traceMask() {
+        final int width = mSwitchRight - mSwitchLeft;
+        final int height = mSwitchBottom - mSwitchTop;
+        if (width == mMaskTracedWidth && height == mMaskTracedHeight) {
+            return;
+        }
+        mMaskTracedWidth = width;
+        mMaskTracedHeight = height;
+        MaskSpans spans = MaskSpans.trace(mMaskDrawable, width, height);
+        mMaskPath = spans != null ? spans.toPath() : null;
+    }
+
+    /**
+     * Clips to the background mask, or to the track bounds if there is no mask path.
+     */
+    private void clipToMask(Canvas canvas) {
+        if (mMaskPath != null) {
+            canvas.clipPath(mMaskPath);
+        } else {
+            canvas.clipRect(mSwitchLeft, mSwitchTop, mSwitchRight, mSwitchBottom);
+        }
+    }
 
-            //Log.d(TAG,"mask 0,0="+String.format("%x", (maskBitmap.getPixel(0,0)))+" mask 40,40="+String.format("%x", (maskBitmap.getPixel(40,40))));
+    /**
+     * @return the width of the sliding content of a push style switch
+     */
+    private int getPushWidth() {
+        if (mOrientation == VERTICAL) {
+            return mSwitchRight - mSwitchLeft;
+        }
+        final int maxTextWidth = Math.max(mOnLayout.getWidth(), mOffLayout.getWidth());
+        return maxTextWidth * 2 +
+        		mTrackPaddingRect.left + mTrackPaddingRect.right +
+        		mThumbWidth + mTrackTextPadding * 4 ;
+    }
 
-            if (mLeftBackground != null) {
-                mLeftBackground.draw(backingLayer);
-                //leftBitmap = Bitmap.createBitmap(mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop,  Config.ARGB_8888);
-                //Canvas backingLayer2 = new Canvas(leftBitmap);
-                //backingLayer2.drawBitmap(tempBitmap, 0, 0, null);
-                //backingLayer2.drawBitmap(maskBitmap, 0, 0, xferPaint);
-                backingLayer.drawBitmap(maskBitmap, 0, 0, xferPaint);
-                leftBitmap = tempBitmap.copy(tempBitmap.getConfig(), true);
+    /**
+     * @return the height of the sliding content of a push style switch
+     */
+    private int getPushHeight() {
+        if (mOrientation == HORIZONTAL) {
+            return mSwitchBottom - mSwitchTop;
+        }
+        final int maxTextHeight = Math.max(mOnLayout.getHeight(), mOffLayout.getHeight());
+        return mTrackPaddingRect.top +
+        		mTrackTextPadding +
+        		maxTextHeight +
+        		mTrackTextPadding +
+        		mThumbHeight +
+        		mTrackTextPadding +
+        		maxTextHeight +
+        		mTrackTextPadding +
+        		mTrackPaddingRect.bottom ;
+    }
+
+    /**
+     * Renders the offscreen bitmaps used for the masked backgrounds and the push style.
+     * Needs the switch bounds from {@link #onLayout(boolean, int, int, int, int)}.
+     * No bitmaps are needed if the mask has hard edges; it is then applied as a clip path.
+     */
+    private void prepareBuffers() {
+        releaseBuffers();
+        mBuffersDropped = false;
+        if (mMaskDrawable != null) {
+            mMaskDrawable.setBounds(mSwitchLeft, mSwitchTop, mSwitchRight, mSwitchBottom);
+            traceMask();
+            if (mMaskPath != null) {
+                return;
             }
-        
-            if (mRightBackground != null) {
-                mRightBackground.draw(backingLayer);
-                //rightBitmap = Bitmap.createBitmap(mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop,  Config.ARGB_8888);
-                //Canvas backingLayer3 = new Canvas(rightBitmap);
-                //backingLayer3.drawBitmap(tempBitmap, 0, 0, null);
-                //backingLayer3.drawBitmap(maskBitmap, 0, 0, xferPaint);
-                backingLayer.drawBitmap(maskBitmap, 0, 0, xferPaint);
-                rightBitmap = tempBitmap.copy(tempBitmap.getConfig(), true);
+            tempBitmap = Bitmap.createBitmap(mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop,  Config.ARGB_8888);
+            backingLayer = new Canvas(tempBitmap);
+            SwitchBufferCache.Spec spec = getBufferSpec();
+            if (spec != null) {
+                // shared with other switches of the same style and size, never recycled here
+                setSharedBuffers(SwitchBufferCache.obtain(getContext(), spec));
+            } else {
+                Bitmap[] buffers = SwitchBufferCache.render(mMaskDrawable, mLeftBackground, mRightBackground,
+                        mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop, mSwitchLeft, mSwitchTop);
+                setSharedBuffers(buffers);
+                mBuffersShared = false;
             }
         }
         if (mPushStyle) {
@@ -1118,24 +1903,8 @@ public class MySwitch extends CompoundButton {
             final int switchVerticalMid = (switchInnerTop + switchInnerBottom) / 2;
             final int maxTextWidth = Math.max(mOnLayout.getWidth(), mOffLayout.getWidth());
             final int maxTextHeight = Math.max(mOnLayout.getHeight(), mOffLayout.getHeight());
-            int width = maxTextWidth * 2 +
-            		    mTrackPaddingRect.left + mTrackPaddingRect.right +
-            		    mThumbWidth + mTrackTextPadding * 4 ;
-            int height = mSwitchBottom - mSwitchTop;
-            
-            if (mOrientation == VERTICAL) {
-                height =
-            		    mTrackPaddingRect.top +
-            		    mTrackTextPadding +
-                		maxTextHeight +
-            		    mTrackTextPadding +
-            		    mThumbHeight +
-            		    mTrackTextPadding +
-                		maxTextHeight +
-            		    mTrackTextPadding +
-            		    mTrackPaddingRect.bottom ;
-                width = mSwitchRight - mSwitchLeft;
-            }
+            final int width = getPushWidth();
+            final int height = getPushHeight();
             
             Log.d(TAG, "pushBitmap width="+width+" height="+height);
             pushBitmap = Bitmap.createBitmap(width, height,  Config.ARGB_8888);
@@ -1218,6 +1987,228 @@ public class MySwitch extends CompoundButton {
     // Draw the switch
 	@Override
     protected void onDraw(Canvas canvas) {
+        if (mBuffersDropped) {
+            // drawn without the bitmaps this frame, they are rendered outside of the draw
+            scheduleBufferRebuild();
+        }
+        // a hardware canvas keeps its own display list of the idle switch, and
+        // before API 23 it cannot draw a Picture
+        if (mIdleCacheEnabled && isIdle() && canCacheIdle() && !LayerPolicy.isHardwareAccelerated(canvas)) {
+            drawIdle(canvas);
+        } else if (mPredictor.isEnabled() && mGesture.isDragging()) {
+            drawPredicted(canvas);
+        } else {
+            drawSwitch(canvas);
+        }
+    }
+
+    /**
+     * Draws the dragged switch with the thumb at its predicted position.
+     */
+    private void drawPredicted(Canvas canvas) {
+        final boolean horizontal = mOrientation == HORIZONTAL;
+        final long now = SystemClock.uptimeMillis();
+        final float actual = mThumbPosition;
+        // drawSwitch reads mThumbPosition throughout, so the prediction is swapped in for the frame
+        mThumbPosition = mPredictor.predict(actual, mGesture.getVelocity(horizontal, now),
+                mGesture.getLastSampleTime(), now, getThumbScrollRange());
+        try {
+            drawSwitch(canvas);
+        } finally {
+            mThumbPosition = actual;
+        }
+        if (mPredictor.isSettling()) {
+            // keep easing while the finger rests between events
+            invalidate();
+        }
+    }
+
+    /**
+     * @return true if the thumb is at rest in its checked position
+     */
+    private boolean isIdle() {
+        return mGesture.getState() == ThumbGesture.STATE_IDLE && !mRunning && mThumbPosition == getTargetThumbPosition();
+    }
+
+    /**
+     * Push style switches with offscreen buffers reuse tempBitmap twice per frame,
+     * which a Picture cannot replay; they already draw an idle frame from two
+     * bitmap copies, and a snapshot bitmap would cost as much memory as tempBitmap
+     * again, so they are not cached.
+     *
+     * @return true if the idle switch can be recorded into a Picture
+     */
+    private boolean canCacheIdle() {
+        return !(mPushStyle && tempBitmap != null);
+    }
+
+    /**
+     * Replays the recorded drawing of the idle switch, recording it first if the
+     * visual state changed since.
+     */
+    private void drawIdle(Canvas canvas) {
+        final int width = getWidth();
+        final int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            drawSwitch(canvas);
+            return;
+        }
+        if (!mIdleCacheValid || mIdleCacheThumbPosition != mThumbPosition) {
+            releaseIdleCache();
+            mIdlePicture = new Picture();
+            drawSwitch(mIdlePicture.beginRecording(width, height));
+            mIdlePicture.endRecording();
+            mIdleCacheThumbPosition = mThumbPosition;
+            mIdleCacheValid = true;
+        }
+        canvas.drawPicture(mIdlePicture);
+    }
+
+    /**
+     * Enables or disables replaying a recorded drawing while the switch is idle.
+     * Enabled by default.
+     */
+    public void setIdleCacheEnabled(boolean enabled) {
+        mIdleCacheEnabled = enabled;
+        if (!enabled) {
+            releaseIdleCache();
+        }
+        invalidate();
+    }
+
+    public boolean isIdleCacheEnabled() {
+        return mIdleCacheEnabled;
+    }
+
+    private void invalidateIdleCache() {
+        mIdleCacheValid = false;
+    }
+
+    /**
+     * Enables or disables skipping the parts of the backgrounds and labels that
+     * the opaque body of the thumb hides. The opaque body is found from the thumb
+     * drawable's opacity and padding once per thumb size and state. Only applies
+     * to switches that are not push style. Enabled by default.
+     */
+    public void setOverdrawCulling(boolean culling) {
+        mOverdrawCulling = culling;
+        traceThumbOpaqueRect();
+        invalidateIdleCache();
+        invalidate();
+    }
+
+    public boolean isOverdrawCulling() {
+        return mOverdrawCulling;
+    }
+
+    /**
+     * Enables or disables choosing the layer type from the state of the switch
+     * on API 11 and later, see {@link LayerPolicy}. Enabled by default, but a
+     * layer type set with <code>android:layerType</code> or
+     * <code>setLayerType</code> is kept and turns it off. Enabling it
+     * again takes over whatever layer type the switch has. Does nothing before
+     * API 11.
+     */
+    public void setAutoLayerType(boolean auto) {
+        mLayerPolicy.setEnabled(auto);
+        updateLayerType();
+    }
+
+    public boolean isAutoLayerType() {
+        return mLayerPolicy.isEnabled();
+    }
+
+    /**
+     * Gives the switch the layer type for its state: idle, or dragged or
+     * animating. Called whenever one of them, or what the switch draws with,
+     * changes, never while drawing.
+     */
+    private void updateLayerType() {
+        // null while the CompoundButton constructor runs
+        if (!LayerPolicy.isSupported() || mLayerPolicy == null || mGesture == null) {
+            return;
+        }
+        // push style switches that may rebuild their buffers on the next draw
+        // count as having them
+        final boolean reusesTempBitmap = mPushStyle && (tempBitmap != null || mBuffersDropped);
+        final boolean clipsToPath = mMaskPath != null
+                && LayerPolicy.isClipPathSoftwareOnly(Build.VERSION.SDK_INT);
+        mLayerPolicy.update(reusesTempBitmap || clipsToPath, isMoving());
+    }
+
+    /**
+     * Traces the opaque body of the thumb for the laid out thumb size and the
+     * current state drawable of the thumb. Called from layout and from state
+     * changes, never while drawing, since tracing renders the thumb into a
+     * bitmap.
+     */
+    private void traceThumbOpaqueRect() {
+        if (!mOverdrawCulling || mThumbDrawable == null || mSwitchRight <= mSwitchLeft) {
+            return;
+        }
+        final int width = mOrientation == VERTICAL ? mSwitchRight - mSwitchLeft : mThumbWidth;
+        final int height = mOrientation == VERTICAL ? mThumbHeight : mSwitchBottom - mSwitchTop;
+        final Drawable current = mThumbDrawable.getCurrent();
+        if (width == mThumbOpaqueWidth && height == mThumbOpaqueHeight && current == mThumbOpaqueDrawable) {
+            return;
+        }
+        mHitBoundsBackup.set(mThumbDrawable.getBounds());
+        mThumbDrawable.setBounds(0, 0, width, height);
+        MaskSpans.findOpaqueRect(mThumbDrawable, width, height, mThumbOpaqueLocal);
+        mThumbDrawable.setBounds(mHitBoundsBackup);
+        mThumbOpaqueWidth = width;
+        mThumbOpaqueHeight = height;
+        mThumbOpaqueDrawable = current;
+    }
+
+    /**
+     * Places the traced opaque body of the thumb, for a thumb drawn at the given
+     * bounds, in mThumbOpaqueRect. A thumb whose size or state drawable differs
+     * from the traced one, for example one that changed by itself, is drawn
+     * without culling until it is traced again.
+     *
+     * @return false if culling is off or no part of the thumb is known to be opaque
+     */
+    private boolean updateThumbOpaqueRect(int left, int top, int right, int bottom) {
+        mThumbOpaqueRect.setEmpty();
+        if (!mOverdrawCulling || mThumbOpaqueLocal.isEmpty()
+                || right - left != mThumbOpaqueWidth || bottom - top != mThumbOpaqueHeight
+                || mThumbDrawable.getCurrent() != mThumbOpaqueDrawable) {
+            return false;
+        }
+        mThumbOpaqueRect.set(mThumbOpaqueLocal);
+        mThumbOpaqueRect.offset(left, top);
+        return true;
+    }
+
+    /**
+     * @return true if a label, drawn at (labelX, y), and its drawable, drawn at
+     *         (drawableX, y), both lie under the opaque body of the thumb
+     */
+    private boolean isUnderThumb(Layout label, int labelX, Drawable drawable, int drawableX, int y) {
+        if (mThumbOpaqueRect.isEmpty()
+                || !isUnderThumb(labelX, y, labelX + label.getWidth(), y + label.getHeight())) {
+            return false;
+        }
+        if (drawable == null) {
+            return true;
+        }
+        final Rect bounds = drawable.getBounds();
+        return isUnderThumb(drawableX + bounds.left, y + bounds.top,
+                drawableX + bounds.right, y + bounds.bottom);
+    }
+
+    private boolean isUnderThumb(int left, int top, int right, int bottom) {
+        return left >= mThumbOpaqueRect.left && top >= mThumbOpaqueRect.top
+                && right <= mThumbOpaqueRect.right && bottom <= mThumbOpaqueRect.bottom;
+    }
+
+    private void releaseIdleCache() {
+        mIdleCacheValid = false;
+        mIdlePicture = null;
+    }
+
+    private void drawSwitch(Canvas canvas) {
         //Log.d(TAG, "onDraw()canvas:height="+canvas.getHeight()+" width="+canvas.getWidth());
         //Rect canvasClipBounds = canvas.getClipBounds();
         //Log.d(TAG, "onDraw()canvas:clipbounds="+canvasClipBounds);
@@ -1242,8 +2233,9 @@ public class MySwitch extends CompoundButton {
        	    int thumbBoundB = thumbBoundT  + mThumbHeight;
        	    
 
-        	if (mPushStyle) {
-        		final int maxTextHeight = Math.max(mOnLayout.getHeight(), mOffLayout.getHeight());
+        	if (mPushStyle && tempBitmap == null) {
+        		drawPushDirect(canvas, thumbRange, thumbPos, switchHorizontalMid, 0);
+        	} else if (mPushStyle) {
         		//tempBitmap = Bitmap.createBitmap(mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop,  Config.ARGB_8888);
         		//backingLayer = new Canvas(tempBitmap);
         		backingLayer.save();
@@ -1256,28 +2248,15 @@ public class MySwitch extends CompoundButton {
         		mTrackDrawable.draw(canvas);
         		
         		backingLayer.drawColor(0x01000000, Mode.DST_IN);
-        		backingLayer.save();
-        		backingLayer.translate(0, -thumbRange + thumbPos);
-        		backingLayer.translate(0, mTrackPaddingRect.top);
-        		backingLayer.save();
-        		backingLayer.translate(0, (maxTextHeight - mOffLayout.getHeight()) / 2);
-        		if (mDrawableOff != null) mDrawableOff.draw(backingLayer);
-        		backingLayer.translate(switchHorizontalMid - mOffLayout.getWidth() / 2, 0);
-        		mOffLayout.draw(backingLayer);
-        		backingLayer.restore();
-        		
-        		backingLayer.translate(0,
-        				maxTextHeight + mTrackTextPadding * 2 +
-        				(maxTextHeight - mOnLayout.getHeight()) / 2 +
-        				mThumbHeight);//+ mThPad.left + mThPad.right,)
-        		if (mDrawableOn != null) mDrawableOn.draw(backingLayer);
-        		backingLayer.translate(switchHorizontalMid - mOnLayout.getWidth() / 2, 0);//+ mThPad.left + mThPad.right,)
-        		mOnLayout.draw(backingLayer); 
-        		backingLayer.restore();    
+        		drawPushLabels(backingLayer, thumbRange, thumbPos, switchHorizontalMid, 0);
         		backingLayer.drawBitmap(maskBitmap, 0, 0, xferPaint);
         		canvas.drawBitmap(tempBitmap, 0, 0, null);	
         	} else {
-        		if (rightBitmap != null) {
+        		// a thumb that is opaque across the whole switch hides a band of the backgrounds
+        		final boolean band = updateThumbOpaqueRect(mSwitchLeft, switchInnerTop + thumbPos - mThumbExtraMovement,
+        				mSwitchRight, switchInnerTop + thumbPos - mThumbExtraMovement + mThumbHeight)
+        				&& mThumbOpaqueRect.left <= mSwitchLeft && mThumbOpaqueRect.right >= mSwitchRight;
+        		if (rightBitmap != null || mRightBackground != null) {
         			canvas.save();
         			if (canvas.getClipBounds(canvasClipBounds)) {
         				if (this.mOrientation == HORIZONTAL) {
@@ -1286,13 +2265,14 @@ public class MySwitch extends CompoundButton {
         				if (this.mOrientation == VERTICAL) {
         					canvasClipBounds.top += (thumbPos+ mThumbHeight / 2);
         				}
+        				if (band) canvasClipBounds.top = Math.max(canvasClipBounds.top, mThumbOpaqueRect.bottom);
         				canvas.clipRect(canvasClipBounds);
         			}
-        			canvas.drawBitmap(rightBitmap, 0, 0, null);
+        			drawBackground(canvas, rightBitmap, mRightBackground);
         			canvas.restore();
         		}
 
-        		if (leftBitmap != null) {
+        		if (leftBitmap != null || mLeftBackground != null) {
         			canvas.save();
         			if (canvas.getClipBounds(canvasClipBounds)) {
         				if (this.mOrientation == HORIZONTAL) {
@@ -1301,9 +2281,10 @@ public class MySwitch extends CompoundButton {
         				if (this.mOrientation == VERTICAL) {
         					canvasClipBounds.bottom = (canvasClipBounds.top + thumbPos + mThumbHeight / 2);
         				}
+        				if (band) canvasClipBounds.bottom = Math.min(canvasClipBounds.bottom, mThumbOpaqueRect.top);
         				canvas.clipRect(canvasClipBounds);
         			}
-        			canvas.drawBitmap(leftBitmap, 0, 0, null);
+        			drawBackground(canvas, leftBitmap, mLeftBackground);
         			canvas.restore();
         		}
 
@@ -1328,13 +2309,17 @@ public class MySwitch extends CompoundButton {
         		
        	        thumbBoundT = switchInnerTop + 1 * this.getThumbScrollRange() - mThumbExtraMovement;
        	        thumbBoundB = thumbBoundT  + mThumbHeight;
+        		int labelY = (thumbBoundT + thumbBoundB) / 2 - mOnLayout.getHeight() / 2;
+        		if (!isUnderThumb(mOnLayout, (mSwitchLeft + mSwitchRight) / 2 - mOnLayout.getWidth() / 2,
+        				mTextPaint.getAlpha() == alpha ? mDrawableOn : null, 0, labelY)) {
         		canvas.save();
-        		canvas.translate(0, (thumbBoundT + thumbBoundB) / 2 - mOnLayout.getHeight() / 2);
+        		canvas.translate(0, labelY);
                 if ((mDrawableOn != null) && (mTextPaint.getAlpha() == alpha)) mDrawableOn.draw(canvas);       		
         		canvas.translate((mSwitchLeft + mSwitchRight) / 2 - mOnLayout.getWidth() / 2, 0);
         		mOnLayout.draw(canvas);
         		
         		canvas.restore();
+        		}
  
         		// mTextColors should not be null, but just in case
         		if (mTextColors != null) {
@@ -1349,12 +2334,16 @@ public class MySwitch extends CompoundButton {
         		
        	        thumbBoundT = switchInnerTop - mThumbExtraMovement;
        	        thumbBoundB = thumbBoundT  + mThumbHeight;
+        		labelY = (thumbBoundT + thumbBoundB) / 2 - mOffLayout.getHeight() / 2;
+        		if (!isUnderThumb(mOffLayout, (mSwitchLeft + mSwitchRight) / 2 - mOffLayout.getWidth() / 2,
+        				mTextPaint.getAlpha() == alpha ? mDrawableOff : null, 0, labelY)) {
         		canvas.save();
-        		canvas.translate(0, (thumbBoundT + thumbBoundB) / 2 - mOffLayout.getHeight() / 2);
+        		canvas.translate(0, labelY);
         		if ((mDrawableOff != null) && (mTextPaint.getAlpha() == alpha))  mDrawableOff.draw(canvas);
         		canvas.translate((mSwitchLeft + mSwitchRight) / 2 - mOffLayout.getWidth() / 2, 0);
         		mOffLayout.draw(canvas);
         		canvas.restore();
+        		}
         		canvas.restore();
         	}
 
@@ -1400,8 +2389,9 @@ public class MySwitch extends CompoundButton {
         	int thumbBoundL = switchInnerLeft + thumbPos - mThumbExtraMovement;// + mThPad.left 
         	int thumbBoundR = switchInnerLeft + thumbPos + mThumbWidth - mThumbExtraMovement;// - mThPad.right
 
-        	if (mPushStyle) {
-        		final int maxTextWidth = Math.max(mOnLayout.getWidth(), mOffLayout.getWidth());
+        	if (mPushStyle && tempBitmap == null) {
+        		drawPushDirect(canvas, thumbRange, thumbPos, 0, switchVerticalMid);
+        	} else if (mPushStyle) {
         		//tempBitmap = Bitmap.createBitmap(mSwitchRight - mSwitchLeft, mSwitchBottom - mSwitchTop,  Config.ARGB_8888);
         		//backingLayer = new Canvas(tempBitmap);
         		backingLayer.save();
@@ -1413,42 +2403,33 @@ public class MySwitch extends CompoundButton {
         		mTrackDrawable.draw(canvas);
 
         		backingLayer.drawColor(0x01000000, Mode.DST_IN);
-        		backingLayer.save();
-        		backingLayer.translate(-thumbRange + thumbPos,0);
-        		backingLayer.translate(mTrackPaddingRect.left, 0);
-        		backingLayer.save();
-        		backingLayer.translate((maxTextWidth - mOffLayout.getWidth()) / 2, switchVerticalMid - mOffLayout.getHeight() / 2);
-        		mOffLayout.draw(backingLayer);
-        		if (mDrawableOff != null) mDrawableOff.draw(backingLayer);
-        		backingLayer.restore();
-        		backingLayer.translate(maxTextWidth + mTrackTextPadding * 2 +
-        				(maxTextWidth - mOnLayout.getWidth()) / 2 +
-        				mThumbWidth,//+ mThPad.left + mThPad.right,
-        				switchVerticalMid - mOnLayout.getHeight() / 2);
-        		mOnLayout.draw(backingLayer); 
-                if (mDrawableOn != null) mDrawableOn.draw(backingLayer);       		
-        		backingLayer.restore();    
+        		drawPushLabels(backingLayer, thumbRange, thumbPos, 0, switchVerticalMid);
         		backingLayer.drawBitmap(maskBitmap, 0, 0, xferPaint);
         		canvas.drawBitmap(tempBitmap, 0, 0, null);
 
         	} else {
-        		if (rightBitmap != null) {
+        		// a thumb that is opaque across the whole switch hides a band of the backgrounds
+        		final boolean band = updateThumbOpaqueRect(thumbBoundL, mSwitchTop, thumbBoundR, mSwitchBottom)
+        				&& mThumbOpaqueRect.top <= mSwitchTop && mThumbOpaqueRect.bottom >= mSwitchBottom;
+        		if (rightBitmap != null || mRightBackground != null) {
         			canvas.save();
         			if (canvas.getClipBounds(canvasClipBounds)) {
         				canvasClipBounds.left += (mThumbPosition + mThumbWidth / 2);
+        				if (band) canvasClipBounds.left = Math.max(canvasClipBounds.left, mThumbOpaqueRect.right);
         				canvas.clipRect(canvasClipBounds);
         			}
-        			canvas.drawBitmap(rightBitmap, 0, 0, null);
+        			drawBackground(canvas, rightBitmap, mRightBackground);
         			canvas.restore();
         		}
 
-        		if (leftBitmap != null) {
+        		if (leftBitmap != null || mLeftBackground != null) {
         			canvas.save();
         			if (canvas.getClipBounds(canvasClipBounds)) {
         				canvasClipBounds.right -= (thumbRange - mThumbPosition + mThumbWidth / 2);
+        				if (band) canvasClipBounds.right = Math.min(canvasClipBounds.right, mThumbOpaqueRect.left);
         				canvas.clipRect(canvasClipBounds);
         			}
-        			canvas.drawBitmap(leftBitmap, 0, 0, null);
+        			drawBackground(canvas, leftBitmap, mLeftBackground);
         			canvas.restore();
         		}
 
@@ -1468,49 +2449,61 @@ public class MySwitch extends CompoundButton {
         		mTextPaint.setAlpha(alpha / 4);
 
         		if (getTargetCheckedState()) {
-        			canvas.save();
-        			canvas.translate(dxOnText, switchVerticalMid - mOnLayout.getHeight() / 2);
-        			if (canvas.getClipBounds(canvasClipBounds)) {
-        				canvasClipBounds.left += (mThumbPosition + mThumbWidth / 2);
-        				canvas.clipRect(canvasClipBounds);
+        			if (!isUnderThumb(mOnLayout, dxOnText, mDrawableOn, dxOnText,
+        					switchVerticalMid - mOnLayout.getHeight() / 2)) {
+        				canvas.save();
+        				canvas.translate(dxOnText, switchVerticalMid - mOnLayout.getHeight() / 2);
+        				if (canvas.getClipBounds(canvasClipBounds)) {
+        					canvasClipBounds.left += (mThumbPosition + mThumbWidth / 2);
+        					canvas.clipRect(canvasClipBounds);
+        				}
+        				mOnLayout.draw(canvas);
+        				if (mDrawableOn != null) mDrawableOn.draw(canvas);
+        				canvas.restore();
         			}
-        			mOnLayout.draw(canvas);
-        			if (mDrawableOn != null) mDrawableOn.draw(canvas);
-        			canvas.restore();
 
         			if (mTextOnThumb == false)
         				mTextPaint.setAlpha(alpha);
-        			canvas.save();
-        			canvas.translate(dxOffText, switchVerticalMid - mOffLayout.getHeight() / 2);
-        			if (canvas.getClipBounds(canvasClipBounds)) {
-        				canvasClipBounds.right -= (thumbRange - mThumbPosition + mThumbWidth / 2);
-        				canvas.clipRect(canvasClipBounds);
+        			if (!isUnderThumb(mOffLayout, dxOffText, mDrawableOff, dxOffText,
+        					switchVerticalMid - mOffLayout.getHeight() / 2)) {
+        				canvas.save();
+        				canvas.translate(dxOffText, switchVerticalMid - mOffLayout.getHeight() / 2);
+        				if (canvas.getClipBounds(canvasClipBounds)) {
+        					canvasClipBounds.right -= (thumbRange - mThumbPosition + mThumbWidth / 2);
+        					canvas.clipRect(canvasClipBounds);
+        				}
+        				mOffLayout.draw(canvas);
+        				if (mDrawableOff != null) mDrawableOff.draw(canvas);
+        				canvas.restore();
         			}
-        			mOffLayout.draw(canvas);
-        			if (mDrawableOff != null) mDrawableOff.draw(canvas);
-        			canvas.restore();
         		} else {
-        			canvas.save();
-        			canvas.translate(dxOffText, switchVerticalMid - mOffLayout.getHeight() / 2);
-        			if (canvas.getClipBounds(canvasClipBounds)) {
-        				canvasClipBounds.right -= (thumbRange - mThumbPosition + mThumbWidth / 2);
-        				canvas.clipRect(canvasClipBounds);
+        			if (!isUnderThumb(mOffLayout, dxOffText, mDrawableOff, dxOffText,
+        					switchVerticalMid - mOffLayout.getHeight() / 2)) {
+        				canvas.save();
+        				canvas.translate(dxOffText, switchVerticalMid - mOffLayout.getHeight() / 2);
+        				if (canvas.getClipBounds(canvasClipBounds)) {
+        					canvasClipBounds.right -= (thumbRange - mThumbPosition + mThumbWidth / 2);
+        					canvas.clipRect(canvasClipBounds);
+        				}
+        				mOffLayout.draw(canvas);
+        				if (mDrawableOff != null) mDrawableOff.draw(canvas);
+        				canvas.restore();
         			}
-        			mOffLayout.draw(canvas);
-        			if (mDrawableOff != null) mDrawableOff.draw(canvas);
-        			canvas.restore();
 
         			if (mTextOnThumb == false)
         				mTextPaint.setAlpha(alpha);
-        			canvas.save();
-        			canvas.translate(dxOnText, switchVerticalMid - mOnLayout.getHeight() / 2);
-        			if (canvas.getClipBounds(canvasClipBounds)) {
-        				canvasClipBounds.left += (mThumbPosition + mThumbWidth / 2);
-        				canvas.clipRect(canvasClipBounds);
+        			if (!isUnderThumb(mOnLayout, dxOnText, mDrawableOn, dxOnText,
+        					switchVerticalMid - mOnLayout.getHeight() / 2)) {
+        				canvas.save();
+        				canvas.translate(dxOnText, switchVerticalMid - mOnLayout.getHeight() / 2);
+        				if (canvas.getClipBounds(canvasClipBounds)) {
+        					canvasClipBounds.left += (mThumbPosition + mThumbWidth / 2);
+        					canvas.clipRect(canvasClipBounds);
+        				}
+        				mOnLayout.draw(canvas);
+        				if (mDrawableOn != null) mDrawableOn.draw(canvas);
+        				canvas.restore();
         			}
-        			mOnLayout.draw(canvas);
-        			if (mDrawableOn != null) mDrawableOn.draw(canvas);
-        			canvas.restore();
         		}
         		canvas.restore();
         	}
@@ -1533,6 +2526,326 @@ public class MySwitch extends CompoundButton {
         }
     }
 
+    /**
+     * Forward <code>Activity.onTrimMemory(int)</code> (API 14) here to let the
+     * switches give up their offscreen bitmaps under memory pressure. Pass one of the
+     * TRIM_MEMORY_* levels of this class.
+     * <ul>
+     * <li>Below {@link #TRIM_MEMORY_RUNNING_CRITICAL} and for the UI_HIDDEN and BACKGROUND
+     *     levels only switches that are not visible drop their bitmaps.</li>
+     * <li>At {@link #TRIM_MEMORY_RUNNING_CRITICAL}, {@link #TRIM_MEMORY_MODERATE} and
+     *     {@link #TRIM_MEMORY_COMPLETE} all switches drop their bitmaps and draw without
+     *     them until memory allows the bitmaps to be rebuilt.</li>
+     * </ul>
+     * Should be called on the UI thread.
+     */
+    public static void trimMemory(int level) {
+        final boolean severe = level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_MODERATE;
+        if (severe) {
+            sLowMemoryUntil = SystemClock.uptimeMillis() + LOW_MEMORY_HOLD_OFF;
+        }
+        SwitchBufferCache.clear();
+        for (MySwitch view : SwitchInstances.snapshot()) {
+            if (severe || !view.isOnScreen()) {
+                view.dropBuffers();
+            }
+        }
+    }
+
+    /**
+     * Forward {@link android.app.Activity#onLowMemory()} here. Same as
+     * {@link #trimMemory(int) trimMemory(TRIM_MEMORY_COMPLETE)}.
+     */
+    public static void onLowMemory() {
+        trimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    private boolean isOnScreen() {
+        return getWindowVisibility() == VISIBLE && isShown() && getGlobalVisibleRect(mVisibleRect);
+    }
+
+    /**
+     * @return true if the masked background buffers depend only on resources and
+     *         size, so they can be baked or cached; false if a drawable did not
+     *         come from a resource or depends on the view state
+     */
+    private boolean canReuseBuffers() {
+        if (mMaskResId == 0 || mMaskDrawable.isStateful()) {
+            return false;
+        }
+        if (mLeftBackground != null && (mLeftBackgroundResId == 0 || mLeftBackground.isStateful())) {
+            return false;
+        }
+        return mRightBackground == null || (mRightBackgroundResId != 0 && !mRightBackground.isStateful());
+    }
+
+    /**
+     * Describes the masked background buffers of this switch, from its measured size.
+     *
+     * @return null if the buffers cannot be shared, see {@link #canReuseBuffers()}
+     */
+    SwitchBufferCache.Spec getBufferSpec() {
+        if (mMaskDrawable == null || !canReuseBuffers()) {
+            return null;
+        }
+        // the same offsets onLayout uses
+        return new SwitchBufferCache.Spec(getResources(), mMaskResId,
+                mLeftBackground != null ? mLeftBackgroundResId : 0,
+                mRightBackground != null ? mRightBackgroundResId : 0,
+                mSwitchWidth, mSwitchHeight, BufferKey.offset(getPaddingRight()), BufferKey.offset(getPaddingBottom()));
+    }
+
+    private void setSharedBuffers(Bitmap[] bitmaps) {
+        int i = 0;
+        maskBitmap = bitmaps[i++];
+        if (mLeftBackground != null) leftBitmap = bitmaps[i++];
+        if (mRightBackground != null) rightBitmap = bitmaps[i++];
+        mBuffersShared = true;
+    }
+
+    /**
+     * Builds the masked backgrounds of the switches in a view hierarchy on a few
+     * background threads, so their first layout only picks them up. Switches of
+     * the same style and size are built once. Should be called on the UI thread.
+     *
+     * Only switches that already loaded their drawables are included: those
+     * inflated with lazy loading off, see {@link #setLazyResourceLoading(boolean)},
+     * or measured since. Lazy switches are not measured here, which would load
+     * the drawables of every switch, those below the fold included.
+     *
+     * @return the number of distinct buffer sets being built
+     */
+    public static int prewarm(View root) {
+        ArrayList<SwitchBufferCache.Spec> specs = new ArrayList<SwitchBufferCache.Spec>();
+        collectBufferSpecs(root, specs);
+        return specs.isEmpty() ? 0 : SwitchBufferCache.prewarm(root.getContext(), specs);
+    }
+
+    private static void collectBufferSpecs(View view, ArrayList<SwitchBufferCache.Spec> specs) {
+        if (view instanceof MySwitch) {
+            MySwitch sw = (MySwitch) view;
+            if (!sw.mResourcesLoaded) {
+                return;
+            }
+            if (sw.mSwitchWidth == 0) {
+                // the switch size does not depend on the measure specs
+                final int unspecified = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+                sw.measure(unspecified, unspecified);
+            }
+            SwitchBufferCache.Spec spec = sw.getBufferSpec();
+            if (spec != null) {
+                specs.add(spec);
+            }
+        } else if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collectBufferSpecs(group.getChildAt(i), specs);
+            }
+        }
+    }
+
+    /**
+     * Enables keeping the rendered masked backgrounds in the app's cache directory,
+     * so later launches load them instead of rendering them again. Enabled by default.
+     */
+    public static void setBufferDiskCacheEnabled(boolean enabled) {
+        SwitchBufferCache.setDiskCacheEnabled(enabled);
+    }
+
+    /**
+     * Deletes the rendered backgrounds stored in the disk cache.
+     */
+    public static void clearBufferDiskCache(Context context) {
+        BufferDiskCache cache = BufferDiskCache.get(context);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Releases the offscreen bitmaps. They are rebuilt after the next draw once memory allows.
+     *
+     * @return true if there was anything to release
+     */
+    boolean dropBuffers() {
+        releaseIdleCache();
+        if (tempBitmap == null && pushBitmap == null) {
+            return false;
+        }
+        releaseBuffers();
+        mBuffersDropped = true;
+        updateLayerType();
+        invalidate();
+        return true;
+    }
+
+    private void releaseBuffers() {
+        releaseIdleCache();
+        if (tempBitmap != null) tempBitmap.recycle();
+        if (!mBuffersShared) {
+            if (maskBitmap != null) maskBitmap.recycle();
+            if (leftBitmap != null) leftBitmap.recycle();
+            if (rightBitmap != null) rightBitmap.recycle();
+        }
+        if (pushBitmap != null) pushBitmap.recycle();
+        mBuffersShared = false;
+        tempBitmap = null;
+        maskBitmap = null;
+        leftBitmap = null;
+        rightBitmap = null;
+        pushBitmap = null;
+        backingLayer = null;
+    }
+
+    /**
+     * Renders the dropped buffers again after the current frame, once memory
+     * allows. Rendering allocates bitmaps and may read the disk cache, which
+     * must not happen in the middle of a draw.
+     */
+    private void scheduleBufferRebuild() {
+        if (!mRebuildPosted && canRebuildBuffers()) {
+            mRebuildPosted = true;
+            post(mRebuildBuffers);
+        }
+    }
+
+    private final Runnable mRebuildBuffers = new Runnable() {
+        public void run() {
+            mRebuildPosted = false;
+            if (mBuffersDropped && canRebuildBuffers()) {
+                prepareBuffers();
+                updateLayerType();
+                invalidate();
+            }
+        }
+    };
+
+    /**
+     * @return true if the dropped buffers may be rendered again
+     */
+    private boolean canRebuildBuffers() {
+        if (SystemClock.uptimeMillis() < sLowMemoryUntil) {
+            return false;
+        }
+        // temp, mask, left, right and push are at most five switch sized ARGB_8888 bitmaps
+        final long needed = 5L * 4 * Math.max(1, mSwitchRight - mSwitchLeft) * Math.max(1, mSwitchBottom - mSwitchTop);
+        final Runtime runtime = Runtime.getRuntime();
+        final long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return available > needed * 2;
+    }
+
+    /**
+     * Draws the on/off labels of a push style switch. The labels slide with the thumb.
+     */
+    private void drawPushLabels(Canvas layer, int thumbRange, int thumbPos,
+                                int switchHorizontalMid, int switchVerticalMid) {
+        if (mOrientation == VERTICAL) {
+        	final int maxTextHeight = Math.max(mOnLayout.getHeight(), mOffLayout.getHeight());
+        	layer.save();
+        	layer.translate(0, -thumbRange + thumbPos);
+        	layer.translate(0, mTrackPaddingRect.top);
+        	layer.save();
+        	layer.translate(0, (maxTextHeight - mOffLayout.getHeight()) / 2);
+        	if (mDrawableOff != null) mDrawableOff.draw(layer);
+        	layer.translate(switchHorizontalMid - mOffLayout.getWidth() / 2, 0);
+        	mOffLayout.draw(layer);
+        	layer.restore();
+
+        	layer.translate(0,
+        			maxTextHeight + mTrackTextPadding * 2 +
+        			(maxTextHeight - mOnLayout.getHeight()) / 2 +
+        			mThumbHeight);//+ mThPad.left + mThPad.right,)
+        	if (mDrawableOn != null) mDrawableOn.draw(layer);
+        	layer.translate(switchHorizontalMid - mOnLayout.getWidth() / 2, 0);//+ mThPad.left + mThPad.right,)
+        	mOnLayout.draw(layer);
+        	layer.restore();
+        } else {
+        	final int maxTextWidth = Math.max(mOnLayout.getWidth(), mOffLayout.getWidth());
+        	layer.save();
+        	layer.translate(-thumbRange + thumbPos,0);
+        	layer.translate(mTrackPaddingRect.left, 0);
+        	layer.save();
+        	layer.translate((maxTextWidth - mOffLayout.getWidth()) / 2, switchVerticalMid - mOffLayout.getHeight() / 2);
+        	mOffLayout.draw(layer);
+        	if (mDrawableOff != null) mDrawableOff.draw(layer);
+        	layer.restore();
+        	layer.translate(maxTextWidth + mTrackTextPadding * 2 +
+        			(maxTextWidth - mOnLayout.getWidth()) / 2 +
+        			mThumbWidth,//+ mThPad.left + mThPad.right,
+        			switchVerticalMid - mOnLayout.getHeight() / 2);
+        	mOnLayout.draw(layer);
+        	if (mDrawableOn != null) mDrawableOn.draw(layer);
+        	layer.restore();
+        }
+    }
+
+    /**
+     * Draws a push style switch straight to the canvas, without offscreen buffers.
+     * Used when the mask is a clip path, and while the buffers are dropped, in
+     * which case the track bounds are used as the clip instead of the mask.
+     */
+    private void drawPushDirect(Canvas canvas, int thumbRange, int thumbPos,
+                                int switchHorizontalMid, int switchVerticalMid) {
+        final int width = getPushWidth();
+        final int height = getPushHeight();
+        // mTextColors should not be null, but just in case
+        if (mTextColors != null) {
+            mTextPaint.setColor(mTextColors.getColorForState(getDrawableState(),
+            		            mTextColors.getDefaultColor()));
+        }
+        canvas.save();
+        clipToMask(canvas);
+        if (mOrientation == HORIZONTAL) {
+            canvas.translate(-thumbRange + thumbPos, 0);
+        } else {
+            canvas.translate(0, -thumbRange + thumbPos);
+        }
+        //for vertical orientation the left background is used as top background
+        if (mLeftBackground != null) {
+            canvas.save();
+            if (mOrientation == HORIZONTAL) {
+                canvas.clipRect(0, 0, width - width / 2, height);
+            } else {
+                canvas.clipRect(0, 0, width, height - height / 2);
+            }
+            mLeftBackground.draw(canvas);
+            canvas.restore();
+        }
+        if (mRightBackground != null) {
+            canvas.save();
+            if (mOrientation == HORIZONTAL) {
+                canvas.clipRect(width / 2, 0, width, height);
+                canvas.translate(width / 2 - mTrackPaddingRect.right, 0);
+            } else {
+                canvas.clipRect(0, height / 2, width, height);
+                canvas.translate(0, height / 2 - mTrackPaddingRect.bottom);
+            }
+            mRightBackground.draw(canvas);
+            canvas.restore();
+        }
+        canvas.restore();
+
+        mTrackDrawable.draw(canvas);
+
+        canvas.save();
+        clipToMask(canvas);
+        drawPushLabels(canvas, thumbRange, thumbPos, switchHorizontalMid, switchVerticalMid);
+        canvas.restore();
+    }
+
+    /**
+     * Draws a left/right background from its masked bitmap, or from the drawable
+     * itself clipped to the mask path (or to the track while the bitmaps are dropped).
+     */
+    private void drawBackground(Canvas canvas, Bitmap masked, Drawable background) {
+        if (masked != null) {
+            canvas.drawBitmap(masked, 0, 0, null);
+        } else if (mMaskPath != null || mBuffersDropped) {
+            clipToMask(canvas);
+            background.draw(canvas);
+        }
+    }
+
     @Override
     public int getCompoundPaddingRight() {
         int padding = super.getCompoundPaddingRight() + mSwitchWidth;
@@ -1586,10 +2899,20 @@ public class MySwitch extends CompoundButton {
         // Drawable may be null when checked state is set from XML, from super constructor
         if (mThumbDrawable != null) mThumbDrawable.setState(myDrawableState);
         if (mTrackDrawable != null) mTrackDrawable.setState(myDrawableState);
+        // null while the CompoundButton constructor runs
+        if (mThumbOpaqueLocal != null) traceThumbOpaqueRect();
 
+        invalidateIdleCache();
         invalidate();
     }
 
+    @Override
+    public void invalidateDrawable(Drawable who) {
+        // a drawable that changes by itself makes the recorded drawing stale
+        invalidateIdleCache();
+        super.invalidateDrawable(who);
+    }
+
     @Override
     protected boolean verifyDrawable(Drawable who) {
         return super.verifyDrawable(who) || who == mThumbDrawable || who == mTrackDrawable;
@@ -0,0 +1,274 @@
+package com.appscumen.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff.Mode;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+/**
+ * Masked background buffers shared by all switches of the same style and size.
+ *
+ * A buffer set is the alpha mask plus the masked left and right backgrounds of
+ * {@link MySwitch}. It is taken from memory if another switch already built it,
+ * otherwise loaded from the baked assets or the disk cache, and rendered only
+ * when both miss. {@link #prewarm} builds sets on a small worker pool before the
+ * first layout, so the layout only has to pick up the result.
+ *
+ * Shared bitmaps are never recycled: they are read only, and dropping them from
+ * this cache leaves them to the garbage collector once no switch uses them.
+ */
+final class SwitchBufferCache {
+    private static final String TAG = "SwitchBufferCache";
+    private static final int MAX_WORKERS = 4;
+
+    /**
+     * The resources and geometry a buffer set is rendered from.
+     */
+    static final class Spec {
+        final int maskId;
+        final int leftId;
+        final int rightId;
+        final int width;
+        final int height;
+        // offset of the switch inside the bitmaps, mSwitchLeft and mSwitchTop
+        final int x;
+        final int y;
+        final String name;
+
+        Spec(Resources res, int maskId, int leftId, int rightId, int width, int height, int x, int y) {
+            this.maskId = maskId;
+            this.leftId = leftId;
+            this.rightId = rightId;
+            this.width = width;
+            this.height = height;
+            this.x = x;
+            this.y = y;
+            name = BakedBuffers.name(res, maskId, leftId, rightId, width, height, x, y);
+        }
+
+        int getBufferCount() {
+            return 1 + (leftId != 0 ? 1 : 0) + (rightId != 0 ? 1 : 0);
+        }
+    }
+
+    private static final HashMap<String, Bitmap[]> sBuffers = new HashMap<String, Bitmap[]>();
+    private static final HashMap<String, Future<Bitmap[]>> sPending = new HashMap<String, Future<Bitmap[]>>();
+    private static ExecutorService sWorkers;
+    private static volatile boolean sDiskCacheEnabled = true;
+
+    private SwitchBufferCache() {
+    }
+
+    static void setDiskCacheEnabled(boolean enabled) {
+        sDiskCacheEnabled = enabled;
+    }
+
+    /**
+     * Returns the buffer set of a spec. The UI thread never waits for a worker: a
+     * set that is pre-warmed but not finished is built here instead, and a set
+     * whose pre-warming has not started yet is taken off the queue.
+     *
+     * @return the mask followed by the left and right backgrounds that the spec has
+     */
+    static Bitmap[] obtain(Context context, Spec spec) {
+        Future<Bitmap[]> pending;
+        synchronized (sBuffers) {
+            Bitmap[] buffers = sBuffers.get(spec.name);
+            if (buffers != null) {
+                return buffers;
+            }
+            pending = sPending.get(spec.name);
+        }
+        if (pending != null) {
+            if (pending.isDone()) {
+                try {
+                    Bitmap[] buffers = pending.get();
+                    if (buffers != null) {
+                        return buffers;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Log.w(TAG, "pre-warming " + spec.name + " failed", e.getCause());
+                } catch (CancellationException e) {
+                    // cancelled by another switch of the same spec
+                }
+            } else if (pending.cancel(false)) {
+                // it never runs, so its cleanup never runs either
+                synchronized (sBuffers) {
+                    sPending.remove(spec.name);
+                }
+            }
+        }
+        Bitmap[] buffers = load(context, spec);
+        synchronized (sBuffers) {
+            // a worker that was already running may have finished first; share its set
+            Bitmap[] finished = sBuffers.get(spec.name);
+            if (finished != null) {
+                return finished;
+            }
+            sBuffers.put(spec.name, buffers);
+        }
+        return buffers;
+    }
+
+    /**
+     * Starts building the buffer sets that are neither cached nor already being
+     * built, on up to {@link #MAX_WORKERS} threads.
+     *
+     * @return the number of sets started
+     */
+    static int prewarm(Context context, List<Spec> specs) {
+        final Context appContext = context.getApplicationContext() != null
+                ? context.getApplicationContext() : context;
+        int started = 0;
+        synchronized (sBuffers) {
+            for (final Spec spec : specs) {
+                if (sBuffers.containsKey(spec.name) || sPending.containsKey(spec.name)) {
+                    continue;
+                }
+                sPending.put(spec.name, workers().submit(new Callable<Bitmap[]>() {
+                    public Bitmap[] call() {
+                        Bitmap[] buffers = null;
+                        try {
+                            buffers = load(appContext, spec);
+                        } finally {
+                            synchronized (sBuffers) {
+                                sPending.remove(spec.name);
+                                // the UI thread may have built the set itself meanwhile
+                                if (buffers != null && !sBuffers.containsKey(spec.name)) {
+                                    sBuffers.put(spec.name, buffers);
+                                }
+                            }
+                        }
+                        return buffers;
+                    }
+                }));
+                started++;
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Forgets the cached sets. Switches keep drawing the ones they hold.
+     */
+    static void clear() {
+        synchronized (sBuffers) {
+            sBuffers.clear();
+        }
+    }
+
+    private static synchronized ExecutorService workers() {
+        if (sWorkers == null) {
+            final int threads = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()));
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private int mCount;
+
+                        public Thread newThread(Runnable r) {
+                            return new Thread(r, "SwitchPrewarm-" + (++mCount));
+                        }
+                    });
+            // let the idle pool shrink to nothing once startup is over;
+            // allowCoreThreadTimeOut needs API 9, on API 8 the threads stay
+            try {
+                pool.getClass().getMethod("allowCoreThreadTimeOut", boolean.class).invoke(pool, true);
+            } catch (Exception e) {
+                // not available
+            }
+            sWorkers = pool;
+        }
+        return sWorkers;
+    }
+
+    /**
+     * Loads a buffer set from the baked assets or the disk cache, or renders it.
+     * Each call works on drawables of its own, so it may run on any thread.
+     */
+    static Bitmap[] load(Context context, Spec spec) {
+        final int count = spec.getBufferCount();
+        Bitmap[] buffers = BakedBuffers.load(context, spec.name, spec.width, spec.height, count);
+        if (buffers != null) {
+            return buffers;
+        }
+        BufferDiskCache disk = sDiskCacheEnabled ? BufferDiskCache.get(context) : null;
+        String key = null;
+        if (disk != null) {
+            key = disk.key(context.getResources().getDisplayMetrics().densityDpi,
+                    spec.width, spec.height, spec.x, spec.y, spec.maskId, spec.leftId, spec.rightId);
+            buffers = disk.load(key, spec.width, spec.height, count);
+            if (buffers != null) {
+                return buffers;
+            }
+        }
+        Resources res = context.getResources();
+        buffers = render(res.getDrawable(spec.maskId),
+                spec.leftId != 0 ? res.getDrawable(spec.leftId) : null,
+                spec.rightId != 0 ? res.getDrawable(spec.rightId) : null,
+                spec.width, spec.height, spec.x, spec.y);
+        if (disk != null) {
+            disk.store(key, buffers);
+        }
+        return buffers;
+    }
+
+    /**
+     * Renders the mask and the masked backgrounds. The backgrounds are drawn on top
+     * of each other, each one cut to the mask.
+     *
+     * @return the mask followed by the left and right backgrounds that are not null
+     */
+    static Bitmap[] render(Drawable mask, Drawable left, Drawable right, int width, int height, int x, int y) {
+        Bitmap temp = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+        Canvas layer = new Canvas(temp);
+        Paint xferPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        xferPaint.setXfermode(new PorterDuffXfermode(Mode.DST_IN));
+        ArrayList<Bitmap> buffers = new ArrayList<Bitmap>(3);
+
+        mask.setBounds(x, y, x + width, y + height);
+        mask.draw(layer);
+        //This should work. But does not work on any of the devices I have Nexus 4, Nexus7, Nexus10
+        //maskBitmap = temp.extractAlpha();
+        int[] row = new int[width];
+        Bitmap maskBitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+        for (int py = 0; py < height; py++) {
+            temp.getPixels(row, 0, width, 0, py, width, 1);
+            for (int px = 0; px < width; px++) {
+                row[px] &= 0xFF000000;
+            }
+            maskBitmap.setPixels(row, 0, width, 0, py, width, 1);
+        }
+        buffers.add(maskBitmap);
+
+        for (Drawable background : new Drawable[] { left, right }) {
+            if (background != null) {
+                background.setBounds(x, y, x + width, y + height);
+                background.draw(layer);
+                layer.drawBitmap(maskBitmap, 0, 0, xferPaint);
+                buffers.add(temp.copy(Config.ARGB_8888, true));
+            }
+        }
+        temp.recycle();
+        return buffers.toArray(new Bitmap[buffers.size()]);
+    }
+}
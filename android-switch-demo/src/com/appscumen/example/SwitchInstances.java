@@ -0,0 +1,58 @@
+package com.appscumen.example;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Keeps track of every {@link MySwitch} that has been constructed and not yet
+ * garbage collected. Only weak references are held, so tracking never keeps a
+ * switch (or the activity it belongs to) alive.
+ */
+final class SwitchInstances {
+    private static final ArrayList<WeakReference<MySwitch>> sInstances =
+            new ArrayList<WeakReference<MySwitch>>();
+
+    private SwitchInstances() {
+    }
+
+    static void add(MySwitch view) {
+        synchronized (sInstances) {
+            prune();
+            sInstances.add(new WeakReference<MySwitch>(view));
+        }
+    }
+
+    /**
+     * Returns the switches that are still alive. The returned list holds strong
+     * references and should not be kept around.
+     */
+    static ArrayList<MySwitch> snapshot() {
+        synchronized (sInstances) {
+            ArrayList<MySwitch> views = new ArrayList<MySwitch>(sInstances.size());
+            for (int i = sInstances.size() - 1; i >= 0; i--) {
+                MySwitch view = sInstances.get(i).get();
+                if (view == null) {
+                    sInstances.remove(i);
+                } else {
+                    views.add(view);
+                }
+            }
+            return views;
+        }
+    }
+
+    static int count() {
+        synchronized (sInstances) {
+            prune();
+            return sInstances.size();
+        }
+    }
+
+    private static void prune() {
+        for (int i = sInstances.size() - 1; i >= 0; i--) {
+            if (sInstances.get(i).get() == null) {
+                sInstances.remove(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.appscumen.example;
+
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.NinePatchDrawable;
+import android.text.Layout;
+
+/**
+ * Bytes held by one {@link MySwitch}, or by all live switches when returned from
+ * {@link MySwitch#getTotalMemoryInfo()}.
+ *
+ * Offscreen bitmaps are counted exactly. Mask and background bitmaps shared by
+ * switches of the same style and size are counted for each of them. Text layouts
+ * are an estimate of the text and line tables. Drawables are usually shared with
+ * other views through their constant state, so the drawable figure is the pixel
+ * data a switch references rather than memory it alone retains.
+ */
+public final class SwitchMemoryInfo {
+    // rough per line cost of a StaticLayout (line start, top, descent, directions)
+    private static final int LAYOUT_BYTES_PER_LINE = 16;
+    private static final int LAYOUT_OVERHEAD = 64;
+
+    private int  mInstanceCount;
+    private long mTempBitmapBytes;
+    private long mMaskBitmapBytes;
+    private long mLeftBitmapBytes;
+    private long mRightBitmapBytes;
+    private long mPushBitmapBytes;
+    private long mLayoutBytes;
+    private long mDrawableBytes;
+
+    SwitchMemoryInfo() {
+    }
+
+    SwitchMemoryInfo(Bitmap temp, Bitmap mask, Bitmap left, Bitmap right, Bitmap push,
+            Layout onLayout, Layout offLayout, Drawable[] drawables) {
+        mInstanceCount = 1;
+        mTempBitmapBytes = bitmapBytes(temp);
+        mMaskBitmapBytes = bitmapBytes(mask);
+        mLeftBitmapBytes = bitmapBytes(left);
+        mRightBitmapBytes = bitmapBytes(right);
+        mPushBitmapBytes = bitmapBytes(push);
+        mLayoutBytes = layoutBytes(onLayout) + layoutBytes(offLayout);
+        for (Drawable d : drawables) {
+            mDrawableBytes += drawableBytes(d);
+        }
+    }
+
+    void add(SwitchMemoryInfo other) {
+        mInstanceCount += other.mInstanceCount;
+        mTempBitmapBytes += other.mTempBitmapBytes;
+        mMaskBitmapBytes += other.mMaskBitmapBytes;
+        mLeftBitmapBytes += other.mLeftBitmapBytes;
+        mRightBitmapBytes += other.mRightBitmapBytes;
+        mPushBitmapBytes += other.mPushBitmapBytes;
+        mLayoutBytes += other.mLayoutBytes;
+        mDrawableBytes += other.mDrawableBytes;
+    }
+
+    static long bitmapBytes(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return 0;
+        }
+        // Bitmap.getByteCount() needs API 12
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    private static long layoutBytes(Layout layout) {
+        if (layout == null) {
+            return 0;
+        }
+        CharSequence text = layout.getText();
+        int chars = text == null ? 0 : text.length();
+        return LAYOUT_OVERHEAD + chars * 2 + layout.getLineCount() * LAYOUT_BYTES_PER_LINE;
+    }
+
+    private static long drawableBytes(Drawable drawable) {
+        if (drawable == null) {
+            return 0;
+        }
+        Drawable current = drawable.getCurrent();
+        if (current instanceof BitmapDrawable) {
+            return bitmapBytes(((BitmapDrawable) current).getBitmap());
+        }
+        if (current instanceof NinePatchDrawable) {
+            // the nine patch bitmap is not exposed, use its intrinsic size at 32 bits per pixel
+            return (long) Math.max(0, current.getIntrinsicWidth())
+                    * Math.max(0, current.getIntrinsicHeight()) * 4;
+        }
+        // shape and color drawables have no pixel storage
+        return 0;
+    }
+
+    /**
+     * Returns the number of switches these figures cover.
+     */
+    public int getInstanceCount() {
+        return mInstanceCount;
+    }
+
+    public long getTempBitmapBytes() {
+        return mTempBitmapBytes;
+    }
+
+    public long getMaskBitmapBytes() {
+        return mMaskBitmapBytes;
+    }
+
+    public long getLeftBitmapBytes() {
+        return mLeftBitmapBytes;
+    }
+
+    public long getRightBitmapBytes() {
+        return mRightBitmapBytes;
+    }
+
+    public long getPushBitmapBytes() {
+        return mPushBitmapBytes;
+    }
+
+    /**
+     * Returns the total of all offscreen bitmaps owned by the switches.
+     */
+    public long getBitmapBytes() {
+        return mTempBitmapBytes + mMaskBitmapBytes + mLeftBitmapBytes
+                + mRightBitmapBytes + mPushBitmapBytes;
+    }
+
+    /**
+     * Returns the estimated size of the on/off text layouts.
+     */
+    public long getLayoutBytes() {
+        return mLayoutBytes;
+    }
+
+    /**
+     * Returns the pixel data of the drawables referenced by the switches.
+     */
+    public long getDrawableBytes() {
+        return mDrawableBytes;
+    }
+
+    /**
+     * Returns the bytes the switches own: offscreen bitmaps and text layouts.
+     * Shared drawables are not included.
+     */
+    public long getRetainedBytes() {
+        return getBitmapBytes() + mLayoutBytes;
+    }
+
+    public long getTotalBytes() {
+        return getRetainedBytes() + mDrawableBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "SwitchMemoryInfo{instances=" + mInstanceCount
+                + " temp=" + mTempBitmapBytes
+                + " mask=" + mMaskBitmapBytes
+                + " left=" + mLeftBitmapBytes
+                + " right=" + mRightBitmapBytes
+                + " push=" + mPushBitmapBytes
+                + " layouts=" + mLayoutBytes
+                + " drawables=" + mDrawableBytes + "}";
+    }
+}
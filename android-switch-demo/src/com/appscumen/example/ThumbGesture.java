@@ -0,0 +1,132 @@
+package com.appscumen.example;
+
+/**
+ * Touch state machine of the switch thumb: idle, down on the thumb, and dragging
+ * it. It works on plain coordinates and times rather than MotionEvents, keeps
+ * the samples of the current gesture in a {@link VelocityEstimator}, and does
+ * not allocate once constructed.
+ *
+ * Samples are only collected between a down on the thumb and the end of the
+ * gesture; touches that miss the thumb cost nothing.
+ */
+final class ThumbGesture {
+    static final int STATE_IDLE     = 0;
+    static final int STATE_DOWN     = 1;
+    static final int STATE_DRAGGING = 2;
+
+    private final VelocityEstimator mVelocity = new VelocityEstimator();
+    private final int mTouchSlop;
+    private int mState = STATE_IDLE;
+    // where the finger was when the thumb last moved with it
+    private float mAnchorX;
+    private float mAnchorY;
+
+    ThumbGesture(int touchSlop) {
+        mTouchSlop = touchSlop;
+    }
+
+    int getState() {
+        return mState;
+    }
+
+    boolean isDragging() {
+        return mState == STATE_DRAGGING;
+    }
+
+    /**
+     * The finger went down on the thumb.
+     */
+    void down(float x, float y, long time) {
+        mVelocity.clear();
+        mVelocity.add(time, x, y);
+        mAnchorX = x;
+        mAnchorY = y;
+        mState = STATE_DOWN;
+    }
+
+    /**
+     * Adds a sample of the current gesture. Ignored when idle.
+     */
+    void addSample(long time, float x, float y) {
+        if (mState != STATE_IDLE) {
+            mVelocity.add(time, x, y);
+        }
+    }
+
+    /**
+     * Starts dragging once the finger has moved more than half the touch slop
+     * from where it went down.
+     *
+     * @return true if the gesture just turned into a drag
+     */
+    boolean startDragIfPastSlop(float x, float y) {
+        if (mState != STATE_DOWN) {
+            return false;
+        }
+        if (Math.abs(x - mAnchorX) > mTouchSlop / 2 || Math.abs(y - mAnchorY) > mTouchSlop / 2) {
+            mState = STATE_DRAGGING;
+            mAnchorX = x;
+            mAnchorY = y;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the thumb with the finger along one axis. The anchor only follows
+     * the finger while the thumb is inside its range, so the thumb does not
+     * drift when the finger goes past either end and comes back.
+     *
+     * @return the new thumb position, clamped to [0, range]
+     */
+    float drag(float x, float y, float position, float range, boolean horizontal) {
+        final float delta = horizontal ? x - mAnchorX : y - mAnchorY;
+        final float newPos = Math.max(0, Math.min(position + delta, range));
+        if (newPos != position) {
+            if (horizontal) {
+                mAnchorX = x;
+            } else {
+                mAnchorY = y;
+            }
+        }
+        return newPos;
+    }
+
+    long getLastSampleTime() {
+        return mVelocity.getLastSampleTime();
+    }
+
+    /**
+     * Returns the current drag velocity along one axis, or 0 if no sample
+     * arrived for longer than the estimator accepts as continuous movement.
+     *
+     * @return the velocity in pixels per ms
+     */
+    float getVelocity(boolean horizontal, long now) {
+        if (now - mVelocity.getLastSampleTime() > VelocityEstimator.MAX_GAP) {
+            return 0;
+        }
+        mVelocity.computeVelocity();
+        return (horizontal ? mVelocity.getXVelocity() : mVelocity.getYVelocity()) / 1000f;
+    }
+
+    /**
+     * Ends the gesture and returns its release velocity along one axis.
+     *
+     * @return the velocity in pixels per second
+     */
+    float release(boolean horizontal) {
+        mVelocity.computeVelocity();
+        final float velocity = horizontal ? mVelocity.getXVelocity() : mVelocity.getYVelocity();
+        reset();
+        return velocity;
+    }
+
+    /**
+     * Forgets the current gesture.
+     */
+    void reset() {
+        mState = STATE_IDLE;
+        mVelocity.clear();
+    }
+}
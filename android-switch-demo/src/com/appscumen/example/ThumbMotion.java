@@ -0,0 +1,135 @@
+package com.appscumen.example;
+
+/**
+ * Motion model for the switch thumb. The thumb is driven by a critically damped
+ * spring towards its target position, so it can start from the velocity the
+ * finger had on release and can be retargeted at any time without a jump in
+ * position or velocity.
+ *
+ * Each frame is evaluated from the closed form solution
+ *   x(t) = target + (c1 + c2 * t) * e^(-w * t)
+ * so there is no per frame integration and no allocation.
+ *
+ * Positions are in pixels, times in milliseconds and velocities in pixels/ms.
+ */
+final class ThumbMotion {
+    // e^(-6.6) * (1 + 6.6) is about 1% of the initial distance
+    private static final float SETTLE_FACTOR = 6.6f;
+    private static final float SETTLE_DISTANCE = 0.5f;
+    // a velocity that moves the thumb less than SETTLE_DISTANCE in a 16ms frame
+    private static final float SETTLE_VELOCITY = SETTLE_DISTANCE / 16f;
+
+    private float mOmega = SETTLE_FACTOR / 250f;
+    private float mTarget;
+    private float mC1;
+    private float mC2;
+    private long  mStartTime;
+    private boolean mActive;
+
+    private float mPosition;
+    private float mVelocity;
+
+    /**
+     * Sets the spring stiffness so that the thumb, starting at rest, settles
+     * in about the given duration.
+     */
+    void setSettleDuration(float durationMillis) {
+        mOmega = SETTLE_FACTOR / Math.max(1f, durationMillis);
+    }
+
+    /**
+     * Starts a new motion from the given position and velocity.
+     */
+    void start(float position, float velocity, float target, long now) {
+        mTarget = target;
+        mC1 = position - target;
+        mC2 = velocity + mOmega * mC1;
+        mStartTime = now;
+        mPosition = position;
+        mVelocity = velocity;
+        mActive = true;
+    }
+
+    /**
+     * Moves the target of a running motion. The motion continues from the
+     * position and velocity it has at <code>now</code>.
+     */
+    void retarget(float target, long now) {
+        if (mActive) {
+            evaluate(now);
+        }
+        start(mPosition, mVelocity, target, now);
+    }
+
+    /**
+     * Evaluates the motion at the given time.
+     *
+     * @return true if the thumb is still moving, false once it has settled on the target
+     */
+    boolean evaluate(long now) {
+        if (!mActive) {
+            return false;
+        }
+        final float t = Math.max(0, now - mStartTime);
+        final float decay = (float) Math.exp(-mOmega * t);
+        final float offset = (mC1 + mC2 * t) * decay;
+        mVelocity = (mC2 - mOmega * (mC1 + mC2 * t)) * decay;
+        mPosition = mTarget + offset;
+        if (Math.abs(offset) < SETTLE_DISTANCE && Math.abs(mVelocity) < SETTLE_VELOCITY) {
+            mPosition = mTarget;
+            mVelocity = 0;
+            mActive = false;
+        }
+        return mActive;
+    }
+
+    /**
+     * Estimates how long after its start the current motion settles, by sampling
+     * the closed form at a coarse step. Does not change the state of the motion.
+     *
+     * @return the estimated settle time in milliseconds
+     */
+    long estimateSettleTime() {
+        if (!mActive) {
+            return 0;
+        }
+        final int step = 4;
+        final float limit = 10 * SETTLE_FACTOR / mOmega;
+        float t = 0;
+        while (t < limit) {
+            final float decay = (float) Math.exp(-mOmega * t);
+            final float offset = (mC1 + mC2 * t) * decay;
+            final float velocity = (mC2 - mOmega * (mC1 + mC2 * t)) * decay;
+            if (Math.abs(offset) < SETTLE_DISTANCE && Math.abs(velocity) < SETTLE_VELOCITY) {
+                break;
+            }
+            t += step;
+        }
+        return (long) t;
+    }
+
+    long getStartTime() {
+        return mStartTime;
+    }
+
+    void cancel() {
+        mActive = false;
+        mVelocity = 0;
+    }
+
+    boolean isActive() {
+        return mActive;
+    }
+
+    float getPosition() {
+        return mPosition;
+    }
+
+    float getVelocity() {
+        return mVelocity;
+    }
+
+    float getTarget() {
+        return mTarget;
+    }
+}
@@ -0,0 +1,123 @@
+package com.appscumen.example;
+
+/**
+ * Predicts where the dragged thumb will be when the frame being drawn reaches
+ * the display, to hide the one or two frames the thumb lags behind the finger.
+ *
+ * The prediction extrapolates the last touch position with the drag velocity,
+ * up to a configurable lead time. It is applied as an offset that eases towards
+ * its new value on every frame, so when a real event lands somewhere else than
+ * predicted the thumb is corrected over a few frames instead of jumping.
+ *
+ * Positions are in pixels, times in milliseconds and velocities in pixels/ms.
+ */
+final class ThumbPredictor {
+    // time from drawing a frame to it being shown
+    static final long FRAME_LATENCY = 16;
+    // fraction of the remaining correction applied per frame
+    private static final float SMOOTHING = 0.5f;
+    private static final float SETTLE_DISTANCE = 0.5f;
+
+    private long  mMaxLead;
+    private float mOffset;
+    private float mTargetOffset;
+    private float mLastPredicted = Float.NaN;
+    private float mLastActual = Float.NaN;
+
+    private int    mErrorSamples;
+    private double mErrorSum;
+    private double mLagSum;
+
+    /**
+     * @param maxLead the furthest ahead of the last touch sample to predict, in
+     *                ms, or 0 to disable prediction
+     */
+    void setMaxLead(long maxLead) {
+        mMaxLead = Math.max(0, maxLead);
+        reset();
+    }
+
+    long getMaxLead() {
+        return mMaxLead;
+    }
+
+    boolean isEnabled() {
+        return mMaxLead > 0;
+    }
+
+    /**
+     * Returns the position to draw the thumb at.
+     *
+     * @param position       the thumb position of the last touch sample
+     * @param velocity       the drag velocity, 0 if the finger stopped
+     * @param lastSampleTime time of the last touch sample
+     * @param now            the current time, on the same clock
+     * @param range          the thumb scroll range
+     */
+    float predict(float position, float velocity, long lastSampleTime, long now, float range) {
+        final long lead = Math.max(0, Math.min(now + FRAME_LATENCY - lastSampleTime, mMaxLead));
+        mTargetOffset = velocity * lead;
+        mOffset += (mTargetOffset - mOffset) * SMOOTHING;
+        float predicted = Math.max(0, Math.min(position + mOffset, range));
+        mLastPredicted = predicted;
+        return predicted;
+    }
+
+    /**
+     * @return true while the drawn position still has to move to reach the
+     *         prediction, so another frame is needed even without new touches
+     */
+    boolean isSettling() {
+        return Math.abs(mTargetOffset - mOffset) > SETTLE_DISTANCE;
+    }
+
+    /**
+     * Records where a new touch sample put the thumb, to measure how far the
+     * previous frame was off, with and without prediction.
+     */
+    void onActualPosition(float position) {
+        if (!Float.isNaN(mLastPredicted) && !Float.isNaN(mLastActual)) {
+            mErrorSum += Math.abs(mLastPredicted - position);
+            mLagSum += Math.abs(mLastActual - position);
+            mErrorSamples++;
+            mLastPredicted = Float.NaN;
+        }
+        mLastActual = position;
+    }
+
+    /**
+     * Forgets the current drag. The error figures are kept.
+     */
+    void reset() {
+        mOffset = 0;
+        mTargetOffset = 0;
+        mLastPredicted = Float.NaN;
+        mLastActual = Float.NaN;
+    }
+
+    /**
+     * @return the mean distance between a predicted frame and the touch position
+     *         that followed it
+     */
+    float getMeanError() {
+        return mErrorSamples == 0 ? 0 : (float) (mErrorSum / mErrorSamples);
+    }
+
+    /**
+     * @return the mean distance the same frames would have been off without
+     *         prediction
+     */
+    float getMeanLag() {
+        return mErrorSamples == 0 ? 0 : (float) (mLagSum / mErrorSamples);
+    }
+
+    int getErrorSampleCount() {
+        return mErrorSamples;
+    }
+
+    void resetErrors() {
+        mErrorSamples = 0;
+        mErrorSum = 0;
+        mLagSum = 0;
+    }
+}
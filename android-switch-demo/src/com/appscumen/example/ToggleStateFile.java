@@ -0,0 +1,197 @@
+package com.appscumen.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Keeps the flags of a {@link ToggleStateModel} in a memory mapped file, so the
+ * state of thousands of switches survives process restarts without parsing.
+ *
+ * The file has a fixed layout: a 16 byte header (magic, format version, flag
+ * count, reserved) followed by the flags packed into little endian longs, the
+ * same words the model holds. Opening maps the file and copies the words into
+ * the model in one bulk read. Every later change of the model is stored in
+ * place, one word per changed word, straight into the mapping; no file is
+ * rewritten. A process that dies mid update has either stored a word or not,
+ * so the file is always a valid state. Call {@link #flush()} at points where
+ * the state must also survive the device losing power, for example in
+ * <code>onPause</code>.
+ *
+ * A file with another layout or flag count is replaced: the flags both counts
+ * cover are carried over, and the new file is written under a temporary name
+ * and renamed into place. Use it on the UI thread, like the model.
+ */
+public final class ToggleStateFile implements ToggleStateModel.OnFlagsChangedListener {
+    private static final String TAG = "ToggleStateFile";
+    private static final int MAGIC = 0x4d535446; // "MSTF"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final ToggleStateModel mModel;
+    private final MappedByteBuffer mMapping;
+    private final LongBuffer mWords;
+
+    private ToggleStateFile(ToggleStateModel model, MappedByteBuffer mapping) {
+        mModel = model;
+        mMapping = mapping;
+        mapping.order(ByteOrder.LITTLE_ENDIAN);
+        mapping.position(HEADER_BYTES);
+        mWords = mapping.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * Opens <code>name</code> in the app's files directory, see {@link #open(File, ToggleStateModel)}.
+     */
+    public static ToggleStateFile open(Context context, String name, ToggleStateModel model)
+            throws IOException {
+        return open(new File(context.getFilesDir(), name), model);
+    }
+
+    /**
+     * Loads the saved flags into <code>model</code> and stores its changes from
+     * now on. A missing file is created with the current flags of the model.
+     */
+    public static ToggleStateFile open(File file, ToggleStateModel model) throws IOException {
+        final long length = HEADER_BYTES + 8L * model.getWordCount();
+        long[] saved = readCompatible(file, model);
+        if (saved == null) {
+            replace(file, model, length);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        MappedByteBuffer mapping;
+        try {
+            // the mapping stays valid after the file is closed
+            mapping = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        } finally {
+            BufferDiskCache.close(raf);
+        }
+        ToggleStateFile stateFile = new ToggleStateFile(model, mapping);
+        if (saved != null) {
+            model.setWords(saved);
+        }
+        model.addOnFlagsChangedListener(stateFile);
+        return stateFile;
+    }
+
+    /**
+     * @return the saved words if the file has the layout and flag count of the
+     *         model, else null
+     */
+    private static long[] readCompatible(File file, ToggleStateModel model) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final long expected = HEADER_BYTES + 8L * model.getWordCount();
+            if (raf.length() != expected) {
+                return null;
+            }
+            MappedByteBuffer data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, expected);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            if (data.getInt() != MAGIC || data.getInt() != FORMAT_VERSION
+                    || data.getInt() != model.size()) {
+                return null;
+            }
+            data.position(HEADER_BYTES);
+            long[] words = new long[model.getWordCount()];
+            data.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(words);
+            return words;
+        } finally {
+            BufferDiskCache.close(raf);
+        }
+    }
+
+    /**
+     * Writes a new file for the model, carrying over the flags an older file of
+     * the same format has for ids the model still has.
+     */
+    private static void replace(File file, ToggleStateModel model, long length) throws IOException {
+        long[] words = new long[model.getWordCount()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = model.getWord(i);
+        }
+        if (file.exists()) {
+            carryOver(file, model, words);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+        try {
+            raf.setLength(length);
+            MappedByteBuffer data = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            data.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(model.size()).putInt(0);
+            data.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().put(words);
+            data.force();
+        } finally {
+            BufferDiskCache.close(raf);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("could not rename " + temp);
+        }
+        // the carried over flags reach the model as one batch
+        model.setWords(words);
+    }
+
+    private static void carryOver(File file, ToggleStateModel model, long[] words) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            if (raf.length() < HEADER_BYTES || raf.readInt() != Integer.reverseBytes(MAGIC)
+                    || raf.readInt() != Integer.reverseBytes(FORMAT_VERSION)) {
+                Log.w(TAG, "replacing unreadable " + file);
+                return;
+            }
+            final int oldSize = Integer.reverseBytes(raf.readInt());
+            final int common = Math.min(oldSize, model.size());
+            final int oldWords = (int) Math.min((raf.length() - HEADER_BYTES) / 8, (common + 63) >>> 6);
+            raf.seek(HEADER_BYTES);
+            for (int i = 0; i < oldWords; i++) {
+                long word = Long.reverseBytes(raf.readLong());
+                if (i == (common >>> 6) && (common & 63) != 0) {
+                    // keep only the ids both sizes cover
+                    final long mask = (1L << common) - 1;
+                    word = (word & mask) | (words[i] & ~mask);
+                }
+                words[i] = word;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "replacing unreadable " + file, e);
+        } finally {
+            BufferDiskCache.close(raf);
+        }
+    }
+
+    public void onFlagsChanged(ToggleStateModel model, long[] changeMask) {
+        for (int i = 0; i < changeMask.length; i++) {
+            if (changeMask[i] != 0) {
+                mWords.put(i, model.getWord(i));
+            }
+        }
+    }
+
+    /**
+     * Writes the stored changes through to the storage device.
+     */
+    public void flush() {
+        mMapping.force();
+    }
+
+    /**
+     * Stops storing the changes of the model and flushes. The mapping itself is
+     * released once the garbage collector collects it.
+     */
+    public void close() {
+        mModel.removeOnFlagsChangedListener(this);
+        flush();
+    }
+}
@@ -0,0 +1,267 @@
+package com.appscumen.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import android.widget.CompoundButton;
+import android.widget.CompoundButton.OnCheckedChangeListener;
+
+/**
+ * The on/off state of a large set of flags with dense integer ids, for lists of
+ * {@link MySwitch} rows bound to them.
+ *
+ * Flags are packed 64 to a long, so thousands of them cost a few hundred bytes
+ * and no boxed Booleans. Changes made between {@link #beginBatch()} and
+ * {@link #endBatch()} are collected in a change mask of the same layout and
+ * reported to the listeners once, when the outermost batch ends. Changes made
+ * outside a batch are reported right away.
+ *
+ * Switches are bound to a flag with {@link #bind(MySwitch, int)}, typically from
+ * an adapter's getView, so only the visible rows are bound. The model keeps its
+ * bound switches in sync and writes their user toggles back to the flags. It
+ * holds them weakly and hears of the toggles through a listener added with
+ * {@link MySwitch#addOnCheckedChangeListener(OnCheckedChangeListener)}, so the
+ * app keeps its own listener, and the flags follow the debounce and settle
+ * settings of the switch.
+ *
+ * The flags can be saved to a compact byte form with {@link #toByteArray()}, for
+ * example in <code>onSaveInstanceState</code>. Not thread safe, use it on the UI
+ * thread.
+ */
+public final class ToggleStateModel {
+
+    /**
+     * Interface definition for a callback to be invoked when flags change.
+     */
+    public static interface OnFlagsChangedListener {
+        /**
+         * Called once per batch of changes.
+         *
+         * @param model      The model whose flags changed.
+         * @param changeMask The changed flags, bit <code>id &amp; 63</code> of word
+         *                   <code>id &gt;&gt;&gt; 6</code>, see {@link ToggleStateModel#isSet(long[], int)}.
+         *                   Must not be modified.
+         */
+        void onFlagsChanged(ToggleStateModel model, long[] changeMask);
+    }
+
+    private final int mSize;
+    private final long[] mFlags;
+    private final long[] mChanges;
+    private boolean mChanged;
+    private int mBatchDepth;
+
+    private final ArrayList<OnFlagsChangedListener> mListeners = new ArrayList<OnFlagsChangedListener>();
+    private final WeakHashMap<MySwitch, Integer> mBoundViews = new WeakHashMap<MySwitch, Integer>();
+
+    private final OnCheckedChangeListener mViewListener = new OnCheckedChangeListener() {
+        public void onCheckedChanged(CompoundButton view, boolean isChecked) {
+            Integer id = mBoundViews.get(view);
+            if (id != null) {
+                set(id, isChecked);
+            }
+        }
+    };
+
+    /**
+     * Creates a model of <code>size</code> flags, all off.
+     */
+    public ToggleStateModel(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size " + size);
+        }
+        mSize = size;
+        mFlags = new long[(size + 63) >>> 6];
+        mChanges = new long[mFlags.length];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean get(int id) {
+        checkId(id);
+        return isSet(mFlags, id);
+    }
+
+    public void set(int id, boolean on) {
+        checkId(id);
+        final long bit = 1L << id;
+        final int word = id >>> 6;
+        if (((mFlags[word] & bit) != 0) == on) {
+            return;
+        }
+        mFlags[word] ^= bit;
+        mChanges[word] |= bit;
+        mChanged = true;
+        if (mBatchDepth == 0) {
+            dispatchChanges();
+        }
+    }
+
+    public void toggle(int id) {
+        set(id, !get(id));
+    }
+
+    /**
+     * @return the number of flags that are on
+     */
+    public int countOn() {
+        int count = 0;
+        for (long word : mFlags) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Starts collecting changes. Batches nest; listeners hear of the changes
+     * when the outermost batch ends.
+     */
+    public void beginBatch() {
+        mBatchDepth++;
+    }
+
+    public void endBatch() {
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("endBatch without beginBatch");
+        }
+        if (--mBatchDepth == 0 && mChanged) {
+            dispatchChanges();
+        }
+    }
+
+    public void addOnFlagsChangedListener(OnFlagsChangedListener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    public void removeOnFlagsChangedListener(OnFlagsChangedListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Shows flag <code>id</code> on a switch and keeps it in sync until the switch
+     * is bound to another flag or unbound. The switch jumps to the state of the
+     * flag without animating, see {@link MySwitch#bindChecked(boolean)}.
+     */
+    public void bind(MySwitch view, int id) {
+        checkId(id);
+        // a held back toggle of the recycled row goes to the flag it was bound to
+        view.flushChanges();
+        mBoundViews.put(view, id);
+        view.bindChecked(get(id));
+        view.addOnCheckedChangeListener(mViewListener);
+    }
+
+    public void unbind(MySwitch view) {
+        if (mBoundViews.remove(view) != null) {
+            view.removeOnCheckedChangeListener(mViewListener);
+        }
+    }
+
+    private void dispatchChanges() {
+        // listeners may change flags again, which starts a new change mask
+        final long[] changes = mChanges.clone();
+        Arrays.fill(mChanges, 0);
+        mChanged = false;
+        for (Map.Entry<MySwitch, Integer> entry : mBoundViews.entrySet()) {
+            final int id = entry.getValue();
+            final MySwitch view = entry.getKey();
+            final boolean on = isSet(mFlags, id);
+            // the switch the user toggled already shows the flag and may be animating
+            if (isSet(changes, id) && view.isChecked() != on) {
+                view.bindChecked(on);
+            }
+        }
+        for (OnFlagsChangedListener listener : mListeners.toArray(
+                new OnFlagsChangedListener[mListeners.size()])) {
+            listener.onFlagsChanged(this, changes);
+        }
+    }
+
+    /**
+     * @return true if bit <code>id</code> of a packed flag array is set
+     */
+    public static boolean isSet(long[] words, int id) {
+        return (words[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Encodes the flags as their count followed by one bit per flag, 8 to a byte.
+     */
+    public byte[] toByteArray() {
+        final int bytes = (mSize + 7) >>> 3;
+        byte[] data = new byte[4 + bytes];
+        data[0] = (byte) (mSize >>> 24);
+        data[1] = (byte) (mSize >>> 16);
+        data[2] = (byte) (mSize >>> 8);
+        data[3] = (byte) mSize;
+        for (int i = 0; i < bytes; i++) {
+            data[4 + i] = (byte) (mFlags[i >>> 3] >>> ((i & 7) << 3));
+        }
+        return data;
+    }
+
+    /**
+     * Restores the flags from {@link #toByteArray()}, as one batch of changes.
+     *
+     * @throws IllegalArgumentException if the data is not of a model of this size
+     */
+    public void restore(byte[] data) {
+        if (data == null || data.length < 4) {
+            throw new IllegalArgumentException("no saved flags");
+        }
+        final int size = (data[0] & 0xff) << 24 | (data[1] & 0xff) << 16
+                | (data[2] & 0xff) << 8 | (data[3] & 0xff);
+        if (size != mSize || data.length != 4 + ((size + 7) >>> 3)) {
+            throw new IllegalArgumentException("saved flags are for " + size + " ids, not " + mSize);
+        }
+        long[] flags = new long[mFlags.length];
+        for (int i = 4; i < data.length; i++) {
+            final int index = i - 4;
+            flags[index >>> 3] |= (data[i] & 0xffL) << ((index & 7) << 3);
+        }
+        setWords(flags);
+    }
+
+    /**
+     * @return the number of longs the flags are packed into
+     */
+    int getWordCount() {
+        return mFlags.length;
+    }
+
+    long getWord(int index) {
+        return mFlags[index];
+    }
+
+    /**
+     * Replaces all flags, as one batch of changes. Bits past {@link #size()} are
+     * ignored.
+     */
+    void setWords(long[] words) {
+        if ((mSize & 63) != 0) {
+            words[words.length - 1] &= (1L << mSize) - 1;
+        }
+        beginBatch();
+        for (int word = 0; word < words.length; word++) {
+            long changed = words[word] ^ mFlags[word];
+            if (changed != 0) {
+                mFlags[word] = words[word];
+                mChanges[word] |= changed;
+                mChanged = true;
+            }
+        }
+        endBatch();
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= mSize) {
+            throw new IndexOutOfBoundsException("id " + id + ", size " + mSize);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.appscumen.example;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * A recorded stream of touch events, including the historical samples batched
+ * into each ACTION_MOVE, that can be saved to a compact binary file and replayed
+ * against a view. Replaying rebuilds every event with its original event times,
+ * so the velocity and fling decisions of {@link MySwitch} come out the same on
+ * every run.
+ *
+ * Record on a device with {@link MySwitch#setTouchTrace(TouchTrace)}, save with
+ * {@link #writeTo(OutputStream)}, and load with {@link #readFrom(InputStream)}.
+ */
+public final class TouchTrace {
+    private static final int MAGIC = 0x4d535454; // "MSTT"
+    private static final int VERSION = 1;
+
+    /**
+     * Callback invoked after each replayed event.
+     */
+    public interface ReplayListener {
+        /**
+         * @param index   index of the event that was just dispatched
+         * @param handled what the view's onTouchEvent returned
+         */
+        void onEventReplayed(int index, boolean handled);
+    }
+
+    private int   mEventCount;
+    private int[] mActions = new int[64];
+    private long[] mDownTimes = new long[64];
+    // samples of event i are mSampleStart[i] .. mSampleStart[i + 1], the last one is the current position
+    private int[] mSampleStart = new int[65];
+
+    private int    mSampleCount;
+    private long[] mTimes = new long[256];
+    private float[] mX = new float[256];
+    private float[] mY = new float[256];
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    public int getSampleCount() {
+        return mSampleCount;
+    }
+
+    public int getAction(int event) {
+        return mActions[event];
+    }
+
+    /**
+     * Drops all recorded events.
+     */
+    public void clear() {
+        mEventCount = 0;
+        mSampleCount = 0;
+        mSampleStart[0] = 0;
+    }
+
+    /**
+     * Appends an event. Only the masked action, the times and the coordinates of
+     * the first pointer are kept.
+     */
+    public void record(MotionEvent ev) {
+        final int history = ev.getHistorySize();
+        ensureEventCapacity(mEventCount + 1);
+        ensureSampleCapacity(mSampleCount + history + 1);
+        mActions[mEventCount] = ev.getActionMasked();
+        mDownTimes[mEventCount] = ev.getDownTime();
+        for (int h = 0; h < history; h++) {
+            addSample(ev.getHistoricalEventTime(h), ev.getHistoricalX(h), ev.getHistoricalY(h));
+        }
+        addSample(ev.getEventTime(), ev.getX(), ev.getY());
+        mEventCount++;
+        mSampleStart[mEventCount] = mSampleCount;
+    }
+
+    private void addSample(long time, float x, float y) {
+        mTimes[mSampleCount] = time;
+        mX[mSampleCount] = x;
+        mY[mSampleCount] = y;
+        mSampleCount++;
+    }
+
+    /**
+     * Rebuilds an event of the trace. The caller must recycle it.
+     */
+    public MotionEvent obtainEvent(int event) {
+        final int first = mSampleStart[event];
+        final int last = mSampleStart[event + 1] - 1;
+        MotionEvent ev = MotionEvent.obtain(mDownTimes[event], mTimes[first], mActions[event],
+                mX[first], mY[first], 0);
+        // the historical samples come first, the last sample is the current position
+        for (int s = first + 1; s <= last; s++) {
+            ev.addBatch(mTimes[s], mX[s], mY[s], 1f, 1f, 0);
+        }
+        return ev;
+    }
+
+    /**
+     * Dispatches every event of the trace to <code>view.onTouchEvent</code>, in order.
+     *
+     * @param listener called after each event, may be null
+     * @return the time spent dispatching, in nanoseconds
+     */
+    public long replay(View view, ReplayListener listener) {
+        long elapsed = 0;
+        for (int i = 0; i < mEventCount; i++) {
+            MotionEvent ev = obtainEvent(i);
+            long start = System.nanoTime();
+            boolean handled = view.onTouchEvent(ev);
+            elapsed += System.nanoTime() - start;
+            ev.recycle();
+            if (listener != null) {
+                listener.onEventReplayed(i, handled);
+            }
+        }
+        return elapsed;
+    }
+
+    /**
+     * Writes the trace. Times are stored as deltas, so a trace takes about
+     * 13 bytes per sample.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(mEventCount);
+        long previous = mSampleCount > 0 ? mTimes[0] : 0;
+        data.writeLong(previous);
+        for (int i = 0; i < mEventCount; i++) {
+            final int first = mSampleStart[i];
+            final int count = mSampleStart[i + 1] - first;
+            data.writeByte(mActions[i]);
+            data.writeShort(count);
+            data.writeInt((int) (mTimes[first] - mDownTimes[i]));
+            for (int s = first; s < first + count; s++) {
+                data.writeInt((int) (mTimes[s] - previous));
+                data.writeFloat(mX[s]);
+                data.writeFloat(mY[s]);
+                previous = mTimes[s];
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a trace written by {@link #writeTo(OutputStream)}.
+     *
+     * @throws IOException if the stream is not a touch trace or is truncated
+     */
+    public static TouchTrace readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("not a touch trace");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported touch trace version " + version);
+        }
+        TouchTrace trace = new TouchTrace();
+        final int events = data.readInt();
+        long previous = data.readLong();
+        for (int i = 0; i < events; i++) {
+            final int action = data.readByte();
+            final int count = data.readShort();
+            final int downOffset = data.readInt();
+            trace.ensureEventCapacity(i + 1);
+            trace.ensureSampleCapacity(trace.mSampleCount + count);
+            trace.mActions[i] = action;
+            for (int s = 0; s < count; s++) {
+                long time = previous + data.readInt();
+                trace.addSample(time, data.readFloat(), data.readFloat());
+                previous = time;
+            }
+            trace.mDownTimes[i] = trace.mTimes[trace.mSampleStart[i]] - downOffset;
+            trace.mEventCount = i + 1;
+            trace.mSampleStart[i + 1] = trace.mSampleCount;
+        }
+        return trace;
+    }
+
+    private void ensureEventCapacity(int events) {
+        if (events <= mActions.length) {
+            return;
+        }
+        final int size = Math.max(events, mActions.length * 2);
+        int[] actions = new int[size];
+        long[] downTimes = new long[size];
+        int[] sampleStart = new int[size + 1];
+        System.arraycopy(mActions, 0, actions, 0, mEventCount);
+        System.arraycopy(mDownTimes, 0, downTimes, 0, mEventCount);
+        System.arraycopy(mSampleStart, 0, sampleStart, 0, mEventCount + 1);
+        mActions = actions;
+        mDownTimes = downTimes;
+        mSampleStart = sampleStart;
+    }
+
+    private void ensureSampleCapacity(int samples) {
+        if (samples <= mTimes.length) {
+            return;
+        }
+        final int size = Math.max(samples, mTimes.length * 2);
+        long[] times = new long[size];
+        float[] x = new float[size];
+        float[] y = new float[size];
+        System.arraycopy(mTimes, 0, times, 0, mSampleCount);
+        System.arraycopy(mX, 0, x, 0, mSampleCount);
+        System.arraycopy(mY, 0, y, 0, mSampleCount);
+        mTimes = times;
+        mX = x;
+        mY = y;
+    }
+}
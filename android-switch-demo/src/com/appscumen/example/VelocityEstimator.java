@@ -0,0 +1,109 @@
+package com.appscumen.example;
+
+/**
+ * Estimates pointer velocity from recent touch samples with a least squares line
+ * fit, a plain Java replacement for {@link android.view.VelocityTracker} that
+ * holds no native resources.
+ *
+ * Samples go into a fixed ring buffer, so adding samples and computing the
+ * velocity never allocate. Only samples from the last {@link #HORIZON} ms are
+ * used, and a pause longer than {@link #MAX_GAP} ms ends the fit, so a finger
+ * that stopped before lifting does not fling.
+ */
+final class VelocityEstimator {
+    private static final int CAPACITY = 20;
+    static final long HORIZON = 100;
+    static final long MAX_GAP = 40;
+
+    private final long[]  mTimes = new long[CAPACITY];
+    private final float[] mX = new float[CAPACITY];
+    private final float[] mY = new float[CAPACITY];
+    // index of the newest sample, and number of valid samples
+    private int mHead = -1;
+    private int mCount;
+
+    private float mXVelocity;
+    private float mYVelocity;
+
+    void clear() {
+        mHead = -1;
+        mCount = 0;
+        mXVelocity = 0;
+        mYVelocity = 0;
+    }
+
+    /**
+     * Adds a sample. Samples must be added in time order.
+     */
+    void add(long time, float x, float y) {
+        mHead = (mHead + 1) % CAPACITY;
+        mTimes[mHead] = time;
+        mX[mHead] = x;
+        mY[mHead] = y;
+        if (mCount < CAPACITY) {
+            mCount++;
+        }
+    }
+
+    /**
+     * @return the time of the newest sample, or 0 if there is none
+     */
+    long getLastSampleTime() {
+        return mCount == 0 ? 0 : mTimes[mHead];
+    }
+
+    int getSampleCount() {
+        return mCount;
+    }
+
+    /**
+     * Fits a line through the recent samples of each axis. The results are read
+     * with {@link #getXVelocity()} and {@link #getYVelocity()}, in pixels per second.
+     */
+    void computeVelocity() {
+        mXVelocity = 0;
+        mYVelocity = 0;
+        if (mCount < 2) {
+            return;
+        }
+        final long newest = mTimes[mHead];
+        // times relative to the newest sample, in ms
+        float sumT = 0, sumX = 0, sumY = 0;
+        float sumTT = 0, sumTX = 0, sumTY = 0;
+        int n = 0;
+        long previous = newest;
+        for (int i = 0; i < mCount; i++) {
+            final int index = (mHead - i + CAPACITY) % CAPACITY;
+            final long time = mTimes[index];
+            if (newest - time > HORIZON || previous - time > MAX_GAP) {
+                break;
+            }
+            final float t = time - newest;
+            // positions relative to the newest sample keep the sums small
+            final float x = mX[index] - mX[mHead];
+            final float y = mY[index] - mY[mHead];
+            sumT += t;
+            sumX += x;
+            sumY += y;
+            sumTT += t * t;
+            sumTX += t * x;
+            sumTY += t * y;
+            previous = time;
+            n++;
+        }
+        final float denominator = n * sumTT - sumT * sumT;
+        if (n < 2 || denominator <= 0) {
+            return;
+        }
+        mXVelocity = (n * sumTX - sumT * sumX) / denominator * 1000f;
+        mYVelocity = (n * sumTY - sumT * sumY) / denominator * 1000f;
+    }
+
+    float getXVelocity() {
+        return mXVelocity;
+    }
+
+    float getYVelocity() {
+        return mYVelocity;
+    }
+}
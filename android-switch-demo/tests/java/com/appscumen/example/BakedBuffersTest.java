@@ -0,0 +1,103 @@
+package com.appscumen.example;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.test.InstrumentationTestCase;
+
+/**
+ * Checks the buffer sets baked by <code>gradle/bake-switch-buffers.gradle</code>
+ * against the same sets rendered at runtime by {@link SwitchBufferCache#render},
+ * and that the asset names are the ones the runtime looks up. The bake
+ * rasterizes with java.awt instead of Skia, so anti-aliased edges may differ a
+ * little; anything beyond that means the bake no longer renders what the switch
+ * would.
+ */
+public class BakedBuffersTest extends InstrumentationTestCase {
+    // largest per channel difference that counts as equal, for edge anti-aliasing
+    private static final int TOLERANCE = 24;
+    // share of the pixels that may differ by more than the tolerance
+    private static final float MAX_DIFFERENT = 0.02f;
+
+    public void testBakedBuffersMatchRuntimeRendering() throws IOException {
+        final Context context = getInstrumentation().getTargetContext();
+        final String[] names = context.getAssets().list(BakedBuffers.DIRECTORY);
+        assertTrue("no baked buffers in the assets", names != null && names.length > 0);
+        int compared = 0;
+        for (String name : names) {
+            BufferKey key = BufferKey.parse(name);
+            assertNotNull("not a buffer key: " + name, key);
+            assertEquals(name, key.getName());
+            Drawable mask = getDrawable(context, key.mask, key.dpi);
+            if (mask == null) {
+                // drawables of another density cannot be loaded before API 15
+                continue;
+            }
+            Drawable left = key.hasLeft() ? getDrawable(context, key.left, key.dpi) : null;
+            Drawable right = key.hasRight() ? getDrawable(context, key.right, key.dpi) : null;
+            Bitmap[] rendered = SwitchBufferCache.render(mask, left, right, key.width, key.height, key.x, key.y);
+            Bitmap[] baked = BakedBuffers.load(context, name, key.width, key.height, rendered.length);
+            assertNotNull("cannot load " + name, baked);
+            for (int i = 0; i < rendered.length; i++) {
+                int different = SwitchSnapshot.countDifferentPixels(rendered[i], baked[i], TOLERANCE);
+                assertTrue(name + " bitmap " + i + ": " + different + " pixels differ",
+                        different >= 0 && different <= MAX_DIFFERENT * key.width * key.height);
+                rendered[i].recycle();
+            }
+            compared++;
+        }
+        // from API 15 on every set is compared, before only those of the device density
+        if (getDrawableForDensity() != null) {
+            assertEquals(names.length, compared);
+        }
+    }
+
+    public void testRuntimeNamesTheBakedSets() throws IOException {
+        final Context context = getInstrumentation().getTargetContext();
+        final Resources res = context.getResources();
+        for (String name : context.getAssets().list(BakedBuffers.DIRECTORY)) {
+            BufferKey key = BufferKey.parse(name);
+            int maskId = res.getIdentifier(key.mask, "drawable", context.getPackageName());
+            int leftId = key.hasLeft() ? res.getIdentifier(key.left, "drawable", context.getPackageName()) : 0;
+            int rightId = key.hasRight() ? res.getIdentifier(key.right, "drawable", context.getPackageName()) : 0;
+            String runtime = BakedBuffers.name(res, maskId, leftId, rightId, key.width, key.height, key.x, key.y);
+            // the runtime names sets at the device density
+            assertEquals(name.replace(".d" + key.dpi + ".", ".d" + res.getDisplayMetrics().densityDpi + "."), runtime);
+        }
+    }
+
+    private static Method getDrawableForDensity() {
+        try {
+            return Resources.class.getMethod("getDrawableForDensity", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the drawable as it is loaded at the given density, or null if that
+     *         is not the device density and the device cannot load others
+     */
+    private static Drawable getDrawable(Context context, String name, int dpi) {
+        final Resources res = context.getResources();
+        final int id = res.getIdentifier(name, "drawable", context.getPackageName());
+        assertTrue("no drawable " + name, id != 0);
+        if (res.getDisplayMetrics().densityDpi == dpi) {
+            return res.getDrawable(id);
+        }
+        // Resources.getDrawableForDensity needs API 15
+        Method method = getDrawableForDensity();
+        if (method == null) {
+            return null;
+        }
+        try {
+            return (Drawable) method.invoke(res, id, dpi);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
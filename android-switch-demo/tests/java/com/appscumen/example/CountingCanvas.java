@@ -0,0 +1,571 @@
+package com.appscumen.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.graphics.NinePatch;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Picture;
+import android.graphics.PorterDuff.Mode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * A Canvas that counts the operations drawn into it and how often every pixel is
+ * covered, to catch extra draw calls and overdraw in {@link MySwitch#onDraw(Canvas)}.
+ *
+ * Coverage is taken from the bounds of each bitmap, bitmap mesh, nine patch,
+ * picture, rect, round rect, oval, path and color fill, clipped to the current
+ * clip rectangle. Only translations are tracked, which is all MySwitch uses.
+ *
+ * Nine patch drawables end in NinePatch.draw, which calls the hidden
+ * Canvas.drawPatch from API 21 on; this canvas overrides it to count the patch
+ * and draws it through a plain canvas on the same bitmap. Before API 21
+ * NinePatch.draw goes straight to native code and nine patches are not counted,
+ * see {@link Report#patches}. Pictures are replayed natively as well, so a
+ * picture counts once and covers its bounds, whatever it recorded.
+ *
+ * Usage:
+ * <pre>
+ * CountingCanvas canvas = new CountingCanvas(view.getWidth(), view.getHeight());
+ * view.draw(canvas);
+ * canvas.getReport().checkBudget(Budget.load(in, "plain"));
+ * </pre>
+ */
+public class CountingCanvas extends Canvas {
+    private final Bitmap mBitmap;
+    private final int mWidth;
+    private final int mHeight;
+    private final int[] mCoverage;
+    private final Rect mClip = new Rect();
+    private final RectF mBounds = new RectF();
+    // draws nine patches and pictures without coming back to this canvas, see plainCanvas()
+    private Canvas mPlainCanvas;
+    private final Rect mPatchDst = new Rect();
+
+    private float[] mOffsets = new float[32];
+    private int mDepth;
+    private float mDx;
+    private float mDy;
+
+    private int mSaves;
+    private int mRestores;
+    private int mClips;
+    private int mTranslates;
+    private int mBitmaps;
+    private int mShapes;
+    private int mTexts;
+    private int mFills;
+    private int mPatches;
+    private int mPictures;
+
+    public CountingCanvas(int width, int height) {
+        this(Bitmap.createBitmap(Math.max(1, width), Math.max(1, height), Config.ARGB_8888));
+    }
+
+    private CountingCanvas(Bitmap bitmap) {
+        super(bitmap);
+        mBitmap = bitmap;
+        mWidth = bitmap.getWidth();
+        mHeight = bitmap.getHeight();
+        mCoverage = new int[mWidth * mHeight];
+    }
+
+    /**
+     * Clears the counts and the coverage, e.g. between two frames.
+     */
+    public void reset() {
+        for (int i = 0; i < mCoverage.length; i++) {
+            mCoverage[i] = 0;
+        }
+        mSaves = mRestores = mClips = mTranslates = 0;
+        mBitmaps = mShapes = mTexts = mFills = 0;
+        mPatches = mPictures = 0;
+    }
+
+    public Report getReport() {
+        int covered = 0;
+        int overdrawn = 0;
+        long pixelDraws = 0;
+        for (int count : mCoverage) {
+            if (count > 0) {
+                covered++;
+                pixelDraws += count;
+            }
+            if (count > 1) {
+                overdrawn++;
+            }
+        }
+        return new Report(mSaves, mRestores, mClips, mTranslates, mBitmaps, mShapes, mTexts,
+                mFills, mPatches, mPictures, covered, overdrawn, pixelDraws);
+    }
+
+    /**
+     * @return how many times the pixel at (x, y) was drawn
+     */
+    public int getCoverage(int x, int y) {
+        if (x < 0 || y < 0 || x >= mWidth || y >= mHeight) {
+            return 0;
+        }
+        return mCoverage[y * mWidth + x];
+    }
+
+    private void cover(float left, float top, float right, float bottom) {
+        if (!super.getClipBounds(mClip)) {
+            return;
+        }
+        int l = (int) Math.floor(Math.max(left, mClip.left) + mDx);
+        int t = (int) Math.floor(Math.max(top, mClip.top) + mDy);
+        int r = (int) Math.ceil(Math.min(right, mClip.right) + mDx);
+        int b = (int) Math.ceil(Math.min(bottom, mClip.bottom) + mDy);
+        l = Math.max(l, 0);
+        t = Math.max(t, 0);
+        r = Math.min(r, mWidth);
+        b = Math.min(b, mHeight);
+        for (int y = t; y < b; y++) {
+            int row = y * mWidth;
+            for (int x = l; x < r; x++) {
+                mCoverage[row + x]++;
+            }
+        }
+    }
+
+    private void push() {
+        if (mDepth * 2 + 2 > mOffsets.length) {
+            float[] grown = new float[mOffsets.length * 2];
+            System.arraycopy(mOffsets, 0, grown, 0, mOffsets.length);
+            mOffsets = grown;
+        }
+        mOffsets[mDepth * 2] = mDx;
+        mOffsets[mDepth * 2 + 1] = mDy;
+        mDepth++;
+    }
+
+    private void pop() {
+        if (mDepth > 0) {
+            mDepth--;
+            mDx = mOffsets[mDepth * 2];
+            mDy = mOffsets[mDepth * 2 + 1];
+        }
+    }
+
+    @Override
+    public int save() {
+        mSaves++;
+        push();
+        return super.save();
+    }
+
+    @Override
+    public int save(int saveFlags) {
+        mSaves++;
+        push();
+        return super.save(saveFlags);
+    }
+
+    @Override
+    public int saveLayer(RectF bounds, Paint paint, int saveFlags) {
+        mSaves++;
+        push();
+        return super.saveLayer(bounds, paint, saveFlags);
+    }
+
+    @Override
+    public int saveLayerAlpha(RectF bounds, int alpha, int saveFlags) {
+        mSaves++;
+        push();
+        return super.saveLayerAlpha(bounds, alpha, saveFlags);
+    }
+
+    @Override
+    public void restore() {
+        mRestores++;
+        pop();
+        super.restore();
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        while (mDepth > 0 && mDepth >= saveCount) {
+            mRestores++;
+            pop();
+        }
+        super.restoreToCount(saveCount);
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        mTranslates++;
+        mDx += dx;
+        mDy += dy;
+        super.translate(dx, dy);
+    }
+
+    @Override
+    public boolean clipRect(Rect rect) {
+        mClips++;
+        return super.clipRect(rect);
+    }
+
+    @Override
+    public boolean clipRect(int left, int top, int right, int bottom) {
+        mClips++;
+        return super.clipRect(left, top, right, bottom);
+    }
+
+    @Override
+    public boolean clipRect(float left, float top, float right, float bottom) {
+        mClips++;
+        return super.clipRect(left, top, right, bottom);
+    }
+
+    @Override
+    public boolean clipPath(Path path) {
+        mClips++;
+        return super.clipPath(path);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        mBitmaps++;
+        cover(left, top, left + bitmap.getWidth(), top + bitmap.getHeight());
+        super.drawBitmap(bitmap, left, top, paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        mBitmaps++;
+        cover(dst.left, dst.top, dst.right, dst.bottom);
+        super.drawBitmap(bitmap, src, dst, paint);
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        mBitmaps++;
+        cover(dst.left, dst.top, dst.right, dst.bottom);
+        super.drawBitmap(bitmap, src, dst, paint);
+    }
+
+    @Override
+    public void drawBitmapMesh(Bitmap bitmap, int meshWidth, int meshHeight, float[] verts,
+            int vertOffset, int[] colors, int colorOffset, Paint paint) {
+        mBitmaps++;
+        final int end = vertOffset + (meshWidth + 1) * (meshHeight + 1) * 2;
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int i = vertOffset; i + 1 < end && i + 1 < verts.length; i += 2) {
+            left = Math.min(left, verts[i]);
+            right = Math.max(right, verts[i]);
+            top = Math.min(top, verts[i + 1]);
+            bottom = Math.max(bottom, verts[i + 1]);
+        }
+        cover(left, top, right, bottom);
+        super.drawBitmapMesh(bitmap, meshWidth, meshHeight, verts, vertOffset, colors, colorOffset, paint);
+    }
+
+    // Canvas.drawPatch is hidden, NinePatch.draw calls it from API 21 on
+    public void drawPatch(NinePatch patch, Rect dst, Paint paint) {
+        mPatches++;
+        cover(dst.left, dst.top, dst.right, dst.bottom);
+        patch.draw(plainCanvas(), dst, paint);
+        mPlainCanvas.restore();
+    }
+
+    // Canvas.drawPatch is hidden, NinePatch.draw calls it from API 21 on
+    public void drawPatch(NinePatch patch, RectF dst, Paint paint) {
+        mPatches++;
+        cover(dst.left, dst.top, dst.right, dst.bottom);
+        dst.round(mPatchDst);
+        patch.draw(plainCanvas(), mPatchDst, paint);
+        mPlainCanvas.restore();
+    }
+
+    /**
+     * Depending on the API level, Canvas draws pictures and nine patches through
+     * its own save, translate and draw methods, which would be counted again.
+     *
+     * @return a plain canvas on the same bitmap with the matrix and the clip
+     *         bounds of this one, saved; the caller restores it
+     */
+    private Canvas plainCanvas() {
+        if (mPlainCanvas == null) {
+            mPlainCanvas = new Canvas(mBitmap);
+        }
+        mPlainCanvas.save();
+        mPlainCanvas.setMatrix(getMatrix());
+        if (super.getClipBounds(mClip)) {
+            mPlainCanvas.clipRect(mClip);
+        }
+        return mPlainCanvas;
+    }
+
+    @Override
+    public void drawPicture(Picture picture) {
+        mPictures++;
+        cover(0, 0, picture.getWidth(), picture.getHeight());
+        plainCanvas().drawPicture(picture);
+        mPlainCanvas.restore();
+    }
+
+    @Override
+    public void drawPicture(Picture picture, Rect dst) {
+        mPictures++;
+        cover(dst.left, dst.top, dst.right, dst.bottom);
+        plainCanvas().drawPicture(picture, dst);
+        mPlainCanvas.restore();
+    }
+
+    @Override
+    public void drawPicture(Picture picture, RectF dst) {
+        mPictures++;
+        cover(dst.left, dst.top, dst.right, dst.bottom);
+        plainCanvas().drawPicture(picture, dst);
+        mPlainCanvas.restore();
+    }
+
+    @Override
+    public void drawColor(int color) {
+        mFills++;
+        cover(-Float.MAX_VALUE / 4, -Float.MAX_VALUE / 4, Float.MAX_VALUE / 4, Float.MAX_VALUE / 4);
+        super.drawColor(color);
+    }
+
+    @Override
+    public void drawColor(int color, Mode mode) {
+        mFills++;
+        cover(-Float.MAX_VALUE / 4, -Float.MAX_VALUE / 4, Float.MAX_VALUE / 4, Float.MAX_VALUE / 4);
+        super.drawColor(color, mode);
+    }
+
+    @Override
+    public void drawRect(Rect r, Paint paint) {
+        mShapes++;
+        cover(r.left, r.top, r.right, r.bottom);
+        super.drawRect(r, paint);
+    }
+
+    @Override
+    public void drawRect(RectF r, Paint paint) {
+        mShapes++;
+        cover(r.left, r.top, r.right, r.bottom);
+        super.drawRect(r, paint);
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        mShapes++;
+        cover(left, top, right, bottom);
+        super.drawRect(left, top, right, bottom, paint);
+    }
+
+    @Override
+    public void drawRoundRect(RectF r, float rx, float ry, Paint paint) {
+        mShapes++;
+        cover(r.left, r.top, r.right, r.bottom);
+        super.drawRoundRect(r, rx, ry, paint);
+    }
+
+    @Override
+    public void drawOval(RectF r, Paint paint) {
+        mShapes++;
+        cover(r.left, r.top, r.right, r.bottom);
+        super.drawOval(r, paint);
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        mShapes++;
+        path.computeBounds(mBounds, false);
+        cover(mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+        super.drawPath(path, paint);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, Paint paint) {
+        mTexts++;
+        super.drawText(text, x, y, paint);
+    }
+
+    @Override
+    public void drawText(String text, int start, int end, float x, float y, Paint paint) {
+        mTexts++;
+        super.drawText(text, start, end, x, y, paint);
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        mTexts++;
+        super.drawText(text, index, count, x, y, paint);
+    }
+
+    @Override
+    public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+        mTexts++;
+        super.drawText(text, start, end, x, y, paint);
+    }
+
+    /**
+     * Counts of one or more frames drawn into a {@link CountingCanvas}.
+     */
+    public static final class Report {
+        public final int saves;
+        public final int restores;
+        public final int clips;
+        public final int translates;
+        /** bitmaps and bitmap meshes */
+        public final int bitmaps;
+        public final int shapes;
+        public final int texts;
+        public final int fills;
+        /** nine patches, always 0 before API 21 */
+        public final int patches;
+        public final int pictures;
+        /** pixels drawn at least once */
+        public final int coveredPixels;
+        /** pixels drawn more than once */
+        public final int overdrawnPixels;
+        /** sum over all pixels of the times they were drawn */
+        public final long pixelDraws;
+
+        Report(int saves, int restores, int clips, int translates, int bitmaps, int shapes,
+                int texts, int fills, int patches, int pictures, int coveredPixels,
+                int overdrawnPixels, long pixelDraws) {
+            this.saves = saves;
+            this.restores = restores;
+            this.clips = clips;
+            this.translates = translates;
+            this.bitmaps = bitmaps;
+            this.shapes = shapes;
+            this.texts = texts;
+            this.fills = fills;
+            this.patches = patches;
+            this.pictures = pictures;
+            this.coveredPixels = coveredPixels;
+            this.overdrawnPixels = overdrawnPixels;
+            this.pixelDraws = pixelDraws;
+        }
+
+        /**
+         * @return the number of draw calls (bitmaps, shapes, texts, fills, nine
+         *         patches and pictures)
+         */
+        public int getDrawCount() {
+            return bitmaps + shapes + texts + fills + patches + pictures;
+        }
+
+        /**
+         * @return the average number of times a covered pixel was drawn
+         */
+        public float getOverdrawFactor() {
+            return coveredPixels == 0 ? 0 : (float) pixelDraws / coveredPixels;
+        }
+
+        /**
+         * Throws if the saves and restores do not balance or if any count of
+         * this report is over the budget.
+         *
+         * @throws IllegalStateException naming the first count that is wrong
+         */
+        public void checkBudget(Budget budget) {
+            if (saves != restores) {
+                throw new IllegalStateException(saves + " saves but " + restores + " restores in " + this);
+            }
+            check("saves", saves, budget.saves);
+            check("clips", clips, budget.clips);
+            check("translates", translates, budget.translates);
+            check("bitmaps", bitmaps, budget.bitmaps);
+            check("shapes", shapes, budget.shapes);
+            check("texts", texts, budget.texts);
+            check("fills", fills, budget.fills);
+            check("patches", patches, budget.patches);
+            check("pictures", pictures, budget.pictures);
+            if (getOverdrawFactor() > budget.overdrawFactor) {
+                throw new IllegalStateException("overdraw factor is " + getOverdrawFactor()
+                        + ", over the budget of " + budget.overdrawFactor + " in " + this);
+            }
+        }
+
+        private void check(String name, int actual, int budget) {
+            if (actual > budget) {
+                throw new IllegalStateException(name + " is " + actual + ", over the budget of "
+                        + budget + " in " + this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Report{saves=" + saves + " restores=" + restores + " clips=" + clips
+                    + " translates=" + translates + " bitmaps=" + bitmaps + " shapes=" + shapes
+                    + " texts=" + texts + " fills=" + fills + " patches=" + patches
+                    + " pictures=" + pictures + " covered=" + coveredPixels
+                    + " overdrawn=" + overdrawnPixels + " pixelDraws=" + pixelDraws + "}";
+        }
+    }
+
+    /**
+     * The most a frame of one kind of switch may draw, read from a properties
+     * file with one <code>&lt;kind&gt;.&lt;count&gt;</code> entry per count of
+     * {@link Report}, and <code>&lt;kind&gt;.overdrawFactor</code>. Pixel counts
+     * depend on the screen density and are only budgeted through the overdraw
+     * factor.
+     */
+    public static final class Budget {
+        public final int saves;
+        public final int clips;
+        public final int translates;
+        public final int bitmaps;
+        public final int shapes;
+        public final int texts;
+        public final int fills;
+        public final int patches;
+        public final int pictures;
+        public final float overdrawFactor;
+
+        private Budget(Properties properties, String kind) {
+            saves = getInt(properties, kind, "saves");
+            clips = getInt(properties, kind, "clips");
+            translates = getInt(properties, kind, "translates");
+            bitmaps = getInt(properties, kind, "bitmaps");
+            shapes = getInt(properties, kind, "shapes");
+            texts = getInt(properties, kind, "texts");
+            fills = getInt(properties, kind, "fills");
+            patches = getInt(properties, kind, "patches");
+            pictures = getInt(properties, kind, "pictures");
+            overdrawFactor = Float.parseFloat(get(properties, kind, "overdrawFactor"));
+        }
+
+        /**
+         * Reads the budget of one kind of switch and closes the stream.
+         *
+         * @throws IllegalArgumentException if a count of the kind is missing
+         */
+        public static Budget load(InputStream in, String kind) throws IOException {
+            Properties properties = new Properties();
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+            return new Budget(properties, kind);
+        }
+
+        private static int getInt(Properties properties, String kind, String name) {
+            return Integer.parseInt(get(properties, kind, name));
+        }
+
+        private static String get(Properties properties, String kind, String name) {
+            String value = properties.getProperty(kind + "." + name);
+            if (value == null) {
+                throw new IllegalArgumentException("no budget for " + kind + "." + name);
+            }
+            return value.trim();
+        }
+    }
+}
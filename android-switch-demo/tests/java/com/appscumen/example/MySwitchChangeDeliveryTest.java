@@ -0,0 +1,256 @@
+package com.appscumen.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.widget.CompoundButton;
+import android.widget.CompoundButton.OnCheckedChangeListener;
+
+/**
+ * Checks when the listeners added with
+ * {@link MySwitch#addOnCheckedChangeListener(OnCheckedChangeListener)} hear of
+ * changes: debounced, throttled, held until the thumb settles, collapsed to the
+ * final state, and flushed when the switch is detached or rebound.
+ */
+public class MySwitchChangeDeliveryTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    // ms
+    private static final long WINDOW = 300;
+    private static final long LONG_WINDOW = 60000;
+    private static final long SETTLE_TIMEOUT = 2000;
+
+    private MySwitch mView;
+    private final List<Boolean> mDelivered = new ArrayList<Boolean>();
+    private final OnCheckedChangeListener mListener = new OnCheckedChangeListener() {
+        public void onCheckedChanged(CompoundButton view, boolean isChecked) {
+            mDelivered.add(isChecked);
+        }
+    };
+
+    public MySwitchChangeDeliveryTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getActivity();
+        getInstrumentation().waitForIdleSync();
+        // a plain switch the activity sets no listener on
+        mView = SwitchTestUtils.collectSwitches(getActivity().getWindow().getDecorView()).get(0);
+        SwitchTestUtils.scrollOnScreen(getInstrumentation(), mView);
+        onMain(new Runnable() {
+            public void run() {
+                mView.setPowerMode(MySwitch.POWER_MODE_FULL);
+                mView.bindChecked(false);
+                mView.addOnCheckedChangeListener(mListener);
+            }
+        });
+    }
+
+    public void testImmediateByDefault() {
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChecked(true);
+                mView.setChecked(false);
+            }
+        });
+        assertDelivered(true, false);
+    }
+
+    public void testDebounceDeliversTheFinalStateOnce() {
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChangeDebounce(WINDOW);
+                mView.setChecked(true);
+                mView.setChecked(false);
+                mView.setChecked(true);
+            }
+        });
+        assertDelivered();
+        waitFor(WINDOW * 2);
+        assertDelivered(true);
+    }
+
+    public void testDebounceRestartsWithEachChange() {
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChangeDebounce(WINDOW);
+                mView.setChecked(true);
+            }
+        });
+        waitFor(WINDOW / 2);
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChecked(false);
+                mView.setChecked(true);
+            }
+        });
+        waitFor(WINDOW * 3 / 4);
+        // less than a window since the last change
+        assertDelivered();
+        waitFor(WINDOW);
+        assertDelivered(true);
+    }
+
+    public void testChangeBackToTheDeliveredStateIsNotDelivered() {
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChangeDebounce(WINDOW);
+                mView.setChecked(true);
+                mView.setChecked(false);
+            }
+        });
+        waitFor(WINDOW * 2);
+        assertDelivered();
+    }
+
+    public void testThrottleDeliversAtMostOncePerWindow() {
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChangeThrottle(WINDOW);
+                mView.setChecked(true);
+                mView.setChecked(false);
+                mView.setChecked(true);
+                mView.setChecked(false);
+            }
+        });
+        // the first change opens the window
+        assertDelivered(true);
+        waitFor(WINDOW * 2);
+        assertDelivered(true, false);
+    }
+
+    public void testSettleModeWaitsForTheAnimation() {
+        final boolean[] running = new boolean[1];
+        onMain(new Runnable() {
+            public void run() {
+                mView.setDeliverChangesWhenSettled(true);
+                mView.setChecked(true);
+                running[0] = mView.mRunning;
+            }
+        });
+        assertTrue(running[0]);
+        assertDelivered();
+        assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mView, SETTLE_TIMEOUT));
+        assertDelivered(true);
+    }
+
+    public void testSettleModeWaitsForADragThatGrabsTheAnimation() {
+        final int slop = ViewConfiguration.get(getActivity()).getScaledTouchSlop();
+        final long down = SystemClock.uptimeMillis();
+        final Rect hit = new Rect();
+        final float[] finger = new float[2];
+        final boolean[] moving = new boolean[1];
+        onMain(new Runnable() {
+            public void run() {
+                mView.setDeliverChangesWhenSettled(true);
+                mView.setChecked(true);
+                // grab the thumb before its first animation frame
+                mView.getThumbHitRect(hit);
+                finger[0] = hit.exactCenterX();
+                finger[1] = hit.exactCenterY();
+                touch(MotionEvent.ACTION_DOWN, down, down, finger[0], finger[1]);
+                touch(MotionEvent.ACTION_MOVE, down, down + 16, finger[0] + 3 * slop, finger[1]);
+                moving[0] = mView.isMoving();
+            }
+        });
+        assertTrue("the drag did not start", moving[0]);
+        waitFor(WINDOW);
+        assertDelivered();
+        onMain(new Runnable() {
+            public void run() {
+                touch(MotionEvent.ACTION_MOVE, down, down + WINDOW, finger[0] + 3 * slop, finger[1]);
+                touch(MotionEvent.ACTION_UP, down, down + WINDOW + 16, finger[0] + 3 * slop, finger[1]);
+            }
+        });
+        assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mView, SETTLE_TIMEOUT));
+        final boolean[] checked = new boolean[1];
+        onMain(new Runnable() {
+            public void run() {
+                checked[0] = mView.isChecked();
+            }
+        });
+        // the state the thumb came to rest in, if it differs from the one before
+        if (checked[0]) {
+            assertDelivered(true);
+        } else {
+            assertDelivered();
+        }
+    }
+
+    public void testDetachFlushesHeldChanges() {
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChangeDebounce(LONG_WINDOW);
+                mView.setChecked(true);
+                ((ViewGroup) mView.getParent()).removeView(mView);
+            }
+        });
+        assertDelivered(true);
+    }
+
+    public void testRebindFlushesHeldChanges() {
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChangeDebounce(LONG_WINDOW);
+                mView.setChecked(true);
+                mView.bindChecked(false);
+            }
+        });
+        // the previous item's change, and nothing for the bind itself
+        assertDelivered(true);
+    }
+
+    public void testRebindDeliversHeldToggleToTheOldFlag() {
+        final ToggleStateModel model = new ToggleStateModel(4);
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChangeDebounce(LONG_WINDOW);
+                model.bind(mView, 1);
+                mView.setChecked(true);
+                model.bind(mView, 2);
+            }
+        });
+        assertTrue(model.get(1));
+        assertFalse(model.get(2));
+        assertDelivered(true);
+    }
+
+    private void touch(int action, long downTime, long eventTime, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        try {
+            mView.dispatchTouchEvent(event);
+        } finally {
+            event.recycle();
+        }
+    }
+
+    private void onMain(Runnable runnable) {
+        getInstrumentation().runOnMainSync(runnable);
+    }
+
+    private void waitFor(long millis) {
+        SystemClock.sleep(millis);
+        getInstrumentation().waitForIdleSync();
+    }
+
+    private void assertDelivered(boolean... expected) {
+        final List<Boolean> delivered = new ArrayList<Boolean>();
+        onMain(new Runnable() {
+            public void run() {
+                delivered.addAll(mDelivered);
+            }
+        });
+        List<Boolean> wanted = new ArrayList<Boolean>();
+        for (boolean checked : expected) {
+            wanted.add(checked);
+        }
+        assertEquals(wanted, delivered);
+    }
+}
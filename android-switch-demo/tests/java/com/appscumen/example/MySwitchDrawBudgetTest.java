@@ -0,0 +1,95 @@
+package com.appscumen.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.os.Build;
+import android.test.ActivityInstrumentationTestCase2;
+
+/**
+ * Draws every switch of <code>res/layout/main.xml</code> into a
+ * {@link CountingCanvas} with the thumb off, halfway and on, and fails if a frame
+ * makes more Canvas calls or overdraws more than <code>tests/assets/draw-budget.properties</code>
+ * allows for its kind of switch.
+ */
+public class MySwitchDrawBudgetTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    private static final String BUDGET = "draw-budget.properties";
+    private static final float[] FRACTIONS = { 0f, 0.5f, 1f };
+
+    public MySwitchDrawBudgetTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    public void testSwitchesDrawWithinBudget() throws IOException {
+        getActivity();
+        getInstrumentation().waitForIdleSync();
+        final List<MySwitch> switches = SwitchTestUtils.collectSwitches(getActivity().getWindow().getDecorView());
+        assertFalse(switches.isEmpty());
+        final List<String> failures = new ArrayList<String>();
+        for (int i = 0; i < switches.size(); i++) {
+            final MySwitch view = switches.get(i);
+            final String kind = kindOf(view);
+            final CountingCanvas.Budget budget = CountingCanvas.Budget.load(
+                    getInstrumentation().getContext().getAssets().open(BUDGET), kind);
+            for (final float fraction : FRACTIONS) {
+                final CountingCanvas.Report[] report = new CountingCanvas.Report[1];
+                getInstrumentation().runOnMainSync(new Runnable() {
+                    public void run() {
+                        report[0] = draw(view, fraction);
+                    }
+                });
+                try {
+                    report[0].checkBudget(budget);
+                } catch (IllegalStateException e) {
+                    failures.add("switch " + i + " (" + kind + ") at " + fraction + ": " + e.getMessage());
+                }
+            }
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    public void testNinePatchesAreCounted() {
+        if (Build.VERSION.SDK_INT < 21) {
+            // NinePatch.draw only goes through Canvas.drawPatch from API 21 on
+            return;
+        }
+        getActivity();
+        getInstrumentation().waitForIdleSync();
+        final MySwitch view = SwitchTestUtils.collectSwitches(getActivity().getWindow().getDecorView()).get(0);
+        final CountingCanvas.Report[] report = new CountingCanvas.Report[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                report[0] = draw(view, 0f);
+            }
+        });
+        // at least the track and the thumb
+        assertTrue(report[0].toString(), report[0].patches >= 2);
+    }
+
+    /**
+     * @return the budget kind of the switch, from the buffers it keeps
+     */
+    private static String kindOf(MySwitch view) {
+        SwitchMemoryInfo info = view.getMemoryInfo();
+        if (info.getPushBitmapBytes() > 0) {
+            return "push";
+        }
+        return info.getMaskBitmapBytes() > 0 ? "masked" : "plain";
+    }
+
+    private static CountingCanvas.Report draw(MySwitch view, float thumbFraction) {
+        final boolean idleCache = view.isIdleCacheEnabled();
+        final float previous = view.getThumbFraction();
+        try {
+            view.setIdleCacheEnabled(false);
+            view.setThumbFraction(thumbFraction);
+            CountingCanvas canvas = new CountingCanvas(view.getWidth(), view.getHeight());
+            view.draw(canvas);
+            return canvas.getReport();
+        } finally {
+            view.setIdleCacheEnabled(idleCache);
+            view.setThumbFraction(previous);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.appscumen.example;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+
+/**
+ * Compares every switch of <code>res/layout/main.xml</code>, each a different
+ * style, against golden images with the thumb off, halfway and on.
+ *
+ * Goldens live in <code>tests/assets/golden/&lt;dpi&gt;/</code>, named after the
+ * position of the switch in the layout, its id and the thumb state. A missing
+ * golden, and the actual rendering of a mismatch, are written to the app's
+ * external files directory under <code>golden/&lt;dpi&gt;/</code> and the test
+ * fails; pull them with adb and check the reviewed images in. A density with
+ * no golden directory at all is not checked: its renderings are only recorded,
+ * so goldens for a new density can be pulled from a first run.
+ */
+public class MySwitchGoldenTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    private static final String TAG = "MySwitchGoldenTest";
+    // largest per channel difference that still counts as equal, for text antialiasing
+    private static final int TOLERANCE = 2;
+    private static final float[] FRACTIONS = { 0f, 0.5f, 1f };
+    private static final String[] STATES = { "off", "half", "on" };
+
+    public MySwitchGoldenTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    public void testSwitchesMatchGoldens() throws IOException {
+        final AndroidSwitchDemoActivity activity = getActivity();
+        getInstrumentation().waitForIdleSync();
+        final List<MySwitch> switches = SwitchTestUtils.collectSwitches(activity.getWindow().getDecorView());
+        assertFalse(switches.isEmpty());
+        final int dpi = activity.getResources().getDisplayMetrics().densityDpi;
+        final boolean checked = hasGoldens(dpi);
+        if (!checked) {
+            Log.w(TAG, "no goldens for " + dpi + " dpi, only recording");
+        }
+        final List<String> failures = new ArrayList<String>();
+        for (int i = 0; i < switches.size(); i++) {
+            final MySwitch view = switches.get(i);
+            final String id = view.getId() > 0 ? activity.getResources().getResourceEntryName(view.getId()) : "noid";
+            for (int state = 0; state < FRACTIONS.length; state++) {
+                final String name = "golden/" + dpi + "/" + i + "-" + id + "-" + STATES[state] + ".png";
+                final float fraction = FRACTIONS[state];
+                final Bitmap[] actual = new Bitmap[1];
+                getInstrumentation().runOnMainSync(new Runnable() {
+                    public void run() {
+                        actual[0] = SwitchSnapshot.render(view, fraction);
+                    }
+                });
+                String failure = null;
+                if (checked) {
+                    failure = compare(name, actual[0]);
+                } else {
+                    record(name, actual[0]);
+                }
+                if (failure != null) {
+                    failures.add(failure);
+                }
+                actual[0].recycle();
+            }
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    /**
+     * @return null if the rendering matches its golden, else what went wrong
+     */
+    private String compare(String name, Bitmap actual) throws IOException {
+        Bitmap expected = loadGolden(name);
+        if (expected == null) {
+            return "no golden " + name + ", recorded " + record(name, actual);
+        }
+        int different = SwitchSnapshot.countDifferentPixels(actual, expected, TOLERANCE);
+        expected.recycle();
+        if (different != 0) {
+            return name + ": " + (different < 0 ? "size differs" : different + " pixels differ")
+                    + ", actual in " + record(name, actual);
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the test assets hold a golden directory for the density
+     */
+    private boolean hasGoldens(int dpi) throws IOException {
+        return Arrays.asList(getInstrumentation().getContext().getAssets().list("golden"))
+                .contains(String.valueOf(dpi));
+    }
+
+    private Bitmap loadGolden(String name) {
+        InputStream in = null;
+        try {
+            in = getInstrumentation().getContext().getAssets().open(name);
+            return BitmapFactory.decodeStream(in);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            BufferDiskCache.close(in);
+        }
+    }
+
+    private File record(String name, Bitmap bitmap) throws IOException {
+        File file = new File(getActivity().getExternalFilesDir(null), name);
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,127 @@
+package com.appscumen.example;
+
+import java.util.List;
+
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Hides or detaches a switch while its thumb animates and checks that the
+ * animation ends at once: the frame updater is no longer posted and the thumb
+ * rests where the animation would have ended.
+ */
+public class MySwitchHiddenAnimationTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    // ms
+    private static final long SETTLE_TIMEOUT = 2000;
+    private static final long FRAMES_WAIT = 200;
+
+    private MySwitch mView;
+    // thumb fractions of the settled switch, unchecked and checked
+    private float mOffFraction;
+    private float mOnFraction;
+
+    public MySwitchHiddenAnimationTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getActivity();
+        getInstrumentation().waitForIdleSync();
+        List<MySwitch> switches = SwitchTestUtils.collectSwitches(getActivity().getWindow().getDecorView());
+        assertFalse("main.xml has no switches", switches.isEmpty());
+        mView = switches.get(0);
+        SwitchTestUtils.scrollOnScreen(getInstrumentation(), mView);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                // animate whatever the battery says
+                mView.setPowerMode(MySwitch.POWER_MODE_FULL);
+            }
+        });
+        mOnFraction = settle(true);
+        mOffFraction = settle(false);
+        assertTrue(mOnFraction != mOffFraction);
+    }
+
+    public void testHidingEndsAnimation() {
+        assertAnimationEndsOn(new Runnable() {
+            public void run() {
+                mView.setVisibility(View.INVISIBLE);
+            }
+        });
+    }
+
+    public void testHidingParentEndsAnimation() {
+        assertAnimationEndsOn(new Runnable() {
+            public void run() {
+                ((View) mView.getParent()).setVisibility(View.GONE);
+            }
+        });
+    }
+
+    public void testDetachingEndsAnimation() {
+        assertAnimationEndsOn(new Runnable() {
+            public void run() {
+                ((ViewGroup) mView.getParent()).removeView(mView);
+            }
+        });
+    }
+
+    /**
+     * Starts the animation to the checked state and runs <code>hide</code> within
+     * the same message, before the first animation frame.
+     */
+    private void assertAnimationEndsOn(final Runnable hide) {
+        final boolean[] started = new boolean[1];
+        final boolean[] moving = new boolean[1];
+        final float[] fraction = new float[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mView.setChecked(true);
+                started[0] = mView.mRunning;
+                hide.run();
+                moving[0] = mView.isMoving();
+                fraction[0] = mView.getThumbFraction();
+            }
+        });
+        assertTrue("the animation did not start", started[0]);
+        assertFalse("still animating once hidden", moving[0]);
+        assertEquals(mOnFraction, fraction[0], 0.001f);
+
+        // a frame updater left in the queue would move the thumb again
+        SystemClock.sleep(FRAMES_WAIT);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                moving[0] = mView.isMoving();
+                fraction[0] = mView.getThumbFraction();
+            }
+        });
+        assertFalse(moving[0]);
+        assertEquals(mOnFraction, fraction[0], 0.001f);
+        assertTrue(mView.isChecked());
+    }
+
+    /**
+     * Animates the switch to a checked state and waits for the end.
+     *
+     * @return the thumb fraction it rests at
+     */
+    private float settle(final boolean checked) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mView.setChecked(checked);
+            }
+        });
+        assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mView, SETTLE_TIMEOUT));
+        final float[] fraction = new float[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                fraction[0] = mView.getThumbFraction();
+            }
+        });
+        return fraction[0];
+    }
+}
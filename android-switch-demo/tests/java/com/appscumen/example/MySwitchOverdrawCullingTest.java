@@ -0,0 +1,94 @@
+package com.appscumen.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.graphics.Bitmap;
+import android.test.ActivityInstrumentationTestCase2;
+
+/**
+ * Renders every switch of <code>res/layout/main.xml</code> with overdraw culling
+ * on and off, see {@link MySwitch#setOverdrawCulling(boolean)}, and checks that
+ * the two renderings are the same pixels. Culling only skips what the opaque
+ * body of the thumb covers, so it must never show. It must also draw less: no
+ * switch may draw more pixels with culling, and the demo as a whole must draw
+ * fewer.
+ */
+public class MySwitchOverdrawCullingTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    // thumb positions in between the ends move the culled area across the labels
+    private static final float[] FRACTIONS = { 0f, 0.25f, 0.5f, 0.75f, 1f };
+
+    public MySwitchOverdrawCullingTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    public void testCullingDoesNotChangePixels() {
+        final AndroidSwitchDemoActivity activity = getActivity();
+        getInstrumentation().waitForIdleSync();
+        final List<MySwitch> switches = SwitchTestUtils.collectSwitches(activity.getWindow().getDecorView());
+        assertFalse(switches.isEmpty());
+        final List<String> failures = new ArrayList<String>();
+        for (int i = 0; i < switches.size(); i++) {
+            final MySwitch view = switches.get(i);
+            for (final float fraction : FRACTIONS) {
+                final Bitmap[] rendered = new Bitmap[2];
+                getInstrumentation().runOnMainSync(new Runnable() {
+                    public void run() {
+                        final boolean culling = view.isOverdrawCulling();
+                        try {
+                            view.setOverdrawCulling(true);
+                            rendered[0] = SwitchSnapshot.render(view, fraction);
+                            view.setOverdrawCulling(false);
+                            rendered[1] = SwitchSnapshot.render(view, fraction);
+                        } finally {
+                            view.setOverdrawCulling(culling);
+                        }
+                    }
+                });
+                final int different = SwitchSnapshot.countDifferentPixels(rendered[0], rendered[1], 0);
+                if (different != 0) {
+                    failures.add("switch " + i + " at " + fraction + ": " + different + " pixels differ");
+                }
+                rendered[0].recycle();
+                rendered[1].recycle();
+            }
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    public void testCullingLowersOverdraw() {
+        final AndroidSwitchDemoActivity activity = getActivity();
+        getInstrumentation().waitForIdleSync();
+        final List<MySwitch> switches = SwitchTestUtils.collectSwitches(activity.getWindow().getDecorView());
+        assertFalse(switches.isEmpty());
+        final List<String> failures = new ArrayList<String>();
+        long unculledDraws = 0;
+        long culledDraws = 0;
+        for (int i = 0; i < switches.size(); i++) {
+            final MySwitch view = switches.get(i);
+            // lazily loaded switches have nothing to draw until they are shown
+            SwitchTestUtils.scrollOnScreen(getInstrumentation(), view);
+            for (final float fraction : FRACTIONS) {
+                final CountingCanvas.Report[] reports = new CountingCanvas.Report[2];
+                getInstrumentation().runOnMainSync(new Runnable() {
+                    public void run() {
+                        CountingCanvas.Report[] measured = SwitchSnapshot.measureOverdraw(view, fraction);
+                        reports[0] = measured[0];
+                        reports[1] = measured[1];
+                    }
+                });
+                final CountingCanvas.Report unculled = reports[0];
+                final CountingCanvas.Report culled = reports[1];
+                if (culled.pixelDraws > unculled.pixelDraws
+                        || culled.overdrawnPixels > unculled.overdrawnPixels) {
+                    failures.add("switch " + i + " at " + fraction + ": " + culled + " after " + unculled);
+                }
+                unculledDraws += unculled.pixelDraws;
+                culledDraws += culled.pixelDraws;
+            }
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertTrue("culling saved no pixel draws: " + culledDraws + " of " + unculledDraws,
+                culledDraws < unculledDraws);
+    }
+}
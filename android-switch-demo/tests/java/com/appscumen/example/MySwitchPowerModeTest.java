@@ -0,0 +1,184 @@
+package com.appscumen.example;
+
+import java.util.List;
+
+import android.test.ActivityInstrumentationTestCase2;
+
+/**
+ * Forces the power state {@link MySwitch#POWER_MODE_AUTO} follows, with
+ * {@link MySwitch#setPowerStateProvider(MySwitch.PowerStateProvider)}, and
+ * checks the mode each state animates in and the frames it counts as saved.
+ */
+public class MySwitchPowerModeTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    // ms
+    private static final long SETTLE_TIMEOUT = 2000;
+    // frames a tick of POWER_MODE_REDUCED stands in for, besides its own
+    private static final int FRAMES_PER_REDUCED_TICK = 80 / 16 - 1;
+
+    private MySwitch mView;
+    private float mOnFraction;
+    private AnimationFrameStats mStats;
+    private final MySwitch.OnAnimationStatsListener mStatsListener = new MySwitch.OnAnimationStatsListener() {
+        public void onAnimationStats(MySwitch view, AnimationFrameStats stats) {
+            mStats = stats;
+        }
+    };
+
+    public MySwitchPowerModeTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getActivity();
+        getInstrumentation().waitForIdleSync();
+        List<MySwitch> switches = SwitchTestUtils.collectSwitches(getActivity().getWindow().getDecorView());
+        assertFalse("main.xml has no switches", switches.isEmpty());
+        mView = switches.get(0);
+        SwitchTestUtils.scrollOnScreen(getInstrumentation(), mView);
+        onMain(new Runnable() {
+            public void run() {
+                mView.setPowerMode(MySwitch.POWER_MODE_FULL);
+                mView.setChecked(true);
+            }
+        });
+        assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mView, SETTLE_TIMEOUT));
+        onMain(new Runnable() {
+            public void run() {
+                mOnFraction = mView.getThumbFraction();
+                mView.setChecked(false);
+            }
+        });
+        assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mView, SETTLE_TIMEOUT));
+        onMain(new Runnable() {
+            public void run() {
+                mView.setPowerMode(MySwitch.POWER_MODE_AUTO);
+                mView.setOnAnimationStatsListener(mStatsListener);
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        onMain(new Runnable() {
+            public void run() {
+                MySwitch.setPowerStateProvider(null);
+                mView.setPowerMode(MySwitch.POWER_MODE_DEFAULT);
+                mView.setOnAnimationStatsListener(null);
+            }
+        });
+        super.tearDown();
+    }
+
+    public void testNormalStateAnimatesEveryFrame() {
+        setPowerState(MySwitch.PowerStateProvider.POWER_STATE_NORMAL);
+        final long saved = savedFrames();
+        final int[] mode = startAnimation();
+        assertEquals(MySwitch.POWER_MODE_FULL, mode[0]);
+        assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mView, SETTLE_TIMEOUT));
+        assertEquals(saved, savedFrames());
+    }
+
+    public void testLowStateReducesTheFrameRate() {
+        setPowerState(MySwitch.PowerStateProvider.POWER_STATE_LOW);
+        final long saved = savedFrames();
+        final long totalSaved = MySwitch.getTotalSavedFrameCount();
+        final int[] mode = startAnimation();
+        assertEquals(MySwitch.POWER_MODE_REDUCED, mode[0]);
+        assertEquals("the animation did not start", 1, mode[1]);
+        assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mView, SETTLE_TIMEOUT));
+
+        final AnimationFrameStats stats = stats();
+        assertNotNull(stats);
+        assertTrue(stats.getFrameCount() > 1);
+        // every tick but the first was posted a reduced frame interval later
+        final long expected = (long) FRAMES_PER_REDUCED_TICK * (stats.getFrameCount() - 1);
+        assertEquals(expected, savedFrames() - saved);
+        assertEquals(expected, MySwitch.getTotalSavedFrameCount() - totalSaved);
+        // the spaced ticks are not missed deadlines
+        assertTrue(stats.getFrameDeadline() >= 80);
+        assertEquals(mOnFraction, thumbFraction(), 0.001f);
+    }
+
+    public void testCriticalStateSkipsTheAnimation() {
+        setPowerState(MySwitch.PowerStateProvider.POWER_STATE_CRITICAL);
+        final long saved = savedFrames();
+        final long totalSaved = MySwitch.getTotalSavedFrameCount();
+        final float[] fraction = new float[1];
+        final int[] mode = startAnimation(fraction);
+        assertEquals(MySwitch.POWER_MODE_INSTANT, mode[0]);
+        assertEquals("the instant transition animated", 0, mode[1]);
+        assertEquals(mOnFraction, fraction[0], 0.001f);
+
+        final long savedNow = savedFrames() - saved;
+        assertTrue(savedNow > 0);
+        assertEquals(savedNow, MySwitch.getTotalSavedFrameCount() - totalSaved);
+        assertNull(stats());
+    }
+
+    private void setPowerState(final int state) {
+        MySwitch.setPowerStateProvider(new MySwitch.PowerStateProvider() {
+            public int getPowerState() {
+                return state;
+            }
+        });
+    }
+
+    private int[] startAnimation() {
+        return startAnimation(new float[1]);
+    }
+
+    /**
+     * Checks the switch in one message, before its first animation frame.
+     *
+     * @param fraction receives the thumb fraction right after the change
+     * @return the power mode of the animation, then 1 if it is running, else 0
+     */
+    private int[] startAnimation(final float[] fraction) {
+        final int[] mode = new int[2];
+        onMain(new Runnable() {
+            public void run() {
+                mView.setChecked(true);
+                mode[0] = mView.mAnimPowerMode;
+                mode[1] = mView.mRunning ? 1 : 0;
+                fraction[0] = mView.getThumbFraction();
+            }
+        });
+        return mode;
+    }
+
+    private long savedFrames() {
+        final long[] saved = new long[1];
+        onMain(new Runnable() {
+            public void run() {
+                saved[0] = mView.getSavedFrameCount();
+            }
+        });
+        return saved[0];
+    }
+
+    private float thumbFraction() {
+        final float[] fraction = new float[1];
+        onMain(new Runnable() {
+            public void run() {
+                fraction[0] = mView.getThumbFraction();
+            }
+        });
+        return fraction[0];
+    }
+
+    private AnimationFrameStats stats() {
+        final AnimationFrameStats[] stats = new AnimationFrameStats[1];
+        onMain(new Runnable() {
+            public void run() {
+                stats[0] = mStats;
+            }
+        });
+        return stats[0];
+    }
+
+    private void onMain(Runnable runnable) {
+        getInstrumentation().runOnMainSync(runnable);
+    }
+}
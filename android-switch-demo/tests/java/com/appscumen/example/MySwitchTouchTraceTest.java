@@ -0,0 +1,107 @@
+package com.appscumen.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import android.graphics.Rect;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.MotionEvent;
+
+/**
+ * Replays the touch traces in <code>tests/assets/traces/</code> onto the thumb of
+ * the first switch and checks where the thumb comes to rest, so changes to the
+ * drag, velocity and fling handling of {@link MySwitch} that change the outcome
+ * of a recorded gesture fail here.
+ *
+ * Trace coordinates are relative to the centre of the thumb's touch target at
+ * the down event; a trace recorded with {@link MySwitch#setTouchTrace(TouchTrace)}
+ * must be shifted by that centre before it is checked in.
+ */
+public class MySwitchTouchTraceTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    private static final long SETTLE_TIMEOUT = 3000;
+
+    private MySwitch mSwitch;
+
+    public MySwitchTouchTraceTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getActivity();
+        getInstrumentation().waitForIdleSync();
+        mSwitch = SwitchTestUtils.collectSwitches(getActivity().getWindow().getDecorView()).get(0);
+        restThumbAtStart();
+    }
+
+    public void testFlingRightMovesTheThumbToTheEnd() throws IOException {
+        replay("traces/fling-right.trace");
+        assertEquals(1f, mSwitch.getThumbFraction(), 0.001f);
+    }
+
+    public void testDragAndReturnLeavesTheThumbAtTheStart() throws IOException {
+        final boolean checked = mSwitch.isChecked();
+        replay("traces/drag-and-return.trace");
+        assertEquals(0f, mSwitch.getThumbFraction(), 0.001f);
+        assertEquals(checked, mSwitch.isChecked());
+    }
+
+    public void testTraceSurvivesWriteAndRead() throws IOException {
+        TouchTrace trace = load("traces/fling-right.trace");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.writeTo(out);
+        TouchTrace copy = TouchTrace.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(trace.getEventCount(), copy.getEventCount());
+        assertEquals(trace.getSampleCount(), copy.getSampleCount());
+        for (int i = 0; i < trace.getEventCount(); i++) {
+            assertEquals(trace.getAction(i), copy.getAction(i));
+        }
+    }
+
+    /**
+     * Puts the thumb at rest at the start of its range, checked or not.
+     */
+    private void restThumbAtStart() {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mSwitch, SETTLE_TIMEOUT));
+            if (mSwitch.getThumbFraction() == 0f) {
+                return;
+            }
+            getInstrumentation().runOnMainSync(new Runnable() {
+                public void run() {
+                    mSwitch.setChecked(!mSwitch.isChecked());
+                }
+            });
+        }
+        fail("thumb does not rest at the start in either state");
+    }
+
+    private void replay(String name) throws IOException {
+        final TouchTrace trace = load(name);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                Rect target = new Rect();
+                mSwitch.getThumbHitRect(target);
+                for (int i = 0; i < trace.getEventCount(); i++) {
+                    MotionEvent ev = trace.obtainEvent(i);
+                    ev.offsetLocation(target.exactCenterX(), target.exactCenterY());
+                    mSwitch.onTouchEvent(ev);
+                    ev.recycle();
+                }
+            }
+        });
+        assertTrue(SwitchTestUtils.waitUntilSettled(getInstrumentation(), mSwitch, SETTLE_TIMEOUT));
+    }
+
+    private TouchTrace load(String name) throws IOException {
+        InputStream in = getInstrumentation().getContext().getAssets().open(name);
+        try {
+            return TouchTrace.readFrom(in);
+        } finally {
+            in.close();
+        }
+    }
+}
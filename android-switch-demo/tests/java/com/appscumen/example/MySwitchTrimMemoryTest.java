@@ -0,0 +1,106 @@
+package com.appscumen.example;
+
+import java.util.List;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+
+/**
+ * Checks which switches release their offscreen bitmaps at each memory trim
+ * level, see {@link MySwitch#trimMemory(int)}, and that dropped bitmaps are
+ * rendered again outside of the draw.
+ */
+public class MySwitchTrimMemoryTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    private MySwitch mShown;
+    private MySwitch mHidden;
+
+    public MySwitchTrimMemoryTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        AndroidSwitchDemoActivity activity = getActivity();
+        getInstrumentation().waitForIdleSync();
+        List<MySwitch> buffered = SwitchTestUtils.collectBufferedSwitches(
+                activity.getWindow().getDecorView());
+        assertTrue("main.xml needs two switches with offscreen bitmaps", buffered.size() >= 2);
+        mShown = buffered.get(0);
+        mHidden = buffered.get(1);
+        SwitchTestUtils.scrollOnScreen(getInstrumentation(), mShown);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mHidden.setVisibility(View.INVISIBLE);
+            }
+        });
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testRunningModerateDropsHiddenSwitchesOnly() {
+        assertDropped(MySwitch.TRIM_MEMORY_RUNNING_MODERATE, false);
+    }
+
+    public void testRunningLowDropsHiddenSwitchesOnly() {
+        assertDropped(MySwitch.TRIM_MEMORY_RUNNING_LOW, false);
+    }
+
+    public void testRunningCriticalDropsAllSwitches() {
+        assertDropped(MySwitch.TRIM_MEMORY_RUNNING_CRITICAL, true);
+    }
+
+    public void testUiHiddenDropsHiddenSwitchesOnly() {
+        assertDropped(MySwitch.TRIM_MEMORY_UI_HIDDEN, false);
+    }
+
+    public void testBackgroundDropsHiddenSwitchesOnly() {
+        assertDropped(MySwitch.TRIM_MEMORY_BACKGROUND, false);
+    }
+
+    public void testModerateDropsAllSwitches() {
+        assertDropped(MySwitch.TRIM_MEMORY_MODERATE, true);
+    }
+
+    public void testCompleteDropsAllSwitches() {
+        assertDropped(MySwitch.TRIM_MEMORY_COMPLETE, true);
+    }
+
+    public void testDroppedBuffersAreRebuiltAfterTheDraw() throws InterruptedException {
+        // a severe level trimmed by an earlier test holds the rebuild off
+        Thread.sleep(MySwitch.LOW_MEMORY_HOLD_OFF);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                MySwitch.trimMemory(MySwitch.TRIM_MEMORY_BACKGROUND);
+                assertTrue(SwitchTestUtils.hasNoBuffers(mHidden));
+                mHidden.setVisibility(View.VISIBLE);
+            }
+        });
+        SwitchTestUtils.scrollOnScreen(getInstrumentation(), mHidden);
+        // the first draw goes without the bitmaps and posts the rebuild
+        getInstrumentation().waitForIdleSync();
+        assertFalse(SwitchTestUtils.hasNoBuffers(mHidden));
+    }
+
+    /**
+     * Trims at <code>level</code> and checks the bitmaps right away, before a
+     * draw could post their rebuild.
+     */
+    private void assertDropped(final int level, final boolean shownDropped) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                MySwitch.trimMemory(level);
+                SwitchMemoryInfo shown = mShown.getMemoryInfo();
+                SwitchMemoryInfo hidden = mHidden.getMemoryInfo();
+                assertEquals("hidden switch bitmaps at level " + level, 0, hidden.getBitmapBytes());
+                assertEquals("hidden switch temp bitmap at level " + level, 0, hidden.getTempBitmapBytes());
+                assertEquals("hidden switch push bitmap at level " + level, 0, hidden.getPushBitmapBytes());
+                if (shownDropped) {
+                    assertEquals("shown switch bitmaps at level " + level, 0, shown.getBitmapBytes());
+                } else {
+                    assertTrue("shown switch keeps its bitmaps at level " + level,
+                            shown.getBitmapBytes() > 0);
+                }
+            }
+        });
+    }
+}
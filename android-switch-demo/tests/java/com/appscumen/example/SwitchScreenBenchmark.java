@@ -0,0 +1,275 @@
+package com.appscumen.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.ViewGroup;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
+
+/**
+ * Scrolls a screen holding hundreds of switches and reports what each frame
+ * costs, as a baseline for rendering and memory work on {@link MySwitch}.
+ *
+ * The screen repeats the content of <code>res/layout/main.xml</code>, so every
+ * switch configuration of the demo appears in its usual proportion, until it
+ * holds the requested number of switches. It is not attached to a window: each
+ * frame measures and lays out the screen the way a traversal would, which skips
+ * the views that did not change, scrolls by a fixed step and draws the visible
+ * part into a bitmap the size of the display. Nothing forces a layout, which
+ * would make every switch lay out and rebuild its buffers on each frame.
+ * Allocations are counted on the calling thread for the whole run.
+ *
+ * Must be called on the UI thread. The first frame builds the switch buffers
+ * and is reported on its own, the means cover the frames after it.
+ */
+public final class SwitchScreenBenchmark {
+    private static final String TAG = "SwitchScreenBenchmark";
+    // screen sizes of runAll
+    static final int[] SWITCH_COUNTS = { 100, 500, 1000 };
+    // scroll distance per frame, about a brisk fling
+    private static final int SCROLL_STEP_DP = 48;
+
+    /**
+     * The outcome of one run. Times are in nanoseconds.
+     */
+    public static final class Result {
+        private final int  mSwitchCount;
+        private final int  mFrameCount;
+        private final long mFirstFrameNanos;
+        private final long mMeasureNanos;
+        private final long mLayoutNanos;
+        private final long mDrawNanos;
+        private final long mMaxFrameNanos;
+        private final int  mAllocCount;
+        private final long mAllocBytes;
+        private final long mBitmapBytes;
+
+        Result(int switchCount, int frameCount, long firstFrameNanos, long measureNanos,
+                long layoutNanos, long drawNanos, long maxFrameNanos, int allocCount,
+                long allocBytes, long bitmapBytes) {
+            mSwitchCount = switchCount;
+            mFrameCount = frameCount;
+            mFirstFrameNanos = firstFrameNanos;
+            mMeasureNanos = measureNanos;
+            mLayoutNanos = layoutNanos;
+            mDrawNanos = drawNanos;
+            mMaxFrameNanos = maxFrameNanos;
+            mAllocCount = allocCount;
+            mAllocBytes = allocBytes;
+            mBitmapBytes = bitmapBytes;
+        }
+
+        /**
+         * Returns the number of switches on the screen.
+         */
+        public int getSwitchCount() {
+            return mSwitchCount;
+        }
+
+        /**
+         * Returns the number of frames after the first one.
+         */
+        public int getFrameCount() {
+            return mFrameCount;
+        }
+
+        /**
+         * Returns the time of the first frame, which builds the buffers of every switch.
+         */
+        public long getFirstFrameNanos() {
+            return mFirstFrameNanos;
+        }
+
+        /**
+         * Returns the mean measure time per frame.
+         */
+        public long getMeanMeasureNanos() {
+            return mFrameCount == 0 ? 0 : mMeasureNanos / mFrameCount;
+        }
+
+        /**
+         * Returns the mean layout time per frame.
+         */
+        public long getMeanLayoutNanos() {
+            return mFrameCount == 0 ? 0 : mLayoutNanos / mFrameCount;
+        }
+
+        /**
+         * Returns the mean draw time per frame.
+         */
+        public long getMeanDrawNanos() {
+            return mFrameCount == 0 ? 0 : mDrawNanos / mFrameCount;
+        }
+
+        /**
+         * Returns the longest frame after the first one.
+         */
+        public long getMaxFrameNanos() {
+            return mMaxFrameNanos;
+        }
+
+        /**
+         * Returns the number of objects allocated during the run, the first frame included.
+         */
+        public int getAllocCount() {
+            return mAllocCount;
+        }
+
+        /**
+         * Returns the bytes allocated during the run, the first frame included.
+         */
+        public long getAllocBytes() {
+            return mAllocBytes;
+        }
+
+        /**
+         * Returns the bitmap bytes held by the switches at the end of the run, see
+         * {@link SwitchMemoryInfo#getBitmapBytes()}.
+         */
+        public long getBitmapBytes() {
+            return mBitmapBytes;
+        }
+
+        @Override
+        public String toString() {
+            return mSwitchCount + " switches: first frame " + mFirstFrameNanos / 1000
+                    + " us, per frame measure " + getMeanMeasureNanos() / 1000
+                    + " us, layout " + getMeanLayoutNanos() / 1000
+                    + " us, draw " + getMeanDrawNanos() / 1000
+                    + " us, max " + mMaxFrameNanos / 1000
+                    + " us; " + mAllocCount + " allocations, " + mAllocBytes / 1024
+                    + " KB; bitmaps " + mBitmapBytes / 1024 + " KB";
+        }
+    }
+
+    private SwitchScreenBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark for 100, 500 and 1000 switches and logs the results.
+     *
+     * @param frames the number of frames to time per screen, after the first one
+     */
+    public static Result[] runAll(Context context, int frames) {
+        Result[] results = new Result[SWITCH_COUNTS.length];
+        for (int i = 0; i < SWITCH_COUNTS.length; i++) {
+            results[i] = run(context, SWITCH_COUNTS[i], frames);
+            Log.d(TAG, results[i].toString());
+        }
+        return results;
+    }
+
+    /**
+     * Builds a screen of <code>switchCount</code> switches and scrolls it down and
+     * back up for <code>frames</code> frames.
+     */
+    public static Result run(Context context, int switchCount, int frames) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        final int width = metrics.widthPixels;
+        final int height = metrics.heightPixels;
+        final int widthSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+        final int heightSpec = MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY);
+        final int step = (int) (SCROLL_STEP_DP * metrics.density + 0.5f);
+
+        ArrayList<MySwitch> switches = new ArrayList<MySwitch>(switchCount);
+        ScrollView screen = inflateScreen(context, switchCount, switches);
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        long firstFrame = 0, measure = 0, layout = 0, draw = 0, maxFrame = 0;
+        int range = 0;
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            for (int frame = 0; frame <= frames; frame++) {
+                long start = System.nanoTime();
+                screen.measure(widthSpec, heightSpec);
+                long measured = System.nanoTime();
+                screen.layout(0, 0, width, height);
+                long laidOut = System.nanoTime();
+                if (frame == 0) {
+                    range = Math.max(0, screen.getChildAt(0).getMeasuredHeight() - height);
+                }
+                screen.scrollTo(0, scrollPosition(frame, step, range));
+                screen.draw(canvas);
+                long drawn = System.nanoTime();
+
+                if (frame == 0) {
+                    firstFrame = drawn - start;
+                } else {
+                    measure += measured - start;
+                    layout += laidOut - measured;
+                    draw += drawn - laidOut;
+                    maxFrame = Math.max(maxFrame, drawn - start);
+                }
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        final int allocCount = Debug.getThreadAllocCount();
+        final long allocBytes = Debug.getThreadAllocSize();
+
+        long bitmapBytes = 0;
+        for (MySwitch view : switches) {
+            bitmapBytes += view.getMemoryInfo().getBitmapBytes();
+        }
+        bitmap.recycle();
+        return new Result(switches.size(), frames, firstFrame, measure, layout, draw, maxFrame,
+                allocCount, allocBytes, bitmapBytes);
+    }
+
+    /**
+     * Stacks copies of the content of <code>main.xml</code> in a scroll view until
+     * it holds <code>switchCount</code> switches.
+     *
+     * @param switches receives the switches of the screen
+     */
+    static ScrollView inflateScreen(Context context, int switchCount, List<MySwitch> switches) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        LinearLayout content = new LinearLayout(context);
+        content.setOrientation(LinearLayout.VERTICAL);
+        while (switches.size() < switchCount) {
+            ScrollView copy = (ScrollView) inflater.inflate(R.layout.main, null);
+            View page = copy.getChildAt(0);
+            copy.removeView(page);
+            int before = switches.size();
+            SwitchTestUtils.collectSwitches(page, switches);
+            if (switches.size() == before) {
+                throw new IllegalStateException("main.xml holds no switches");
+            }
+            content.addView(page);
+        }
+        // the last copy may go over the count
+        while (switches.size() > switchCount) {
+            MySwitch extra = switches.remove(switches.size() - 1);
+            ((ViewGroup) extra.getParent()).removeView(extra);
+        }
+        ScrollView screen = new ScrollView(context);
+        screen.addView(content, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.FILL_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        return screen;
+    }
+
+    /**
+     * @return the scroll position of a frame, moving down by <code>step</code> and
+     *         turning back at either end of the content
+     */
+    private static int scrollPosition(int frame, int step, int range) {
+        if (range == 0) {
+            return 0;
+        }
+        int position = (int) ((long) frame * step % (2L * range));
+        return position > range ? 2 * range - position : position;
+    }
+}
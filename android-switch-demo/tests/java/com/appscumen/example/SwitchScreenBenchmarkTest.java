@@ -0,0 +1,31 @@
+package com.appscumen.example;
+
+import android.test.ActivityInstrumentationTestCase2;
+
+/**
+ * Runs {@link SwitchScreenBenchmark} for each of its screen sizes; the results
+ * are logged under the tag of the benchmark.
+ */
+public class SwitchScreenBenchmarkTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    private static final int FRAMES = 120;
+
+    public SwitchScreenBenchmarkTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    public void testScrollScreens() {
+        final AndroidSwitchDemoActivity activity = getActivity();
+        getInstrumentation().waitForIdleSync();
+        final SwitchScreenBenchmark.Result[][] results = new SwitchScreenBenchmark.Result[1][];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                results[0] = SwitchScreenBenchmark.runAll(activity, FRAMES);
+            }
+        });
+        assertEquals(SwitchScreenBenchmark.SWITCH_COUNTS.length, results[0].length);
+        for (int i = 0; i < results[0].length; i++) {
+            assertEquals(SwitchScreenBenchmark.SWITCH_COUNTS[i], results[0][i].getSwitchCount());
+            assertEquals(FRAMES, results[0][i].getFrameCount());
+        }
+    }
+}
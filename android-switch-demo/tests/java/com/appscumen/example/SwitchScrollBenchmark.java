@@ -0,0 +1,121 @@
+package com.appscumen.example;
+
+import java.util.Random;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+
+/**
+ * Replays the rebinding a ListView does while it scrolls through a long list of
+ * switch rows, to compare {@link MySwitch#setChecked(boolean)} with
+ * {@link MySwitch#bindChecked(boolean)}.
+ *
+ * A small pool of switches stands in for the recycled row views. Every item of
+ * the list is bound to the next switch of the pool and drawn, like a row
+ * scrolling into view. The item states are random but the same for every run
+ * with the same item count.
+ *
+ * Must be called on the UI thread with switches that are attached to a window
+ * and laid out; a detached switch never animates, which would hide the cost of
+ * {@link MySwitch#setChecked(boolean)}.
+ */
+public final class SwitchScrollBenchmark {
+
+    /**
+     * The outcome of one run.
+     */
+    public static final class Result {
+        private final int  mItemCount;
+        private final long mElapsedNanos;
+        private final int  mAnimationsStarted;
+
+        Result(int itemCount, long elapsedNanos, int animationsStarted) {
+            mItemCount = itemCount;
+            mElapsedNanos = elapsedNanos;
+            mAnimationsStarted = animationsStarted;
+        }
+
+        /**
+         * Returns the number of items bound.
+         */
+        public int getItemCount() {
+            return mItemCount;
+        }
+
+        /**
+         * Returns the time spent binding and drawing all items, in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return mElapsedNanos;
+        }
+
+        /**
+         * Returns the mean time to bind and draw one item, in nanoseconds.
+         */
+        public long getNanosPerItem() {
+            return mItemCount == 0 ? 0 : mElapsedNanos / mItemCount;
+        }
+
+        /**
+         * Returns the number of binds that left a thumb animation running.
+         */
+        public int getAnimationsStarted() {
+            return mAnimationsStarted;
+        }
+
+        @Override
+        public String toString() {
+            return mItemCount + " items, " + getNanosPerItem() / 1000 + " us/item, "
+                    + mAnimationsStarted + " animations started";
+        }
+    }
+
+    private SwitchScrollBenchmark() {
+    }
+
+    /**
+     * Binds <code>itemCount</code> items to the pool of switches in turn.
+     * Afterwards every switch of the pool is left at rest in the state of its
+     * last item.
+     *
+     * @param pool      the recycled row views
+     * @param itemCount the number of list items to scroll through, a few
+     *                  thousand for stable figures
+     * @param useBind   true to bind with {@link MySwitch#bindChecked(boolean)},
+     *                  false to bind with {@link MySwitch#setChecked(boolean)}
+     */
+    public static Result run(MySwitch[] pool, int itemCount, boolean useBind) {
+        int width = 1, height = 1;
+        for (MySwitch view : pool) {
+            width = Math.max(width, view.getWidth());
+            height = Math.max(height, view.getHeight());
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Random states = new Random(itemCount);
+
+        int animations = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < itemCount; i++) {
+            MySwitch view = pool[i % pool.length];
+            boolean checked = states.nextBoolean();
+            if (useBind) {
+                view.bindChecked(checked);
+            } else {
+                view.setChecked(checked);
+            }
+            view.draw(canvas);
+            if (view.mRunning) {
+                animations++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (MySwitch view : pool) {
+            view.bindChecked(view.isChecked());
+        }
+        bitmap.recycle();
+        return new Result(itemCount, elapsed, animations);
+    }
+}
@@ -0,0 +1,44 @@
+package com.appscumen.example;
+
+import java.util.List;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+
+/**
+ * Runs {@link SwitchScrollBenchmark} on the switches of the demo screen, with
+ * {@link MySwitch#setChecked(boolean)} and with {@link MySwitch#bindChecked(boolean)},
+ * and logs both figures under the tag of this class.
+ */
+public class SwitchScrollBenchmarkTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    private static final String TAG = "SwitchScrollBenchmark";
+    private static final int ITEMS = 2000;
+    private static final int POOL = 4;
+
+    public SwitchScrollBenchmarkTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    public void testBindStartsNoAnimations() {
+        getActivity();
+        getInstrumentation().waitForIdleSync();
+        List<MySwitch> switches = SwitchTestUtils.collectSwitches(getActivity().getWindow().getDecorView());
+        // the first switches of the screen are plain ones that are neither fixed nor push style
+        final MySwitch[] pool = switches.subList(0, Math.min(POOL, switches.size())).toArray(new MySwitch[0]);
+        final SwitchScrollBenchmark.Result[] results = new SwitchScrollBenchmark.Result[2];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                // warm up both paths before timing
+                SwitchScrollBenchmark.run(pool, ITEMS / 10, false);
+                SwitchScrollBenchmark.run(pool, ITEMS / 10, true);
+                results[0] = SwitchScrollBenchmark.run(pool, ITEMS, false);
+                results[1] = SwitchScrollBenchmark.run(pool, ITEMS, true);
+            }
+        });
+        Log.i(TAG, "setChecked: " + results[0]);
+        Log.i(TAG, "bindChecked: " + results[1]);
+        assertEquals(ITEMS, results[1].getItemCount());
+        assertEquals(0, results[1].getAnimationsStarted());
+        assertTrue(results[0].getAnimationsStarted() > 0);
+    }
+}
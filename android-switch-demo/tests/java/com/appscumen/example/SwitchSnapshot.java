@@ -0,0 +1,130 @@
+package com.appscumen.example;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Canvas;
+
+/**
+ * Renders a laid out {@link MySwitch} at fixed thumb positions, times the
+ * rendering and compares the result against a reference image. These are the
+ * building blocks for golden image and render cost checks of the switch
+ * configurations in <code>res/layout/main.xml</code>.
+ *
+ * All methods must be called on the UI thread, after the switch has been
+ * measured and laid out.
+ */
+public final class SwitchSnapshot {
+
+    private SwitchSnapshot() {
+    }
+
+    /**
+     * Draws the switch with its thumb at the given fraction of the scroll range.
+     * The thumb is moved back to where it was afterwards.
+     *
+     * @return a new ARGB_8888 bitmap the size of the switch
+     */
+    public static Bitmap render(MySwitch view, float thumbFraction) {
+        Bitmap bitmap = Bitmap.createBitmap(Math.max(1, view.getWidth()),
+                Math.max(1, view.getHeight()), Config.ARGB_8888);
+        final float previous = view.getThumbFraction();
+        view.setThumbFraction(thumbFraction);
+        view.draw(new Canvas(bitmap));
+        view.setThumbFraction(previous);
+        return bitmap;
+    }
+
+    /**
+     * Measures the cost of drawing the switch at the given thumb position.
+     *
+     * @param iterations number of timed draws, after one untimed warm up draw
+     * @return the mean time of one draw in nanoseconds
+     */
+    public static long timeRender(MySwitch view, float thumbFraction, int iterations) {
+        Bitmap bitmap = Bitmap.createBitmap(Math.max(1, view.getWidth()),
+                Math.max(1, view.getHeight()), Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        final float previous = view.getThumbFraction();
+        view.setThumbFraction(thumbFraction);
+        view.draw(canvas);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            view.draw(canvas);
+        }
+        long elapsed = System.nanoTime() - start;
+        view.setThumbFraction(previous);
+        bitmap.recycle();
+        return iterations == 0 ? 0 : elapsed / iterations;
+    }
+
+    /**
+     * Counts how often each pixel is drawn at the given thumb position, with
+     * overdraw culling off and on, see {@link MySwitch#setOverdrawCulling(boolean)}.
+     * The idle cache is bypassed so the switch itself is drawn both times. Text
+     * is not part of the pixel counts, nor are nine patches before API 21, see
+     * {@link CountingCanvas}.
+     *
+     * @return the report without culling, then the report with culling
+     */
+    public static CountingCanvas.Report[] measureOverdraw(MySwitch view, float thumbFraction) {
+        final boolean culling = view.isOverdrawCulling();
+        final boolean idleCache = view.isIdleCacheEnabled();
+        final float previous = view.getThumbFraction();
+        CountingCanvas canvas = new CountingCanvas(view.getWidth(), view.getHeight());
+        CountingCanvas.Report[] reports = new CountingCanvas.Report[2];
+        try {
+            view.setIdleCacheEnabled(false);
+            view.setThumbFraction(thumbFraction);
+            for (int i = 0; i < reports.length; i++) {
+                view.setOverdrawCulling(i == 1);
+                canvas.reset();
+                view.draw(canvas);
+                reports[i] = canvas.getReport();
+            }
+        } finally {
+            view.setOverdrawCulling(culling);
+            view.setIdleCacheEnabled(idleCache);
+            view.setThumbFraction(previous);
+        }
+        return reports;
+    }
+
+    /**
+     * Compares two images channel by channel.
+     *
+     * @param tolerance largest per channel difference that still counts as equal
+     * @return the number of pixels that differ by more than the tolerance, or -1
+     *         if the images have different sizes
+     */
+    public static int countDifferentPixels(Bitmap actual, Bitmap expected, int tolerance) {
+        final int width = actual.getWidth();
+        final int height = actual.getHeight();
+        if (width != expected.getWidth() || height != expected.getHeight()) {
+            return -1;
+        }
+        int[] a = new int[width];
+        int[] e = new int[width];
+        int different = 0;
+        for (int y = 0; y < height; y++) {
+            actual.getPixels(a, 0, width, 0, y, width, 1);
+            expected.getPixels(e, 0, width, 0, y, width, 1);
+            for (int x = 0; x < width; x++) {
+                if (a[x] != e[x] && channelDistance(a[x], e[x]) > tolerance) {
+                    different++;
+                }
+            }
+        }
+        return different;
+    }
+
+    private static int channelDistance(int c1, int c2) {
+        int max = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int d = Math.abs(((c1 >>> shift) & 0xff) - ((c2 >>> shift) & 0xff));
+            if (d > max) {
+                max = d;
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,126 @@
+package com.appscumen.example;
+
+import android.content.Context;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+/**
+ * Times what {@link AndroidSwitchDemoActivity#onCreate} spends on
+ * <code>setContentView(R.layout.main)</code>, with the switch drawables loaded
+ * while inflating and with them loaded on the first measure, see
+ * {@link MySwitch#setLazyResourceLoading(boolean)}.
+ *
+ * Lazy loading moves work from inflation to the first layout, so both are
+ * reported: inflation alone, and inflation followed by a measure and layout at
+ * the size of the display. Switches that are never measured, like those below
+ * the fold of a long list, only ever pay the first figure.
+ *
+ * Must be called on the UI thread. The lazy setting is restored afterwards.
+ */
+public final class SwitchStartupBenchmark {
+    private static final String TAG = "SwitchStartupBenchmark";
+
+    /**
+     * The outcome of one run. Times are means per inflation, in nanoseconds.
+     */
+    public static final class Result {
+        private final long mEagerInflateNanos;
+        private final long mEagerFirstLayoutNanos;
+        private final long mLazyInflateNanos;
+        private final long mLazyFirstLayoutNanos;
+
+        Result(long eagerInflateNanos, long eagerFirstLayoutNanos,
+                long lazyInflateNanos, long lazyFirstLayoutNanos) {
+            mEagerInflateNanos = eagerInflateNanos;
+            mEagerFirstLayoutNanos = eagerFirstLayoutNanos;
+            mLazyInflateNanos = lazyInflateNanos;
+            mLazyFirstLayoutNanos = lazyFirstLayoutNanos;
+        }
+
+        /**
+         * Returns the inflation time with drawables loaded by the constructor.
+         */
+        public long getEagerInflateNanos() {
+            return mEagerInflateNanos;
+        }
+
+        /**
+         * Returns the time of the first measure and layout after an eager inflation.
+         */
+        public long getEagerFirstLayoutNanos() {
+            return mEagerFirstLayoutNanos;
+        }
+
+        /**
+         * Returns the inflation time with drawables loaded on the first measure.
+         */
+        public long getLazyInflateNanos() {
+            return mLazyInflateNanos;
+        }
+
+        /**
+         * Returns the time of the first measure and layout after a lazy inflation.
+         */
+        public long getLazyFirstLayoutNanos() {
+            return mLazyFirstLayoutNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "eager: inflate " + mEagerInflateNanos / 1000 + " us, first layout "
+                    + mEagerFirstLayoutNanos / 1000 + " us; lazy: inflate "
+                    + mLazyInflateNanos / 1000 + " us, first layout "
+                    + mLazyFirstLayoutNanos / 1000 + " us";
+        }
+    }
+
+    private SwitchStartupBenchmark() {
+    }
+
+    /**
+     * Inflates <code>main.xml</code> <code>iterations</code> times in each mode,
+     * alternating the modes, after one untimed inflation of each.
+     */
+    public static Result run(Context context, int iterations) {
+        final boolean lazy = MySwitch.isLazyResourceLoading();
+        // [mode][0] inflation, [mode][1] first layout; mode 0 is eager
+        long[][] totals = new long[2][2];
+        try {
+            for (int i = -1; i < iterations; i++) {
+                for (int mode = 0; mode < 2; mode++) {
+                    MySwitch.setLazyResourceLoading(mode == 1);
+                    long[] times = inflate(context);
+                    if (i >= 0) {
+                        totals[mode][0] += times[0];
+                        totals[mode][1] += times[1];
+                    }
+                }
+            }
+        } finally {
+            MySwitch.setLazyResourceLoading(lazy);
+        }
+        final int n = Math.max(1, iterations);
+        Result result = new Result(totals[0][0] / n, totals[0][1] / n,
+                totals[1][0] / n, totals[1][1] / n);
+        Log.d(TAG, result.toString());
+        return result;
+    }
+
+    /**
+     * @return the inflation time and the time of the following measure and layout
+     */
+    private static long[] inflate(Context context) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        long start = System.nanoTime();
+        View root = LayoutInflater.from(context).inflate(R.layout.main, null);
+        long inflated = System.nanoTime();
+        root.measure(MeasureSpec.makeMeasureSpec(metrics.widthPixels, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(metrics.heightPixels, MeasureSpec.EXACTLY));
+        root.layout(0, 0, metrics.widthPixels, metrics.heightPixels);
+        long laidOut = System.nanoTime();
+        return new long[] { inflated - start, laidOut - inflated };
+    }
+}
@@ -0,0 +1,30 @@
+package com.appscumen.example;
+
+import android.test.ActivityInstrumentationTestCase2;
+
+/**
+ * Runs {@link SwitchStartupBenchmark} on the demo activity; the result is
+ * logged under the tag of the benchmark.
+ */
+public class SwitchStartupBenchmarkTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    private static final int ITERATIONS = 20;
+
+    public SwitchStartupBenchmarkTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    public void testInflateEagerAndLazy() {
+        final AndroidSwitchDemoActivity activity = getActivity();
+        getInstrumentation().waitForIdleSync();
+        final boolean lazy = MySwitch.isLazyResourceLoading();
+        final SwitchStartupBenchmark.Result[] result = new SwitchStartupBenchmark.Result[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                result[0] = SwitchStartupBenchmark.run(activity, ITERATIONS);
+            }
+        });
+        assertEquals("the lazy setting was not restored", lazy, MySwitch.isLazyResourceLoading());
+        assertTrue(result[0].getEagerInflateNanos() > 0);
+        assertTrue(result[0].getLazyInflateNanos() > 0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.appscumen.example;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.app.Instrumentation;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Helpers shared by the instrumentation tests of {@link MySwitch}.
+ */
+final class SwitchTestUtils {
+
+    private SwitchTestUtils() {
+    }
+
+    /**
+     * @return the switches below <code>root</code>, in layout order
+     */
+    static List<MySwitch> collectSwitches(View root) {
+        ArrayList<MySwitch> switches = new ArrayList<MySwitch>();
+        collectSwitches(root, switches);
+        return switches;
+    }
+
+    static void collectSwitches(View view, List<MySwitch> switches) {
+        if (view instanceof MySwitch) {
+            switches.add((MySwitch) view);
+        } else if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                collectSwitches(group.getChildAt(i), switches);
+            }
+        }
+    }
+
+    /**
+     * @return the switches that render offscreen buffers: push style switches
+     *         and switches with a soft edged background mask
+     */
+    static List<MySwitch> collectBufferedSwitches(View root) {
+        ArrayList<MySwitch> buffered = new ArrayList<MySwitch>();
+        for (MySwitch view : collectSwitches(root)) {
+            if (view.getMemoryInfo().getBitmapBytes() > 0) {
+                buffered.add(view);
+            }
+        }
+        return buffered;
+    }
+
+    /**
+     * Scrolls the switch into view and waits for the frame.
+     */
+    static void scrollOnScreen(Instrumentation instrumentation, final View view) {
+        instrumentation.runOnMainSync(new Runnable() {
+            public void run() {
+                view.requestRectangleOnScreen(new Rect(0, 0, view.getWidth(), view.getHeight()), true);
+            }
+        });
+        instrumentation.waitForIdleSync();
+    }
+
+    /**
+     * Waits until the thumb of the switch is neither animating nor dragged.
+     *
+     * @return false if it still moves after <code>timeout</code> ms
+     */
+    static boolean waitUntilSettled(Instrumentation instrumentation, final MySwitch view, long timeout) {
+        final long end = SystemClock.uptimeMillis() + timeout;
+        final boolean[] moving = new boolean[1];
+        do {
+            instrumentation.runOnMainSync(new Runnable() {
+                public void run() {
+                    moving[0] = view.isMoving();
+                }
+            });
+            if (!moving[0]) {
+                return true;
+            }
+            SystemClock.sleep(16);
+        } while (SystemClock.uptimeMillis() < end);
+        return false;
+    }
+
+    /**
+     * @return true if none of the offscreen bitmaps of the switch is held
+     */
+    static boolean hasNoBuffers(MySwitch view) {
+        return view.getMemoryInfo().getBitmapBytes() == 0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.appscumen.example;
+
+import android.test.ActivityInstrumentationTestCase2;
+import android.widget.CompoundButton;
+import android.widget.CompoundButton.OnCheckedChangeListener;
+
+/**
+ * Checks that binding a switch to a {@link ToggleStateModel} writes its toggles
+ * back to the flag without replacing the listener the app set on the switch.
+ */
+public class ToggleStateModelBindTest extends ActivityInstrumentationTestCase2<AndroidSwitchDemoActivity> {
+    private MySwitch mView;
+    private ToggleStateModel mModel;
+    private int mAppCalls;
+
+    private final OnCheckedChangeListener mAppListener = new OnCheckedChangeListener() {
+        public void onCheckedChanged(CompoundButton view, boolean isChecked) {
+            mAppCalls++;
+        }
+    };
+
+    public ToggleStateModelBindTest() {
+        super(AndroidSwitchDemoActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        getActivity();
+        getInstrumentation().waitForIdleSync();
+        // a switch the activity sets no listener on
+        mView = SwitchTestUtils.collectSwitches(getActivity().getWindow().getDecorView()).get(0);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mView.bindChecked(false);
+                mView.setOnCheckedChangeListener(mAppListener);
+                mModel = new ToggleStateModel(10);
+            }
+        });
+    }
+
+    public void testBoundToggleReachesModelAndAppListener() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mModel.bind(mView, 3);
+                mView.setChecked(true);
+            }
+        });
+        assertTrue(mModel.get(3));
+        assertEquals(1, mAppCalls);
+    }
+
+    public void testBoundToggleKeepsAnimating() {
+        SwitchTestUtils.scrollOnScreen(getInstrumentation(), mView);
+        final boolean[] running = new boolean[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mView.setPowerMode(MySwitch.POWER_MODE_FULL);
+                mModel.bind(mView, 3);
+                mView.toggle();
+                running[0] = mView.mRunning;
+            }
+        });
+        assertTrue(mModel.get(3));
+        assertTrue("the model ended the thumb animation", running[0]);
+    }
+
+    public void testUnbindKeepsAppListener() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mModel.bind(mView, 3);
+                mModel.unbind(mView);
+                mView.setChecked(true);
+            }
+        });
+        assertFalse("an unbound switch still writes to the model", mModel.get(3));
+        assertEquals(1, mAppCalls);
+    }
+
+    public void testBindingDoesNotCallAppListener() {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            public void run() {
+                mModel.set(5, true);
+                mModel.bind(mView, 5);
+            }
+        });
+        assertTrue(mView.isChecked());
+        assertEquals(0, mAppCalls);
+    }
+}
@@ -0,0 +1,42 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BufferKeyTest {
+
+    @Test
+    public void nameHoldsEveryValue() {
+        BufferKey key = new BufferKey("smask_background_copy_sm", "sleft_background_copy_sm", null,
+                320, 132, 46, BufferKey.offset(0), BufferKey.offset(8));
+        assertEquals("smask_background_copy_sm.sleft_background_copy_sm.none.d320.132x46.0.-8.buf", key.getName());
+        assertTrue(key.hasLeft());
+        assertFalse(key.hasRight());
+    }
+
+    @Test
+    public void parseReadsTheNameBack() {
+        BufferKey key = BufferKey.parse("smask_background_copy.sleft_background_copy.sright_background_copy.d480.486x174.-12.0.buf");
+        assertEquals("smask_background_copy", key.mask);
+        assertEquals("sleft_background_copy", key.left);
+        assertEquals("sright_background_copy", key.right);
+        assertEquals(480, key.dpi);
+        assertEquals(486, key.width);
+        assertEquals(174, key.height);
+        assertEquals(-12, key.x);
+        assertEquals(0, key.y);
+    }
+
+    @Test
+    public void parseRejectsOtherNames() {
+        assertNull(BufferKey.parse("README"));
+        assertNull(BufferKey.parse("a.b.c.d320.132x46.0.buf"));
+        assertNull(BufferKey.parse("a.b.c.320.132x46.0.0.buf"));
+        assertNull(BufferKey.parse("a.b.c.d320.132-46.0.0.buf"));
+        assertNull(BufferKey.parse("a.b.c.dpi.132x46.0.0.buf"));
+    }
+}
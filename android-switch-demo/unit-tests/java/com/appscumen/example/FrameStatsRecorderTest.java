@@ -0,0 +1,61 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class FrameStatsRecorderTest {
+
+    private static AnimationFrameStats record(long frameInterval, long... intervals) {
+        FrameStatsRecorder recorder = new FrameStatsRecorder();
+        long now = 1000;
+        recorder.begin(now, 300, frameInterval);
+        for (long interval : intervals) {
+            now += interval;
+            recorder.frame(now);
+        }
+        return recorder.end(now, false);
+    }
+
+    @Test
+    public void framesLongerThanTheDeadlineAreCounted() {
+        AnimationFrameStats stats = record(0, 16, 17, 16, 33, 16);
+        assertEquals(5, stats.getFrameCount());
+        assertEquals(2, stats.getFramesOverDeadline());
+        assertEquals(16, stats.getFrameDeadline());
+        assertEquals(33, stats.getMaxFrameInterval());
+    }
+
+    @Test
+    public void spacedFramesAreNotCountedAsMissed() {
+        // the ticks of a reduced power animation
+        AnimationFrameStats stats = record(80, 16, 80, 81, 80, 96);
+        assertEquals(0, stats.getFramesOverDeadline());
+        assertEquals(96, stats.getFrameDeadline());
+    }
+
+    @Test
+    public void spacedFramesLaterThanTheDeadlineAreCounted() {
+        AnimationFrameStats stats = record(80, 80, 97, 80, 150);
+        assertEquals(2, stats.getFramesOverDeadline());
+    }
+
+    @Test
+    public void deadlineAppliesFromTheNextAnimation() {
+        FrameStatsRecorder recorder = new FrameStatsRecorder();
+        recorder.begin(0, 100, 0);
+        recorder.setDeadline(33);
+        recorder.frame(20);
+        assertEquals(1, recorder.end(20, false).getFramesOverDeadline());
+
+        recorder.begin(100, 100, 0);
+        recorder.frame(120);
+        assertEquals(0, recorder.end(120, false).getFramesOverDeadline());
+    }
+
+    @Test
+    public void endWithoutBeginHasNoStats() {
+        assertNull(new FrameStatsRecorder().end(0, false));
+    }
+}
@@ -0,0 +1,54 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LayerPolicyTest {
+
+    @Test
+    public void idleSwitchesHaveNoLayer() {
+        assertEquals(LayerPolicy.LAYER_TYPE_NONE, LayerPolicy.choose(true, false, false));
+        assertEquals(LayerPolicy.LAYER_TYPE_NONE, LayerPolicy.choose(true, true, false));
+    }
+
+    @Test
+    public void movingSwitchesGetAHardwareLayer() {
+        assertEquals(LayerPolicy.LAYER_TYPE_HARDWARE, LayerPolicy.choose(true, false, true));
+    }
+
+    @Test
+    public void switchesThatNeedSoftwareNeverGetAHardwareLayer() {
+        assertEquals(LayerPolicy.LAYER_TYPE_NONE, LayerPolicy.choose(true, true, true));
+    }
+
+    @Test
+    public void softwareWindowsHaveNoLayer() {
+        assertEquals(LayerPolicy.LAYER_TYPE_NONE, LayerPolicy.choose(false, false, true));
+        assertEquals(LayerPolicy.LAYER_TYPE_NONE, LayerPolicy.choose(false, false, false));
+    }
+
+    @Test
+    public void clipPathIsDrawnInHardwareFromApi18() {
+        assertTrue(LayerPolicy.isClipPathSoftwareOnly(17));
+        assertFalse(LayerPolicy.isClipPathSoftwareOnly(18));
+    }
+
+    @Test
+    public void layerTypeOfTheAppIsKept() {
+        // android:layerType, or setLayerType before the policy took over
+        assertTrue(LayerPolicy.isSetByApp(LayerPolicy.LAYER_TYPE_HARDWARE, -1));
+        assertTrue(LayerPolicy.isSetByApp(1, -1));
+        // setLayerType after the policy took over
+        assertTrue(LayerPolicy.isSetByApp(1, LayerPolicy.LAYER_TYPE_NONE));
+        assertTrue(LayerPolicy.isSetByApp(LayerPolicy.LAYER_TYPE_NONE, LayerPolicy.LAYER_TYPE_HARDWARE));
+    }
+
+    @Test
+    public void defaultLayerTypeIsTakenOver() {
+        assertFalse(LayerPolicy.isSetByApp(LayerPolicy.LAYER_TYPE_NONE, -1));
+        assertFalse(LayerPolicy.isSetByApp(LayerPolicy.LAYER_TYPE_HARDWARE, LayerPolicy.LAYER_TYPE_HARDWARE));
+    }
+}
@@ -0,0 +1,91 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MaskSpansTest {
+    private static final int OPAQUE = 0xff000000;
+    private static final int WIDTH = 60;
+    private static final int HEIGHT = 40;
+
+    /**
+     * A ring with a notch cut into its bottom edge, holding rows with one, two
+     * and three spans.
+     */
+    private static int[] ring() {
+        final int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final float dx = (x + 0.5f - WIDTH / 2f) / (WIDTH / 2f);
+                final float dy = (y + 0.5f - HEIGHT / 2f) / (HEIGHT / 2f);
+                final float d = dx * dx + dy * dy;
+                final boolean notch = y > HEIGHT - 8 && x >= 28 && x < 32;
+                if (d <= 1f && d >= 0.3f && !notch) {
+                    pixels[y * WIDTH + x] = OPAQUE;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    private static boolean inside(int[] pixels, int x, int y) {
+        return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT && pixels[y * WIDTH + x] >>> 24 >= 128;
+    }
+
+    @Test
+    public void containsMatchesThePixels() {
+        final int[] pixels = ring();
+        final MaskSpans spans = MaskSpans.trace(pixels, WIDTH, HEIGHT, false);
+        assertNotNull(spans);
+        for (int y = -2; y < HEIGHT + 2; y++) {
+            for (int x = -2; x < WIDTH + 2; x++) {
+                assertEquals("(" + x + ", " + y + ")", inside(pixels, x, y), spans.contains(x, y));
+            }
+        }
+        // the hole and the notch
+        assertFalse(spans.contains(WIDTH / 2, HEIGHT / 2));
+        assertFalse(spans.contains(30, HEIGHT - 2));
+        assertTrue(spans.contains(WIDTH / 2, 2));
+    }
+
+    @Test
+    public void grownMaskHitsWithinTheRadius() {
+        final int[] pixels = ring();
+        final int radius = 3;
+        final MaskSpans spans = MaskSpans.trace(pixels, WIDTH, HEIGHT, false).grow(radius);
+        for (int y = -radius - 2; y < HEIGHT + radius + 2; y++) {
+            for (int x = -radius - 2; x < WIDTH + radius + 2; x++) {
+                boolean near = false;
+                for (int py = y - radius; py <= y + radius && !near; py++) {
+                    for (int px = x - radius; px <= x + radius && !near; px++) {
+                        near = inside(pixels, px, py);
+                    }
+                }
+                assertEquals("(" + x + ", " + y + ")", near, spans.contains(x, y));
+            }
+        }
+        // the middle of the hole is further than the radius from the ring
+        assertFalse(spans.contains(WIDTH / 2, HEIGHT / 2));
+        // the notch is narrower than twice the radius
+        assertTrue(spans.contains(30, HEIGHT - 2));
+    }
+
+    @Test
+    public void softEdgesFailUnlessThresholded() {
+        final int[] pixels = ring();
+        pixels[WIDTH * HEIGHT / 2] = 0x80000000;
+        assertNull(MaskSpans.trace(pixels, WIDTH, HEIGHT, false));
+        assertNotNull(MaskSpans.trace(pixels, WIDTH, HEIGHT, true));
+    }
+
+    @Test
+    public void growingByZeroKeepsTheMask() {
+        final MaskSpans spans = MaskSpans.trace(ring(), WIDTH, HEIGHT, false);
+        assertTrue(spans == spans.grow(0));
+    }
+}
@@ -0,0 +1,48 @@
+package com.appscumen.example;
+
+/**
+ * Touch samples of the gestures in <code>tests/assets/traces/</code>, one sample
+ * per historical and current position of each event, relative to where the
+ * finger went down. Times are in ms, positions in pixels.
+ */
+final class RecordedGestures {
+
+    /** A 112 ms flick of 320 px to the right that eases out, see fling-right.trace. */
+    static final long[] FLING_RIGHT_TIMES = {
+        0, 8, 16, 24, 32, 40, 48, 56, 64, 72, 80, 88, 96, 112 };
+    static final float[] FLING_RIGHT_X = {
+        0.0f, 49.2f, 94.2f, 135.2f, 172.0f, 204.8f, 233.5f, 258.0f, 278.5f, 294.9f, 307.2f,
+        315.4f, 319.5f, 320.0f };
+    static final float[] FLING_RIGHT_Y = {
+        0.0f, 0.5f, 1.0f, 1.4f, 1.8f, 1.9f, 2.0f, 1.9f, 1.7f, 1.4f, 0.9f, 0.4f, -0.1f, -1.1f };
+    /** Least squares velocity of the last 100 ms of the flick, in pixels per second. */
+    static final float FLING_RIGHT_RELEASE_VELOCITY = 2426.4f;
+
+    /**
+     * A drag of 300 px to the right and back at 1.36 px/ms, held still for
+     * 160 ms before lifting, see drag-and-return.trace.
+     */
+    static final long[] DRAG_AND_RETURN_TIMES = {
+        0, 8, 16, 24, 32, 40, 48, 56, 64, 72, 80, 88, 96, 104, 112, 120, 128, 136, 144, 152,
+        160, 168, 176, 184, 192, 200, 208, 216, 224, 232, 240, 248, 256, 264, 272, 280, 288,
+        296, 304, 312, 320, 328, 336, 344, 352, 360, 368, 376, 384, 392, 400, 408, 416, 424,
+        432, 440, 448, 456, 464, 472, 480, 488, 496, 504, 512, 520, 528, 536, 544, 552, 560,
+        568, 576, 584, 592, 600 };
+    static final float[] DRAG_AND_RETURN_X = {
+        0.0f, 10.9f, 21.8f, 32.7f, 43.6f, 54.5f, 65.5f, 76.4f, 87.3f, 98.2f, 109.1f, 120.0f,
+        130.9f, 141.8f, 152.7f, 163.6f, 174.5f, 185.5f, 196.4f, 207.3f, 218.2f, 229.1f, 240.0f,
+        250.9f, 261.8f, 272.7f, 283.6f, 294.5f, 294.5f, 283.6f, 272.7f, 261.8f, 250.9f, 240.0f,
+        229.1f, 218.2f, 207.3f, 196.4f, 185.5f, 174.5f, 163.6f, 152.7f, 141.8f, 130.9f, 120.0f,
+        109.1f, 98.2f, 87.3f, 76.4f, 65.5f, 54.5f, 43.6f, 32.7f, 21.8f, 10.9f, 0.0f, 0f, 0f,
+        0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f };
+    static final float[] DRAG_AND_RETURN_Y = {
+        0.0f, 0.5f, 0.9f, 1.4f, 1.8f, 2.2f, 2.5f, 2.7f, 2.9f, 3.0f, 3.0f, 2.9f, 2.8f, 2.6f,
+        2.4f, 2.0f, 1.6f, 1.2f, 0.8f, 0.3f, -0.2f, -0.7f, -1.1f, -1.5f, -1.9f, -2.3f, -2.6f,
+        -2.8f, -2.9f, -3.0f, -3.0f, -2.9f, -2.8f, -2.5f, -2.2f, -1.9f, -1.5f, -1.1f, -0.6f,
+        -0.1f, 0.3f, 0.8f, 1.3f, 1.7f, 2.1f, 2.4f, 2.6f, 2.8f, 3.0f, 3.0f, 3.0f, 2.9f, 2.7f,
+        2.4f, 2.1f, 1.8f, 1.3f, 0.9f, 0.4f, -0.0f, -0.5f, -1.0f, -1.4f, -1.8f, -2.2f, -2.5f,
+        -2.7f, -2.9f, -3.0f, -3.0f, -2.9f, -2.8f, -2.6f, -2.3f, -2.0f, -1.6f };
+
+    private RecordedGestures() {
+    }
+}
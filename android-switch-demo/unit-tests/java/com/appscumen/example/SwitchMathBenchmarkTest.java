@@ -0,0 +1,145 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Times the parts of {@link MySwitch} that need no framework class, on the JVM:
+ * the thumb spring, the release velocity fit and the mask spans. Each benchmark
+ * warms up first and prints the mean time per operation; the assertions only
+ * check the results, so the work cannot be optimized away.
+ */
+public class SwitchMathBenchmarkTest {
+    private static final int WARMUP = 20000;
+    private static final int ITERATIONS = 200000;
+    private static final long FRAME = 16;
+
+    // a hard edged pill, the shape of the demo's masks
+    private static final int MASK_WIDTH = 240;
+    private static final int MASK_HEIGHT = 80;
+
+    @Test
+    public void thumbMotionFrames() {
+        ThumbMotion motion = new ThumbMotion();
+        motion.setSettleDuration(250);
+        run(motion, WARMUP);
+        final long start = System.nanoTime();
+        final int frames = run(motion, ITERATIONS);
+        report("ThumbMotion.evaluate", System.nanoTime() - start, frames);
+        assertEquals(120f, motion.getPosition(), 0.5f);
+    }
+
+    /**
+     * Plays whole animations, from rest and from a fling, until
+     * <code>animations</code> have settled.
+     *
+     * @return the number of frames evaluated
+     */
+    private static int run(ThumbMotion motion, int animations) {
+        int frames = 0;
+        for (int i = 0; i < animations; i++) {
+            final float velocity = (i & 1) == 0 ? 0f : RecordedGestures.FLING_RIGHT_RELEASE_VELOCITY / 1000f;
+            motion.start(0f, velocity, 120f, 0);
+            long now = 0;
+            while (motion.evaluate(now)) {
+                now += FRAME;
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    @Test
+    public void velocityOfAFling() {
+        VelocityEstimator estimator = new VelocityEstimator();
+        float velocity = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            velocity = fling(estimator);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            velocity = fling(estimator);
+        }
+        report("VelocityEstimator, " + RecordedGestures.FLING_RIGHT_TIMES.length + " samples",
+                System.nanoTime() - start, ITERATIONS);
+        assertEquals(RecordedGestures.FLING_RIGHT_RELEASE_VELOCITY, velocity, 1f);
+    }
+
+    private static float fling(VelocityEstimator estimator) {
+        estimator.clear();
+        for (int i = 0; i < RecordedGestures.FLING_RIGHT_TIMES.length; i++) {
+            estimator.add(RecordedGestures.FLING_RIGHT_TIMES[i], RecordedGestures.FLING_RIGHT_X[i],
+                    RecordedGestures.FLING_RIGHT_Y[i]);
+        }
+        estimator.computeVelocity();
+        return estimator.getXVelocity();
+    }
+
+    @Test
+    public void traceMask() {
+        final int[] pixels = pill(MASK_WIDTH, MASK_HEIGHT);
+        final int iterations = ITERATIONS / 100;
+        MaskSpans spans = null;
+        for (int i = 0; i < WARMUP / 100; i++) {
+            spans = MaskSpans.trace(pixels, MASK_WIDTH, MASK_HEIGHT, false);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            spans = MaskSpans.trace(pixels, MASK_WIDTH, MASK_HEIGHT, false);
+        }
+        report("MaskSpans.trace, " + MASK_WIDTH + "x" + MASK_HEIGHT, System.nanoTime() - start, iterations);
+        assertNotNull(spans);
+        assertTrue(spans.contains(MASK_WIDTH / 2, MASK_HEIGHT / 2));
+        assertFalse(spans.contains(0, 0));
+    }
+
+    @Test
+    public void hitTestMask() {
+        final MaskSpans spans = MaskSpans.trace(pill(MASK_WIDTH, MASK_HEIGHT), MASK_WIDTH, MASK_HEIGHT, false)
+                .grow(8);
+        int hits = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            hits += hitTest(spans, i);
+        }
+        hits = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            hits += hitTest(spans, i);
+        }
+        report("MaskSpans.contains, grown by 8", System.nanoTime() - start, ITERATIONS);
+        assertTrue(hits > 0 && hits < ITERATIONS);
+    }
+
+    private static int hitTest(MaskSpans spans, int i) {
+        // walks the whole mask, corners included
+        final int x = i * 7 % MASK_WIDTH;
+        final int y = i * 13 % MASK_HEIGHT;
+        return spans.contains(x, y) ? 1 : 0;
+    }
+
+    /**
+     * @return the ARGB pixels of an opaque pill on a transparent background
+     */
+    private static int[] pill(int width, int height) {
+        final int[] pixels = new int[width * height];
+        final float radius = height / 2f;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final float cx = Math.max(radius, Math.min(width - radius, x + 0.5f));
+                final float dx = x + 0.5f - cx;
+                final float dy = y + 0.5f - radius;
+                pixels[y * width + x] = dx * dx + dy * dy <= radius * radius ? 0xff000000 : 0;
+            }
+        }
+        return pixels;
+    }
+
+    private static void report(String name, long nanos, int operations) {
+        System.out.println(name + ": " + nanos / operations + " ns per operation, " + operations
+                + " operations");
+    }
+}
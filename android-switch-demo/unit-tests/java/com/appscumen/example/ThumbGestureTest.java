@@ -0,0 +1,107 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThumbGestureTest {
+    private static final int TOUCH_SLOP = 16;
+    private static final float RANGE = 120f;
+
+    private ThumbGesture mGesture;
+
+    @Before
+    public void setUp() {
+        mGesture = new ThumbGesture(TOUCH_SLOP);
+    }
+
+    @Test
+    public void flingDragsTheThumbToTheEndAndReleasesFast() {
+        final float position = replay(RecordedGestures.FLING_RIGHT_TIMES, RecordedGestures.FLING_RIGHT_X,
+                RecordedGestures.FLING_RIGHT_Y, 0f);
+        assertEquals(RANGE, position, 0f);
+        assertTrue(mGesture.isDragging());
+        final float velocity = mGesture.release(true);
+        assertEquals(RecordedGestures.FLING_RIGHT_RELEASE_VELOCITY, velocity, 1f);
+        assertEquals(ThumbGesture.STATE_IDLE, mGesture.getState());
+    }
+
+    @Test
+    public void dragAndReturnEndsWhereItStartedWithoutVelocity() {
+        final float position = replay(RecordedGestures.DRAG_AND_RETURN_TIMES, RecordedGestures.DRAG_AND_RETURN_X,
+                RecordedGestures.DRAG_AND_RETURN_Y, 0f);
+        // the finger went 300 px right, past the end of the range, and all the way back
+        assertEquals(0f, position, 0f);
+        assertEquals(0f, mGesture.release(true), 0f);
+    }
+
+    @Test
+    public void dragStartsPastHalfTheSlop() {
+        mGesture.down(100, 50, 0);
+        assertFalse(mGesture.startDragIfPastSlop(100 + TOUCH_SLOP / 2, 50));
+        assertEquals(ThumbGesture.STATE_DOWN, mGesture.getState());
+        assertTrue(mGesture.startDragIfPastSlop(100, 50 - TOUCH_SLOP / 2 - 1));
+        assertTrue(mGesture.isDragging());
+        // only once
+        assertFalse(mGesture.startDragIfPastSlop(200, 50));
+    }
+
+    @Test
+    public void thumbDoesNotDriftWhenTheFingerOvershootsTheEnd() {
+        mGesture.down(0, 0, 0);
+        assertTrue(mGesture.startDragIfPastSlop(TOUCH_SLOP, 0));
+        float position = mGesture.drag(TOUCH_SLOP + 200, 0, 0, RANGE, true);
+        assertEquals(RANGE, position, 0f);
+        // further right and part of the way back: the anchor stays where the thumb hit the end
+        position = mGesture.drag(TOUCH_SLOP + 300, 0, position, RANGE, true);
+        assertEquals(RANGE, position, 0f);
+        position = mGesture.drag(TOUCH_SLOP + 250, 0, position, RANGE, true);
+        assertEquals(RANGE, position, 0f);
+        position = mGesture.drag(TOUCH_SLOP + 190, 0, position, RANGE, true);
+        assertEquals(RANGE - 10, position, 0f);
+    }
+
+    @Test
+    public void verticalDragFollowsY() {
+        mGesture.down(0, 0, 0);
+        assertTrue(mGesture.startDragIfPastSlop(0, TOUCH_SLOP));
+        assertEquals(30f, mGesture.drag(50, TOUCH_SLOP + 30, 0, RANGE, false), 0f);
+    }
+
+    @Test
+    public void velocityIsZeroAfterAPause() {
+        mGesture.down(0, 0, 0);
+        for (long t = 8; t <= 64; t += 8) {
+            mGesture.addSample(t, 2 * t, 0);
+        }
+        assertEquals(2f, mGesture.getVelocity(true, 64), 0.01f);
+        assertEquals(0f, mGesture.getVelocity(true, 64 + VelocityEstimator.MAX_GAP + 1), 0f);
+    }
+
+    @Test
+    public void samplesAreIgnoredWhenIdle() {
+        mGesture.addSample(0, 0, 0);
+        mGesture.addSample(8, 80, 0);
+        assertEquals(0, mGesture.getLastSampleTime());
+        assertEquals(0f, mGesture.release(true), 0f);
+    }
+
+    /**
+     * Feeds a recorded gesture the way MySwitch.onTouchEvent does.
+     *
+     * @return the thumb position after the last sample
+     */
+    private float replay(long[] times, float[] x, float[] y, float position) {
+        mGesture.down(x[0], y[0], times[0]);
+        for (int i = 1; i < times.length; i++) {
+            mGesture.addSample(times[i], x[i], y[i]);
+            if (!mGesture.startDragIfPastSlop(x[i], y[i]) && mGesture.isDragging()) {
+                position = mGesture.drag(x[i], y[i], position, RANGE, true);
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,98 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThumbMotionTest {
+    private static final long FRAME = 16;
+
+    private ThumbMotion mMotion;
+
+    @Before
+    public void setUp() {
+        mMotion = new ThumbMotion();
+        mMotion.setSettleDuration(250);
+    }
+
+    @Test
+    public void startsFromTheReleasePositionAndVelocity() {
+        mMotion.start(60f, RecordedGestures.FLING_RIGHT_RELEASE_VELOCITY / 1000f, 120f, 1000);
+        assertTrue(mMotion.evaluate(1000));
+        assertEquals(60f, mMotion.getPosition(), 0.001f);
+        assertEquals(RecordedGestures.FLING_RIGHT_RELEASE_VELOCITY / 1000f, mMotion.getVelocity(), 0.001f);
+    }
+
+    @Test
+    public void settlesOnTheTargetWithoutOvershootFromRest() {
+        mMotion.start(0f, 0f, 120f, 0);
+        float previous = 0f;
+        long now = 0;
+        while (mMotion.evaluate(now)) {
+            assertTrue(mMotion.getPosition() >= previous);
+            assertTrue(mMotion.getPosition() <= 120f);
+            previous = mMotion.getPosition();
+            now += FRAME;
+            assertTrue("still moving after " + now + " ms", now < 1000);
+        }
+        assertEquals(120f, mMotion.getPosition(), 0f);
+        assertEquals(0f, mMotion.getVelocity(), 0f);
+        assertFalse(mMotion.isActive());
+    }
+
+    @Test
+    public void settleTimeEstimateMatchesTheFrames() {
+        mMotion.start(0f, 0f, 120f, 0);
+        final long estimate = mMotion.estimateSettleTime();
+        long now = 0;
+        while (mMotion.evaluate(now)) {
+            now += FRAME;
+        }
+        // frames and the estimate sample the same curve at different steps
+        assertEquals(estimate, now, FRAME);
+        assertEquals(250f, estimate, 100f);
+    }
+
+    @Test
+    public void flingAgainstTheTargetTurnsAround() {
+        // released towards the start while the target is the end
+        mMotion.start(60f, -RecordedGestures.FLING_RIGHT_RELEASE_VELOCITY / 1000f, 120f, 0);
+        float lowest = 60f;
+        long now = 0;
+        while (mMotion.evaluate(now)) {
+            lowest = Math.min(lowest, mMotion.getPosition());
+            now += FRAME;
+        }
+        assertTrue(lowest < 60f);
+        assertEquals(120f, mMotion.getPosition(), 0f);
+    }
+
+    @Test
+    public void retargetKeepsPositionAndVelocity() {
+        mMotion.start(0f, 0f, 120f, 0);
+        mMotion.evaluate(80);
+        final float position = mMotion.getPosition();
+        final float velocity = mMotion.getVelocity();
+        mMotion.retarget(0f, 80);
+        assertEquals(0f, mMotion.getTarget(), 0f);
+        assertTrue(mMotion.evaluate(80));
+        assertEquals(position, mMotion.getPosition(), 0.001f);
+        assertEquals(velocity, mMotion.getVelocity(), 0.001f);
+        while (mMotion.evaluate(mMotion.getStartTime() + 2000)) {
+        }
+        assertEquals(0f, mMotion.getPosition(), 0f);
+    }
+
+    @Test
+    public void cancelStops() {
+        mMotion.start(0f, 1f, 120f, 0);
+        mMotion.cancel();
+        assertFalse(mMotion.isActive());
+        assertFalse(mMotion.evaluate(16));
+        assertEquals(0f, mMotion.getVelocity(), 0f);
+        assertEquals(0, mMotion.estimateSettleTime());
+    }
+}
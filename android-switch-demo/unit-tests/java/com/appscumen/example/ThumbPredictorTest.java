@@ -0,0 +1,81 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ThumbPredictorTest {
+    private static final float RANGE = 400f;
+
+    private ThumbPredictor mPredictor;
+
+    @Before
+    public void setUp() {
+        mPredictor = new ThumbPredictor();
+        mPredictor.setMaxLead(32);
+    }
+
+    @Test
+    public void disabledWithoutLead() {
+        mPredictor.setMaxLead(0);
+        assertFalse(mPredictor.isEnabled());
+        assertEquals(50f, mPredictor.predict(50f, 2f, 100, 100, RANGE), 0f);
+    }
+
+    @Test
+    public void predictionEasesTowardsVelocityTimesLead() {
+        // 1 px/ms, sampled now: the frame is shown FRAME_LATENCY ms later
+        final float lead = ThumbPredictor.FRAME_LATENCY;
+        assertEquals(100f + lead / 2, mPredictor.predict(100f, 1f, 1000, 1000, RANGE), 0.001f);
+        assertTrue(mPredictor.isSettling());
+        assertEquals(100f + lead * 3 / 4, mPredictor.predict(100f, 1f, 1000, 1000, RANGE), 0.001f);
+        for (int frame = 0; frame < 10; frame++) {
+            mPredictor.predict(100f, 1f, 1000, 1000, RANGE);
+        }
+        assertFalse(mPredictor.isSettling());
+    }
+
+    @Test
+    public void leadIsCappedAndClampedToTheRange() {
+        // the last sample is old, so the lead is capped at 32 ms
+        for (int frame = 0; frame < 20; frame++) {
+            mPredictor.predict(0f, 1f, 0, 100, RANGE);
+        }
+        assertEquals(32f, mPredictor.predict(0f, 1f, 0, 100, RANGE), 0.01f);
+        assertEquals(RANGE, mPredictor.predict(RANGE - 1, 1f, 0, 100, RANGE), 0f);
+    }
+
+    @Test
+    public void predictionOfRecordedDragIsCloserThanTheLag() {
+        // the steady part of the recorded drag, one move event of two samples per 16 ms frame
+        final long[] times = RecordedGestures.DRAG_AND_RETURN_TIMES;
+        final float[] x = RecordedGestures.DRAG_AND_RETURN_X;
+        VelocityEstimator velocity = new VelocityEstimator();
+        velocity.add(times[0], x[0], 0);
+        for (int i = 2; i < times.length && times[i] <= 208; i += 2) {
+            velocity.add(times[i - 1], x[i - 1], 0);
+            velocity.add(times[i], x[i], 0);
+            mPredictor.onActualPosition(x[i]);
+            velocity.computeVelocity();
+            mPredictor.predict(x[i], velocity.getXVelocity() / 1000f, times[i], times[i], RANGE);
+        }
+        assertTrue(mPredictor.getErrorSampleCount() > 0);
+        assertTrue(mPredictor.getMeanError() + " vs " + mPredictor.getMeanLag(),
+                mPredictor.getMeanError() < mPredictor.getMeanLag() / 2);
+    }
+
+    @Test
+    public void resetKeepsTheErrorFigures() {
+        mPredictor.onActualPosition(0f);
+        mPredictor.predict(0f, 1f, 0, 0, RANGE);
+        mPredictor.onActualPosition(10f);
+        mPredictor.reset();
+        assertEquals(1, mPredictor.getErrorSampleCount());
+        mPredictor.resetErrors();
+        assertEquals(0, mPredictor.getErrorSampleCount());
+        assertEquals(0f, mPredictor.getMeanError(), 0f);
+    }
+}
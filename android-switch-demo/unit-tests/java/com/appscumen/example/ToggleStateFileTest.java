@@ -0,0 +1,178 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ToggleStateFileTest {
+    private static final int HEADER_BYTES = 16;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File file() {
+        return new File(mFolder.getRoot(), "flags");
+    }
+
+    private static ToggleStateModel model(int size, int... on) {
+        ToggleStateModel model = new ToggleStateModel(size);
+        for (int id : on) {
+            model.set(id, true);
+        }
+        return model;
+    }
+
+    private static void assertOn(ToggleStateModel model, int... on) {
+        int count = 0;
+        for (int id : on) {
+            assertTrue("flag " + id, model.get(id));
+            count++;
+        }
+        assertEquals(count, model.countOn());
+    }
+
+    /**
+     * @return the word of the flags stored at <code>index</code>, read from the
+     *         file and not from the mapping
+     */
+    private static long readWord(File file, int index) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(HEADER_BYTES + 8L * index);
+            return Long.reverseBytes(raf.readLong());
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.write(data);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void missingFileIsCreatedWithTheModelFlags() throws IOException {
+        ToggleStateModel model = model(100, 3, 64);
+        ToggleStateFile.open(file(), model).close();
+        assertEquals(HEADER_BYTES + 8 * 2, file().length());
+        assertOn(model, 3, 64);
+        assertFalse(new File(file().getPath() + ".tmp").exists());
+
+        ToggleStateModel loaded = model(100);
+        ToggleStateFile.open(file(), loaded).close();
+        assertOn(loaded, 3, 64);
+    }
+
+    @Test
+    public void compatibleFileIsLoaded() throws IOException {
+        ToggleStateFile.open(file(), model(300, 0, 63, 64, 299)).close();
+        // flags the model had before opening are replaced by the saved ones
+        ToggleStateModel loaded = model(300, 5);
+        ToggleStateFile.open(file(), loaded).close();
+        assertOn(loaded, 0, 63, 64, 299);
+    }
+
+    @Test
+    public void changesAreStoredInPlace() throws IOException {
+        ToggleStateModel model = model(200);
+        ToggleStateFile stateFile = ToggleStateFile.open(file(), model);
+        final long length = file().length();
+        model.set(70, true);
+        assertEquals(1L << 6, readWord(file(), 1));
+        model.beginBatch();
+        model.set(1, true);
+        model.set(199, true);
+        model.endBatch();
+        assertEquals(1L << 1, readWord(file(), 0));
+        assertEquals(1L << (199 - 128), readWord(file(), 3));
+        model.set(70, false);
+        assertEquals(0L, readWord(file(), 1));
+        assertEquals(length, file().length());
+
+        // changes after close are not stored
+        stateFile.close();
+        model.set(2, true);
+        assertEquals(1L << 1, readWord(file(), 0));
+
+        ToggleStateModel loaded = model(200);
+        ToggleStateFile.open(file(), loaded).close();
+        assertOn(loaded, 1, 199);
+    }
+
+    @Test
+    public void shrinkingCarriesTheCommonFlagsOver() throws IOException {
+        ToggleStateFile.open(file(), model(200, 5, 70, 99, 150)).close();
+        ToggleStateModel smaller = model(100);
+        ToggleStateFile.open(file(), smaller).close();
+        assertOn(smaller, 5, 70, 99);
+        assertEquals(HEADER_BYTES + 8 * 2, file().length());
+    }
+
+    @Test
+    public void growingCarriesTheCommonFlagsOver() throws IOException {
+        ToggleStateFile.open(file(), model(70, 5, 69)).close();
+        // ids the old file did not cover keep the flags of the model
+        ToggleStateModel larger = model(200, 6, 150);
+        ToggleStateFile.open(file(), larger).close();
+        assertOn(larger, 5, 69, 150);
+
+        ToggleStateModel loaded = model(200);
+        ToggleStateFile.open(file(), loaded).close();
+        assertOn(loaded, 5, 69, 150);
+    }
+
+    @Test
+    public void foreignFileIsReplaced() throws IOException {
+        // the length of a valid file for the model, but no known header
+        byte[] data = new byte[HEADER_BYTES + 8 * 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) 0xa5;
+        }
+        write(file(), data);
+        ToggleStateModel model = model(100, 7);
+        ToggleStateFile.open(file(), model).close();
+        assertOn(model, 7);
+
+        ToggleStateModel loaded = model(100);
+        ToggleStateFile.open(file(), loaded).close();
+        assertOn(loaded, 7);
+    }
+
+    @Test
+    public void corruptFileIsReplaced() throws IOException {
+        // shorter than a header
+        write(file(), new byte[] { 'M', 'S' });
+        ToggleStateModel model = model(100, 8);
+        ToggleStateFile.open(file(), model).close();
+        assertOn(model, 8);
+        assertEquals(HEADER_BYTES + 8 * 2, file().length());
+    }
+
+    @Test
+    public void otherFormatVersionIsReplaced() throws IOException {
+        ToggleStateFile.open(file(), model(100, 9)).close();
+        RandomAccessFile raf = new RandomAccessFile(file(), "rw");
+        try {
+            raf.seek(4);
+            raf.writeInt(Integer.reverseBytes(2));
+        } finally {
+            raf.close();
+        }
+        ToggleStateModel model = model(100, 10);
+        ToggleStateFile.open(file(), model).close();
+        assertOn(model, 10);
+    }
+}
@@ -0,0 +1,100 @@
+package com.appscumen.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class VelocityEstimatorTest {
+    private VelocityEstimator mEstimator;
+
+    @Before
+    public void setUp() {
+        mEstimator = new VelocityEstimator();
+    }
+
+    @Test
+    public void flingReleaseVelocityFitsTheLastHundredMillis() {
+        add(RecordedGestures.FLING_RIGHT_TIMES, RecordedGestures.FLING_RIGHT_X, RecordedGestures.FLING_RIGHT_Y);
+        mEstimator.computeVelocity();
+        assertEquals(RecordedGestures.FLING_RIGHT_RELEASE_VELOCITY, mEstimator.getXVelocity(), 1f);
+        assertTrue(Math.abs(mEstimator.getYVelocity()) < 100f);
+    }
+
+    @Test
+    public void fingerRestingBeforeReleaseHasNoVelocity() {
+        add(RecordedGestures.DRAG_AND_RETURN_TIMES, RecordedGestures.DRAG_AND_RETURN_X,
+                RecordedGestures.DRAG_AND_RETURN_Y);
+        mEstimator.computeVelocity();
+        assertEquals(0f, mEstimator.getXVelocity(), 0f);
+    }
+
+    @Test
+    public void constantSpeedIsExact() {
+        for (long t = 0; t <= 96; t += 8) {
+            mEstimator.add(1000 + t, 2 * t, -0.5f * t);
+        }
+        mEstimator.computeVelocity();
+        assertEquals(2000f, mEstimator.getXVelocity(), 0.5f);
+        assertEquals(-500f, mEstimator.getYVelocity(), 0.5f);
+    }
+
+    @Test
+    public void pauseLongerThanMaxGapEndsTheFit() {
+        for (long t = 0; t <= 64; t += 8) {
+            mEstimator.add(t, 3 * t, 0);
+        }
+        mEstimator.add(64 + VelocityEstimator.MAX_GAP + 1, 192, 0);
+        mEstimator.computeVelocity();
+        assertEquals(0f, mEstimator.getXVelocity(), 0f);
+    }
+
+    @Test
+    public void samplesOutsideTheHorizonAreIgnored() {
+        // slow for 200 ms, then 4 px/ms
+        for (long t = 0; t < 200; t += 8) {
+            mEstimator.add(t, 0.1f * t, 0);
+        }
+        final float start = 20f;
+        for (long t = 200; t <= 200 + VelocityEstimator.HORIZON; t += 8) {
+            mEstimator.add(t, start + 4 * (t - 200), 0);
+        }
+        mEstimator.computeVelocity();
+        assertEquals(4000f, mEstimator.getXVelocity(), 1f);
+    }
+
+    @Test
+    public void ringBufferWrapsAround() {
+        for (long t = 0; t < 50 * 8; t += 8) {
+            mEstimator.add(t, -t, 0);
+        }
+        assertEquals(20, mEstimator.getSampleCount());
+        assertEquals(49 * 8, mEstimator.getLastSampleTime());
+        mEstimator.computeVelocity();
+        assertEquals(-1000f, mEstimator.getXVelocity(), 0.5f);
+    }
+
+    @Test
+    public void singleSampleHasNoVelocity() {
+        mEstimator.add(10, 5, 5);
+        mEstimator.computeVelocity();
+        assertEquals(0f, mEstimator.getXVelocity(), 0f);
+        assertEquals(0f, mEstimator.getYVelocity(), 0f);
+    }
+
+    @Test
+    public void clearForgetsSamples() {
+        mEstimator.add(0, 0, 0);
+        mEstimator.add(8, 8, 0);
+        mEstimator.clear();
+        assertEquals(0, mEstimator.getSampleCount());
+        assertEquals(0, mEstimator.getLastSampleTime());
+    }
+
+    private void add(long[] times, float[] x, float[] y) {
+        for (int i = 0; i < times.length; i++) {
+            mEstimator.add(times[i], x[i], y[i]);
+        }
+    }
+}